@@ -11,6 +11,8 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
@@ -21,7 +23,6 @@ import javax.persistence.TemporalType;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
-import org.hibernate.annotations.Formula;
 import javax.validation.constraints.NotBlank;
 
 /**
@@ -38,7 +39,15 @@ import javax.validation.constraints.NotBlank;
 		@NamedQuery(name = "Article.GET_ALL_BY_CATEGORY_NAME", query = "SELECT a FROM Article a WHERE a.category.name = :name ORDER BY a.created DESC"),
 		@NamedQuery(name = "Article.GET_ALL_BY_TAG_NAME", query = "SELECT a FROM Tag t JOIN t.articles a WHERE t.name = :name ORDER BY a.created DESC"),
 		@NamedQuery(name = "Article.GET_ALL_BY_FRAGMENT", query = "SELECT a FROM Article a WHERE a.content LIKE :fragment ORDER BY a.created DESC"),
-		@NamedQuery(name = "Article.GET_COUNT_BY_FRAGMENT", query = "SELECT COUNT(a.id) FROM Article a WHERE a.content LIKE :fragment")
+		@NamedQuery(name = "Article.GET_COUNT_BY_FRAGMENT", query = "SELECT COUNT(a.id) FROM Article a WHERE a.content LIKE :fragment"),
+		@NamedQuery(name = "Article.GET_MAX_ID", query = "SELECT COALESCE(MAX(a.id), 0L) FROM Article a"),
+		@NamedQuery(name = "Article.ADD_TO_COMMENT_COUNT", query = "UPDATE Article a SET a.commentCount = a.commentCount + :delta WHERE a.id = :id")
+})
+@NamedNativeQueries({
+		@NamedNativeQuery(name = "Article.RECONCILE_COMMENT_COUNT", query = "UPDATE article t "
+				+ "SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.article_id = t.id) "
+				+ "WHERE t.id BETWEEN :from AND :to "
+				+ "AND comment_count <> (SELECT COUNT(*) FROM comment x WHERE x.article_id = t.id)")
 })
 public class Article extends BaseEntity {
 
@@ -86,9 +95,9 @@ public class Article extends BaseEntity {
 	private int viewCount;
 
 	/**
-	 * Article comment count
+	 * Article comment count, maintained by the service layer
 	 */
-	@Formula("(SELECT COUNT(c.id) FROM Comment c WHERE c.article_id = id)")
+	@Column(name = "comment_count", insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
 	private int commentCount;
 
 	/**
@@ -5,6 +5,8 @@ import java.util.Set;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
@@ -12,7 +14,6 @@ import javax.persistence.Table;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
-import org.hibernate.annotations.Formula;
 
 /**
  * Represents category of article
@@ -24,7 +25,15 @@ import org.hibernate.annotations.Formula;
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @NamedQueries({
 		@NamedQuery(name = "Category.GET_ALL", query = "SELECT c FROM Category c ORDER BY c.name"),
-		@NamedQuery(name = "Category.GET_BY_NAME", query = "SELECT c FROM Category c WHERE c.name = :name")
+		@NamedQuery(name = "Category.GET_BY_NAME", query = "SELECT c FROM Category c WHERE c.name = :name"),
+		@NamedQuery(name = "Category.GET_MAX_ID", query = "SELECT COALESCE(MAX(c.id), 0L) FROM Category c"),
+		@NamedQuery(name = "Category.ADD_TO_ARTICLE_COUNT", query = "UPDATE Category c SET c.articleCount = c.articleCount + :delta WHERE c.id = :id")
+})
+@NamedNativeQueries({
+		@NamedNativeQuery(name = "Category.RECONCILE_ARTICLE_COUNT", query = "UPDATE category t "
+				+ "SET article_count = (SELECT COUNT(*) FROM article x WHERE x.category_id = t.id) "
+				+ "WHERE t.id BETWEEN :from AND :to "
+				+ "AND article_count <> (SELECT COUNT(*) FROM article x WHERE x.category_id = t.id)")
 })
 public class Category extends BaseEntity {
 
@@ -37,9 +46,9 @@ public class Category extends BaseEntity {
 	private String name;
 
 	/**
-	 * Article count having this category
+	 * Article count having this category, maintained by the service layer
 	 */
-	@Formula("( SELECT COUNT(a.id) FROM Article a WHERE a.category_id = id )")
+	@Column(name = "article_count", insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
 	private int articleCount;
 
 	/**
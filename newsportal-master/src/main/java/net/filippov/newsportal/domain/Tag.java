@@ -6,13 +6,14 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
-import org.hibernate.annotations.Formula;
 
 /**
  * Represents tag of article
@@ -25,7 +26,16 @@ import org.hibernate.annotations.Formula;
 @NamedQueries({
 		@NamedQuery(name = "Tag.GET_ALL", query = "SELECT t FROM Tag t ORDER BY t.name"),
 		@NamedQuery(name = "Tag.GET_ALL_NAMES", query = "SELECT t.name FROM Tag t ORDER BY t.name"),
-		@NamedQuery(name = "Tag.GET_BY_NAME", query = "SELECT t FROM Tag t WHERE t.name = :name")
+		@NamedQuery(name = "Tag.GET_BY_NAME", query = "SELECT t FROM Tag t WHERE t.name = :name"),
+		@NamedQuery(name = "Tag.GET_ALL_BY_NAMES", query = "SELECT t FROM Tag t WHERE t.name IN :names"),
+		@NamedQuery(name = "Tag.GET_MAX_ID", query = "SELECT COALESCE(MAX(t.id), 0L) FROM Tag t"),
+		@NamedQuery(name = "Tag.ADD_TO_ARTICLE_COUNT", query = "UPDATE Tag t SET t.articleCount = t.articleCount + :delta WHERE t.id IN :ids")
+})
+@NamedNativeQueries({
+		@NamedNativeQuery(name = "Tag.RECONCILE_ARTICLE_COUNT", query = "UPDATE tag t "
+				+ "SET article_count = (SELECT COUNT(*) FROM article_tag x WHERE x.tag_id = t.id) "
+				+ "WHERE t.id BETWEEN :from AND :to "
+				+ "AND article_count <> (SELECT COUNT(*) FROM article_tag x WHERE x.tag_id = t.id)")
 })
 public class Tag extends BaseEntity {
 
@@ -38,11 +48,9 @@ public class Tag extends BaseEntity {
 	private String name;
 
 	/**
-	 * Article count tagged with this tag
+	 * Article count tagged with this tag, maintained by the service layer
 	 */
-	@Formula("(SELECT COUNT(a.id) FROM article_tag at "
-			+ "JOIN Article a ON at.article_id = a.id "
-			+ "JOIN Tag t ON at.tag_id = t.id WHERE t.id = id)")
+	@Column(name = "article_count", insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
 	private int articleCount;
 
 	/**
@@ -10,6 +10,8 @@ import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
@@ -20,7 +22,6 @@ import javax.validation.constraints.Size;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
-import org.hibernate.annotations.Formula;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 
@@ -34,7 +35,20 @@ import javax.validation.constraints.NotBlank;
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @NamedQueries({
 		@NamedQuery(name = "User.GET_BY_LOGIN", query = "SELECT u FROM User u WHERE u.login = :login"),
-		@NamedQuery(name = "User.GET_BY_EMAIL", query = "SELECT u FROM User u WHERE u.email = :email")
+		@NamedQuery(name = "User.GET_BY_EMAIL", query = "SELECT u FROM User u WHERE u.email = :email"),
+		@NamedQuery(name = "User.GET_MAX_ID", query = "SELECT COALESCE(MAX(u.id), 0L) FROM User u"),
+		@NamedQuery(name = "User.ADD_TO_ARTICLE_COUNT", query = "UPDATE User u SET u.articleCount = u.articleCount + :delta WHERE u.id = :id"),
+		@NamedQuery(name = "User.ADD_TO_COMMENT_COUNT", query = "UPDATE User u SET u.commentCount = u.commentCount + :delta WHERE u.id = :id")
+})
+@NamedNativeQueries({
+		@NamedNativeQuery(name = "User.RECONCILE_ARTICLE_COUNT", query = "UPDATE user t "
+				+ "SET article_count = (SELECT COUNT(*) FROM article x WHERE x.user_id = t.id) "
+				+ "WHERE t.id BETWEEN :from AND :to "
+				+ "AND article_count <> (SELECT COUNT(*) FROM article x WHERE x.user_id = t.id)"),
+		@NamedNativeQuery(name = "User.RECONCILE_COMMENT_COUNT", query = "UPDATE user t "
+				+ "SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.user_id = t.id) "
+				+ "WHERE t.id BETWEEN :from AND :to "
+				+ "AND comment_count <> (SELECT COUNT(*) FROM comment x WHERE x.user_id = t.id)")
 })
 public class User extends BaseEntity {
 
@@ -89,15 +103,15 @@ public class User extends BaseEntity {
 	private boolean enabled;
 
 	/**
-	 * Article count of this user
+	 * Article count of this user, maintained by the service layer
 	 */
-	@Formula("(SELECT COUNT(a.id) FROM Article a WHERE a.user_id = id)")
+	@Column(name = "article_count", insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
 	private int articleCount;
 
 	/**
-	 * Comment count of this user
+	 * Comment count of this user, maintained by the service layer
 	 */
-	@Formula("(SELECT COUNT(c.id) FROM Comment c WHERE c.user_id = id)")
+	@Column(name = "comment_count", insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
 	private int commentCount;
 
 	/**
@@ -123,4 +123,12 @@ public interface GenericRepository <T extends Serializable, PK extends Serializa
 	 * @return the number of objects
 	 */
 	int getCountByNamedQuery(String namedQuery, Map<String, Object> parameters);
+	
+	/**
+	 * Update or delete objects in database using a named query
+	 * @param namedQuery to use
+	 * @param parameters Map of parameters to set
+	 * @return the number of objects updated or deleted
+	 */
+	int updateByNamedQuery(String namedQuery, Map<String, Object> parameters);
 }
@@ -8,6 +8,7 @@ import java.util.Map.Entry;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -199,6 +200,20 @@ public class GenericRepositoryJpaImpl<T extends Serializable, PK extends Seriali
 		return setParameters(query, parameters).getSingleResult().intValue();
 	}
 	
+	/**
+	 * @see net.filippov.newsportal.repository.GenericRepository#updateByNamedQuery(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public int updateByNamedQuery(String namedQuery,
+			Map<String, Object> parameters) {
+		
+		Query query = manager.createNamedQuery(namedQuery);
+		for (Entry<String, Object> entry : parameters.entrySet()) {
+			query.setParameter(entry.getKey(), entry.getValue());
+		}
+		return query.executeUpdate();
+	}
+	
 	/**
 	 * Bind parameters to the typed query
 	 * @param query typed query
@@ -0,0 +1,53 @@
+package net.filippov.newsportal.service;
+
+import java.util.Set;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.Category;
+import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.Tag;
+
+/**
+ * Maintains article and comment counters of articles, categories, tags and users
+ * 
+ * @author Oleg Filippov
+ */
+public interface CounterService {
+
+	/**
+	 * Count new article for its author, category and tags
+	 * 
+	 * @param article persisted article
+	 */
+	void articleAdded(Article article);
+
+	/**
+	 * Move article between categories and tags
+	 * 
+	 * @param article updated article
+	 * @param previousCategory category before the update
+	 * @param previousTags tags before the update
+	 */
+	void articleUpdated(Article article, Category previousCategory, Set<Tag> previousTags);
+
+	/**
+	 * Uncount article and its comments, must be invoked before the article is deleted
+	 * 
+	 * @param article article to delete
+	 */
+	void articleDeleted(Article article);
+
+	/**
+	 * Count new comment for its article and author
+	 * 
+	 * @param comment persisted comment
+	 */
+	void commentAdded(Comment comment);
+
+	/**
+	 * Recompute all counters in batches of ids and repair those that have drifted
+	 * 
+	 * @return number of repaired counters
+	 */
+	int reconcile();
+}
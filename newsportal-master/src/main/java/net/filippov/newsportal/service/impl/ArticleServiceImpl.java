@@ -4,6 +4,7 @@ import static net.filippov.newsportal.service.util.QueryParameters.setParam;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,6 +21,7 @@ import net.filippov.newsportal.repository.GenericRepository;
 import net.filippov.newsportal.service.ArticleService;
 import net.filippov.newsportal.service.CategoryService;
 import net.filippov.newsportal.service.CommentService;
+import net.filippov.newsportal.service.CounterService;
 import net.filippov.newsportal.service.TagService;
 import net.filippov.newsportal.service.UserService;
 import net.filippov.newsportal.web.constants.Common;
@@ -43,6 +45,7 @@ public class ArticleServiceImpl extends AbstractServiceImpl<Article> implements
 
 	private CategoryService categoryService;
 	private CommentService commentService;
+	private CounterService counterService;
 	private TagService tagService;
 	private UserService userService;
 
@@ -53,11 +56,13 @@ public class ArticleServiceImpl extends AbstractServiceImpl<Article> implements
 	public ArticleServiceImpl(GenericRepository<Article, Long> repository,
 			CategoryService categoryService,
 			CommentService commentService,
+			CounterService counterService,
 			TagService tagService,
 			UserService userService) {
 		super(repository);
 		this.categoryService = categoryService;
 		this.commentService = commentService;
+		this.counterService = counterService;
 		this.tagService = tagService;
 		this.userService = userService;
 	}
@@ -73,6 +78,7 @@ public class ArticleServiceImpl extends AbstractServiceImpl<Article> implements
 		try {
 			article = populateArticle(article, authorId, categoryName, tagString);
 			this.add(article);
+			counterService.articleAdded(article);
 		} catch (PersistenceException e) {
 			String message = String.format("Unable to add %s", article);
 			throw new ServiceException(message, e);
@@ -88,15 +94,38 @@ public class ArticleServiceImpl extends AbstractServiceImpl<Article> implements
 	@Transactional
 	public void update(Article article, String categoryName, String tagString) {
 		try {
+			Article persistent = repository.get(article.getId());
+			if (persistent == null) {
+				throw new NotFoundException("Article not found");
+			}
+			Category previousCategory = persistent.getCategory();
+			Set<Tag> previousTags = new HashSet<Tag>(persistent.getTags());
+
 			article = populateArticle(article, null, categoryName, tagString);
 			article.setLastModified(new Date());
 			this.update(article);
+			// the article has been merged into the persistent instance
+			counterService.articleUpdated(persistent, previousCategory, previousTags);
 		} catch (PersistenceException e) {
 			String message = String.format("Unable to update %s", article);
 			throw new ServiceException(message, e);
 		}
 	}
 
+	/**
+	 * @see net.filippov.newsportal.service.impl.AbstractServiceImpl#deleteByIdTransactionally(java.lang.Long)
+	 */
+	@Override
+	@Transactional
+	public void deleteByIdTransactionally(Long id) {
+		Article article = repository.get(id);
+		if (article == null) {
+			throw new NotFoundException("Article not found");
+		}
+		counterService.articleDeleted(article);
+		super.deleteByIdTransactionally(id);
+	}
+
 	/**
 	 * Populates an article with author, category and tags from tag-string
 	 * 
@@ -319,6 +348,7 @@ public class ArticleServiceImpl extends AbstractServiceImpl<Article> implements
 			Article article = repository.get(articleId);
 			comment = new Comment(author, article, content);
 			commentService.add(comment);
+			counterService.commentAdded(comment);
 		} catch (PersistenceException e) {
 			String message = String.format("Unable to add %s", comment);
 			throw new ServiceException(message, e);
@@ -0,0 +1,243 @@
+package net.filippov.newsportal.service.impl;
+
+import static net.filippov.newsportal.service.util.QueryParameters.setParam;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.persistence.PersistenceException;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.BaseEntity;
+import net.filippov.newsportal.domain.Category;
+import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.Tag;
+import net.filippov.newsportal.exception.ServiceException;
+import net.filippov.newsportal.repository.GenericRepository;
+import net.filippov.newsportal.service.CounterService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Implementation of {@link CounterService}. Counters are changed by
+ * "count = count + delta" update queries in the caller's transaction, so
+ * concurrent changes never overwrite each other. Reconciliation runs nightly
+ * and commits every batch of ids separately
+ * 
+ * @author Oleg Filippov
+ */
+@Service("CounterService")
+public class CounterServiceImpl implements CounterService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CounterService.class);
+
+	/**
+	 * Number of ids recomputed by one reconciliation query
+	 */
+	private static final int RECONCILE_BATCH_SIZE = 1000;
+
+	/**
+	 * Reconciliation queries by the query of maximum id of their entity
+	 */
+	private static final String[][] RECONCILE_QUERIES = {
+			{ "Article.GET_MAX_ID", "Article.RECONCILE_COMMENT_COUNT" },
+			{ "Category.GET_MAX_ID", "Category.RECONCILE_ARTICLE_COUNT" },
+			{ "Tag.GET_MAX_ID", "Tag.RECONCILE_ARTICLE_COUNT" },
+			{ "User.GET_MAX_ID", "User.RECONCILE_ARTICLE_COUNT" },
+			{ "User.GET_MAX_ID", "User.RECONCILE_COMMENT_COUNT" }
+	};
+
+	/**
+	 * Generic repository, only used with named queries
+	 */
+	private GenericRepository<BaseEntity, Long> repository;
+
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * Constructor autowiring generic repository and transaction manager
+	 */
+	@Autowired
+	public CounterServiceImpl(GenericRepository<BaseEntity, Long> repository,
+			PlatformTransactionManager transactionManager) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * @see net.filippov.newsportal.service.CounterService#articleAdded(
+	 *      net.filippov.newsportal.domain.Article)
+	 */
+	@Override
+	@Transactional
+	public void articleAdded(Article article) {
+		countArticle(article, 1);
+	}
+
+	/**
+	 * @see net.filippov.newsportal.service.CounterService#articleUpdated(
+	 *      net.filippov.newsportal.domain.Article,
+	 *      net.filippov.newsportal.domain.Category, java.util.Set)
+	 */
+	@Override
+	@Transactional
+	public void articleUpdated(Article article, Category previousCategory, Set<Tag> previousTags) {
+		Long previousCategoryId = previousCategory == null ? null : previousCategory.getId();
+		Long categoryId = article.getCategory() == null ? null : article.getCategory().getId();
+		if (previousCategoryId == null ? categoryId != null : !previousCategoryId.equals(categoryId)) {
+			if (previousCategoryId != null) {
+				update("Category.ADD_TO_ARTICLE_COUNT", previousCategoryId, -1);
+			}
+			if (categoryId != null) {
+				update("Category.ADD_TO_ARTICLE_COUNT", categoryId, 1);
+			}
+		}
+
+		Set<Long> before = getIds(previousTags);
+		Set<Long> after = getIds(article.getTags());
+		Set<Long> removed = new HashSet<Long>(before);
+		removed.removeAll(after);
+		after.removeAll(before);
+		updateTags(removed, -1);
+		updateTags(after, 1);
+	}
+
+	/**
+	 * @see net.filippov.newsportal.service.CounterService#articleDeleted(
+	 *      net.filippov.newsportal.domain.Article)
+	 */
+	@Override
+	@Transactional
+	public void articleDeleted(Article article) {
+		countArticle(article, -1);
+		if (article.getComments() == null) {
+			return;
+		}
+		// comments are removed along with the article
+		Map<Long, Integer> commentsByUser = new HashMap<Long, Integer>();
+		for (Comment comment : article.getComments()) {
+			if (comment.getAuthor() != null) {
+				Long userId = comment.getAuthor().getId();
+				Integer count = commentsByUser.get(userId);
+				commentsByUser.put(userId, count == null ? 1 : count + 1);
+			}
+		}
+		for (Entry<Long, Integer> entry : commentsByUser.entrySet()) {
+			update("User.ADD_TO_COMMENT_COUNT", entry.getKey(), -entry.getValue());
+		}
+	}
+
+	/**
+	 * @see net.filippov.newsportal.service.CounterService#commentAdded(
+	 *      net.filippov.newsportal.domain.Comment)
+	 */
+	@Override
+	@Transactional
+	public void commentAdded(Comment comment) {
+		if (comment.getArticle() != null) {
+			update("Article.ADD_TO_COMMENT_COUNT", comment.getArticle().getId(), 1);
+		}
+		if (comment.getAuthor() != null) {
+			update("User.ADD_TO_COMMENT_COUNT", comment.getAuthor().getId(), 1);
+		}
+	}
+
+	/**
+	 * @see net.filippov.newsportal.service.CounterService#reconcile()
+	 */
+	@Override
+	@Scheduled(cron = "0 30 3 * * *")
+	public int reconcile() {
+		long started = System.currentTimeMillis();
+		int repaired = 0;
+		try {
+			for (String[] queries : RECONCILE_QUERIES) {
+				int maxId = repository.getCountByNamedQuery(queries[0], new HashMap<String, Object>());
+				for (long from = 0; from <= maxId; from += RECONCILE_BATCH_SIZE) {
+					repaired += reconcileBatch(queries[1], from, from + RECONCILE_BATCH_SIZE - 1);
+				}
+			}
+		} catch (PersistenceException e) {
+			throw new ServiceException("Unable to reconcile counters", e);
+		}
+		LOG.info("RECONCILED: {} counters repaired in {} ms", repaired, System.currentTimeMillis() - started);
+		return repaired;
+	}
+
+	/**
+	 * Recompute counters of one range of ids in its own transaction
+	 */
+	private int reconcileBatch(final String namedQuery, final long from, final long to) {
+		return transactionTemplate.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				return repository.updateByNamedQuery(namedQuery,
+						setParam("from", from).add("to", to).buildMap());
+			}
+		});
+	}
+
+	/**
+	 * Add delta to article counters of the article's author, category and tags
+	 */
+	private void countArticle(Article article, int delta) {
+		if (article.getAuthor() != null) {
+			update("User.ADD_TO_ARTICLE_COUNT", article.getAuthor().getId(), delta);
+		}
+		if (article.getCategory() != null) {
+			update("Category.ADD_TO_ARTICLE_COUNT", article.getCategory().getId(), delta);
+		}
+		updateTags(getIds(article.getTags()), delta);
+	}
+
+	private void updateTags(Set<Long> tagIds, int delta) {
+		if (tagIds.isEmpty()) {
+			return;
+		}
+		try {
+			repository.updateByNamedQuery("Tag.ADD_TO_ARTICLE_COUNT",
+					setParam("ids", tagIds).add("delta", delta).buildMap());
+		} catch (PersistenceException e) {
+			String message = String.format("Unable to update article count of tags %s", tagIds);
+			throw new ServiceException(message, e);
+		}
+	}
+
+	private void update(String namedQuery, Long id, int delta) {
+		try {
+			repository.updateByNamedQuery(namedQuery,
+					setParam("id", id).add("delta", delta).buildMap());
+		} catch (PersistenceException e) {
+			String message = String.format("Unable to execute %s id=%d", namedQuery, id);
+			throw new ServiceException(message, e);
+		}
+	}
+
+	/**
+	 * @return ids of persisted entities
+	 */
+	private static Set<Long> getIds(Collection<? extends BaseEntity> entities) {
+		Set<Long> ids = new HashSet<Long>();
+		if (entities != null) {
+			for (BaseEntity entity : entities) {
+				if (entity.getId() != null) {
+					ids.add(entity.getId());
+				}
+			}
+		}
+		return ids;
+	}
+}
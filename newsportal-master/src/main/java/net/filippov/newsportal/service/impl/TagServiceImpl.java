@@ -3,6 +3,7 @@ package net.filippov.newsportal.service.impl;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.persistence.PersistenceException;
 
@@ -103,14 +104,33 @@ public class TagServiceImpl extends AbstractServiceImpl<Tag> implements TagServi
 	 */
 	@Override
 	public Set<Tag> getTagsFromString(String tagString) {
-		Set<Tag> result = new HashSet<Tag>();
+		// tag names are unique regardless of case
+		Set<String> tagNames = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
 		for (String tagName : tagString.split(",")) {
 			tagName = tagName.replaceAll("\\s+", "");
-			Tag tagObj = this.getByName(tagName);	// get persistent object
-			if (tagObj == null) {
-				tagObj = new Tag();
-				tagObj.setName(tagName);
+			if (!tagName.isEmpty()) {
+				tagNames.add(tagName);
 			}
+		}
+		if (tagNames.isEmpty()) {
+			return new HashSet<Tag>();
+		}
+
+		Set<Tag> result;
+		try {
+			// get all persistent objects at once
+			result = new HashSet<Tag>(repository.getAllByNamedQuery("Tag.GET_ALL_BY_NAMES",
+					setParam("names", tagNames).buildMap()));
+		} catch (PersistenceException e) {
+			String message = String.format("Unable to get tags=%s", tagNames);
+			throw new ServiceException(message, e);
+		}
+		for (Tag tag : result) {
+			tagNames.remove(tag.getName());
+		}
+		for (String tagName : tagNames) {	// new tags are persisted with the article
+			Tag tagObj = new Tag();
+			tagObj.setName(tagName);
 			result.add(tagObj);
 		}
 		return result;
@@ -1,32 +1,37 @@
 package net.filippov.newsportal.web;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import net.filippov.newsportal.exception.UnacceptableFileFormatException;
 import net.filippov.newsportal.web.constants.URL;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
@@ -46,6 +51,17 @@ public class FileUploadController {
 	private static final String PNG_CONTENT_TYPE = "image/png";
 	private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png");
 	private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	// Uploaded images are never overwritten, their names are random
+	private static final String IMAGE_CACHE_CONTROL = "max-age=31536000, public, immutable";
+
+	// Request attributes of Tomcat's sendfile support, used for larger images
+	private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+	private static final long SENDFILE_MIN_SIZE = 48 * 1024;
 
 	// Magic bytes for image validation
 	private static final byte[] JPG_MAGIC = new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF };
@@ -80,17 +96,11 @@ public class FileUploadController {
 						"Invalid file extension. Only jpg, jpeg, and png are allowed.");
 			}
 
-			// Validate file content (magic bytes)
-			byte[] fileBytes = image.getBytes();
-			if (!isValidImageFile(fileBytes)) {
-				throw new UnacceptableFileFormatException("File content does not match image format.");
-			}
-
 			// Generate secure random filename
 			String secureFilename = UUID.randomUUID().toString() + "." + extension;
 
-			File file = new File(ARTICLE_IMAGES_PATH + secureFilename);
-			FileUtils.writeByteArrayToFile(file, fileBytes);
+			// Validate file content (magic bytes) while writing it
+			writeImageFile(image, Paths.get(ARTICLE_IMAGES_PATH, secureFilename));
 
 			return "images/" + secureFilename;
 		}
@@ -98,11 +108,54 @@ public class FileUploadController {
 		throw new UnacceptableFileFormatException("File is empty");
 	}
 
+	/**
+	 * Stream uploaded image to a file one block at a time, never holding the
+	 * whole upload in memory. Content is checked on the first block before
+	 * anything is written and size on every block, so the file is removed if
+	 * the upload is larger than declared
+	 * 
+	 * @param image uploaded image
+	 * @param path  file to create
+	 * @throws UnacceptableFileFormatException if content is not an image or too large
+	 */
+	private void writeImageFile(MultipartFile image, Path path) throws IOException {
+		try (InputStream in = image.getInputStream()) {
+			byte[] block = new byte[BLOCK_SIZE];
+			int read = in.readNBytes(block, 0, block.length);
+			if (!isValidImageFile(block, read)) {
+				throw new UnacceptableFileFormatException("File content does not match image format.");
+			}
+
+			Files.createDirectories(path.getParent());
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				long size = 0;
+				while (read > 0) {
+					size += read;
+					if (size > MAX_FILE_SIZE) {
+						throw new UnacceptableFileFormatException("File size exceeds maximum allowed size of 5MB");
+					}
+					ByteBuffer buffer = ByteBuffer.wrap(block, 0, read);
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+					read = in.read(block);
+				}
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(path);
+				throw e;
+			}
+		}
+	}
+
 	/**
 	 * Validate image file by checking magic bytes
+	 * 
+	 * @param fileBytes first bytes of the file
+	 * @param length    number of bytes read
 	 */
-	private boolean isValidImageFile(byte[] fileBytes) {
-		if (fileBytes.length < 4) {
+	private boolean isValidImageFile(byte[] fileBytes, int length) {
+		if (length < 4) {
 			return false;
 		}
 
@@ -121,17 +174,20 @@ public class FileUploadController {
 	}
 
 	/**
-	 * Get image from file-system
+	 * Get image from file-system. Answers conditional requests and a single
+	 * byte range. Larger images go through the container's sendfile when it
+	 * has one, the rest are copied through the response buffer
 	 * 
 	 * @param imageName image-name (sanitized)
 	 * @param type      extension of image
+	 * @param request   {@link HttpServletRequest}
 	 * @param response  {@link HttpServletResponse}
 	 * @throws IOException
 	 */
 	@RequestMapping(method = RequestMethod.GET, value = URL.SHOW_IMAGE)
 	public void showImg(@PathVariable("name") String imageName,
-			@PathVariable("type") String type, HttpServletResponse response)
-			throws IOException {
+			@PathVariable("type") String type, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
 
 		// Sanitize inputs to prevent path traversal
 		String sanitizedName = sanitizeFilename(imageName);
@@ -160,8 +216,90 @@ public class FileUploadController {
 			return;
 		}
 
-		try (InputStream in = new FileInputStream(file)) {
-			FileCopyUtils.copy(in, response.getOutputStream());
+		long size = file.length();
+		long lastModified = file.lastModified();
+		String etag = "\"" + sanitizedName + "\"";
+		response.setHeader(HttpHeaders.CACHE_CONTROL, IMAGE_CACHE_CONTROL);
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+			return;
+		}
+		response.setContentType(sanitizedType.equalsIgnoreCase("png") ? PNG_CONTENT_TYPE : JPG_CONTENT_TYPE);
+
+		long start = 0;
+		long length = size;
+		HttpRange range = getRange(request, etag, lastModified);
+		if (range != null) {
+			start = range.getRangeStart(size);
+			long end = range.getRangeEnd(size);
+			if (start >= size || start > end) {
+				response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+				response.setContentLength(0);
+				return;
+			}
+			length = end - start + 1;
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+		}
+		response.setContentLengthLong(length);
+		if ("HEAD".equals(request.getMethod())) {
+			return;
+		}
+
+		if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+			request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+			request.setAttribute(SENDFILE_START, start);
+			request.setAttribute(SENDFILE_END, start + length);
+			return;
+		}
+		// Buffered copy, the response stream is not a channel sendfile can use
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			long end = start + length;
+			while (position < end) {
+				long sent = channel.transferTo(position, end - position, target);
+				if (sent <= 0) {
+					throw new IOException("Unexpected end of " + filePath);
+				}
+				position += sent;
+			}
+		}
+	}
+
+	/**
+	 * Get the single byte range requested
+	 * 
+	 * @return the range, or null to send the whole file: if there is none, it
+	 *         is malformed, there are several or If-Range names another version
+	 */
+	private HttpRange getRange(HttpServletRequest request, String etag, long lastModified) {
+		String header = request.getHeader(HttpHeaders.RANGE);
+		if (header == null) {
+			return null;
+		}
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange != null) {
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				if (!ifRange.equals(etag)) {
+					return null;
+				}
+			} else {
+				try {
+					if (request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 != lastModified / 1000) {
+						return null;
+					}
+				} catch (IllegalArgumentException e) {
+					return null;
+				}
+			}
+		}
+		try {
+			List<HttpRange> ranges = HttpRange.parseRanges(header);
+			return ranges.size() == 1 ? ranges.get(0) : null;
+		} catch (IllegalArgumentException e) {
+			return null;
 		}
 	}
 
@@ -37,14 +37,17 @@ CREATE TABLE IF NOT EXISTS user (
     email VARCHAR(50) NOT NULL UNIQUE,
     registered TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     locked BOOLEAN NOT NULL DEFAULT FALSE,
-    enabled BOOLEAN NOT NULL DEFAULT TRUE
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    article_count INT NOT NULL DEFAULT 0,
+    comment_count INT NOT NULL DEFAULT 0
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Categories table
 CREATE TABLE IF NOT EXISTS category (
     id BIGINT NOT NULL PRIMARY KEY,
     version INT NOT NULL DEFAULT 0,
-    name VARCHAR(30) NOT NULL UNIQUE
+    name VARCHAR(30) NOT NULL UNIQUE,
+    article_count INT NOT NULL DEFAULT 0
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Articles table
@@ -57,6 +60,7 @@ CREATE TABLE IF NOT EXISTS article (
     created TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     last_modified TIMESTAMP NULL,
     view_count INT NOT NULL DEFAULT 0,
+    comment_count INT NOT NULL DEFAULT 0,
     user_id BIGINT NOT NULL,
     category_id BIGINT,
     FOREIGN KEY (user_id) REFERENCES user(id),
@@ -79,7 +83,8 @@ CREATE TABLE IF NOT EXISTS comment (
 CREATE TABLE IF NOT EXISTS tag (
     id BIGINT NOT NULL PRIMARY KEY,
     version INT NOT NULL DEFAULT 0,
-    name VARCHAR(20) NOT NULL UNIQUE
+    name VARCHAR(20) NOT NULL UNIQUE,
+    article_count INT NOT NULL DEFAULT 0
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Many-to-many: User <-> UserRole
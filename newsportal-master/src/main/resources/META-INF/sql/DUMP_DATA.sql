@@ -116,4 +116,11 @@ INSERT INTO article_tag (`article_id`, `tag_id`) VALUES
 ('4', '7'), ('4', '8'), ('4', '9'),
 ('5', '10'), ('5', '6'), ('5', '16'),
 ('6', '11'), ('5', '12'), ('6', '13'), ('6', '6'), ('6', '16'),
-('7', '14'), ('7', '15');
\ No newline at end of file
+('7', '14'), ('7', '15');
+
+-- Counters
+UPDATE article t SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.article_id = t.id);
+UPDATE category t SET article_count = (SELECT COUNT(*) FROM article x WHERE x.category_id = t.id);
+UPDATE tag t SET article_count = (SELECT COUNT(*) FROM article_tag x WHERE x.tag_id = t.id);
+UPDATE user t SET article_count = (SELECT COUNT(*) FROM article x WHERE x.user_id = t.id);
+UPDATE user t SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.user_id = t.id);
@@ -0,0 +1,29 @@
+package net.filippov.newsportal.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the benchmarks with the JMH command line, writing results as JSON to
+ * {@code jmh-result.json} unless another format or file is given, so runs of
+ * two builds can be compared. Run with
+ * {@code java -jar target/benchmarks.jar [JMH options] [benchmark regexp]}
+ */
+public class BenchmarkRunner {
+
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.addAll(0, List.of("-rf", "json"));
+        }
+        if (!options.contains("-rff")) {
+            options.addAll(0, List.of("-rff", RESULT_FILE));
+        }
+        Main.main(options.toArray(String[]::new));
+    }
+}
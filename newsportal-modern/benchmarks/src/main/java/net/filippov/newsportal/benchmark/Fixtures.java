@@ -0,0 +1,259 @@
+package net.filippov.newsportal.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleSlice;
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.domain.Category;
+import net.filippov.newsportal.domain.CategorySummary;
+import net.filippov.newsportal.domain.CommentSlice;
+import net.filippov.newsportal.domain.CommentSummary;
+import net.filippov.newsportal.domain.Tag;
+import net.filippov.newsportal.domain.User;
+import net.filippov.newsportal.search.SearchDocument;
+
+/**
+ * Data the benchmarks run on, shaped like the data of a running portal:
+ * pages of article summaries, articles with several paragraphs, tags and an
+ * image with resized copies, comments, the sidebar. Everything is derived
+ * from a fixed seed and date, so every run and every build measures the same
+ * data.
+ *
+ * @author Oleg Filippov
+ */
+public class Fixtures {
+
+    public static final long SEED = 20240917L;
+
+    /**
+     * Creation date of the newest article, 2025-01-01T00:00:00Z
+     */
+    public static final long NEWEST = 1_735_689_600_000L;
+
+    public static final List<String> CATEGORIES = List.of("Technology", "Business", "Sports", "Politics",
+            "Science", "Health", "Culture", "World");
+
+    private static final String[] WORDS = {
+            "market", "government", "inflation", "bank", "interest", "rates", "election", "minister", "policy",
+            "company", "shares", "investors", "growth", "economy", "energy", "prices", "climate", "report",
+            "season", "match", "team", "coach", "league", "players", "final", "goal", "victory", "record",
+            "research", "scientists", "study", "patients", "hospital", "vaccine", "health", "data", "software",
+            "developers", "cloud", "security", "platform", "release", "java", "spring", "docker", "kubernetes",
+            "database", "performance", "startup", "funding", "technology", "artificial", "intelligence",
+            "model", "network", "city", "council", "residents", "housing", "transport", "budget", "taxes",
+            "court", "ruling", "law", "parliament", "vote", "opposition", "protest", "summit", "leaders",
+            "agreement", "trade", "exports", "factory", "workers", "strike", "union", "wages", "festival",
+            "film", "music", "album", "museum", "exhibition", "author", "novel", "award", "weather", "storm",
+            "flood", "drought", "harvest", "farmers", "space", "mission", "launch", "satellite", "planet",
+            "telescope", "ocean", "species", "forest", "emissions", "battery", "electric", "vehicles",
+            "quarter", "profit", "losses", "merger", "acquisition", "analysts", "forecast", "survey",
+            "officials", "statement", "week", "month", "year", "morning", "evening", "national", "local",
+            "global", "public", "private", "new", "major", "first", "last", "latest", "former", "senior" };
+
+    private static final String[] FILLER = { "the", "a", "of", "in", "on", "and", "to", "with", "for", "after",
+            "before", "over", "as", "by", "at" };
+
+    private static final String[] AUTHORS = { "oleg", "anna", "dmitry", "maria", "ivan", "elena" };
+
+    private static final String[] COMMENTERS = { "reader1", "newsfan", "jsmith", "kate_w", "observer",
+            "techie", "local_guy", "m.brown" };
+
+    private static final String IMAGE_VARIANTS = "320,640,1280";
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param offset number of newer articles, as on the following pages
+     * @param size number of articles
+     * @return slice of article summaries, newest first, with neighbours on both sides
+     */
+    public static ArticleSlice articleSlice(int offset, int size) {
+        return new ArticleSlice(summaries(offset, size), true, offset > 0);
+    }
+
+    /**
+     * @param offset number of newer articles
+     * @param size number of articles
+     * @return article summaries, newest first, three out of four with an image
+     */
+    public static List<ArticleSummary> summaries(int offset, int size) {
+        List<ArticleSummary> summaries = new ArrayList<>(size);
+        for (int i = offset; i < offset + size; i++) {
+            Random random = new Random(SEED + i);
+            long id = 100_000L - i;
+            boolean image = i % 4 != 3;
+            summaries.add(new ArticleSummary(id, title(random), "<p>" + sentence(random, 30) + "</p>",
+                    image ? imageUrl(random) : null, image ? IMAGE_VARIANTS : null,
+                    new Date(NEWEST - i * 3_600_000L), 50 + random.nextInt(20_000), AUTHORS[i % AUTHORS.length],
+                    CATEGORIES.get(i % CATEGORIES.size()), random.nextInt(60)));
+        }
+        return summaries;
+    }
+
+    /**
+     * @param id article id
+     * @return article with an author, a category, five tags, an image and
+     *         eight paragraphs of content
+     */
+    public static Article article(long id) {
+        Random random = new Random(SEED + id);
+        Article article = new Article();
+        article.setId(id);
+        article.setTitle(title(random));
+        article.setPreview("<p>" + sentence(random, 30) + "</p>");
+        article.setContent(content(random, 8));
+        article.setViewCount(50 + random.nextInt(20_000));
+        article.setImageUrl(imageUrl(random));
+        article.setImageVariants(IMAGE_VARIANTS);
+
+        User author = new User();
+        author.setId(1L + id % AUTHORS.length);
+        author.setLogin(AUTHORS[(int) (id % AUTHORS.length)]);
+        article.setAuthor(author);
+
+        Category category = new Category();
+        category.setId(1L + id % CATEGORIES.size());
+        category.setName(CATEGORIES.get((int) (id % CATEGORIES.size())));
+        article.setCategory(category);
+
+        Set<Tag> tags = new LinkedHashSet<>();
+        for (String name : tagNames(random, 5)) {
+            Tag tag = new Tag();
+            tag.setId((long) name.hashCode() & 0xFFFF);
+            tag.setName(name);
+            tags.add(tag);
+        }
+        article.setTags(tags);
+        return article;
+    }
+
+    /**
+     * @param count number of comments
+     * @return newest comments of an article, with more to load
+     */
+    public static CommentSlice comments(int count) {
+        Random random = new Random(SEED);
+        List<CommentSummary> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(new CommentSummary(500_000L - i, capitalize(sentence(random, 8 + random.nextInt(40))),
+                    new Date(NEWEST - i * 600_000L), COMMENTERS[random.nextInt(COMMENTERS.length)]));
+        }
+        return new CommentSlice(comments, true);
+    }
+
+    /**
+     * @return categories of the sidebar with their article counts
+     */
+    public static List<CategorySummary> categories() {
+        List<CategorySummary> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES.size(); i++) {
+            categories.add(new CategorySummary(i + 1L, CATEGORIES.get(i), 40 + i * 37));
+        }
+        return categories;
+    }
+
+    /**
+     * @param count number of tags
+     * @return distinct tag names, each at most 20 characters long
+     */
+    public static List<String> tagNames(int count) {
+        return tagNames(new Random(SEED), count);
+    }
+
+    /**
+     * @param count number of tags
+     * @return comma-separated tag string as typed by authors, with irregular
+     *         spacing and a repeated tag differing in case
+     */
+    public static String tagString(int count) {
+        List<String> names = tagNames(count);
+        StringJoiner joiner = new StringJoiner(",");
+        for (int i = 0; i < names.size(); i++) {
+            joiner.add(i % 3 == 0 ? " " + names.get(i) + "  " : names.get(i));
+        }
+        joiner.add(" " + names.get(0).toUpperCase() + " ");
+        return joiner.toString();
+    }
+
+    /**
+     * @param count number of articles
+     * @return articles to index for search, ids from 1
+     */
+    public static List<SearchDocument> searchDocuments(int count) {
+        List<SearchDocument> documents = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            Random random = new Random(SEED + id);
+            documents.add(new SearchDocument((long) id, title(random), "<p>" + sentence(random, 30) + "</p>",
+                    content(random, 6)));
+        }
+        return documents;
+    }
+
+    private static List<String> tagNames(Random random, int count) {
+        Set<String> names = new LinkedHashSet<>();
+        while (names.size() < count) {
+            String name = word(random);
+            if (random.nextBoolean()) {
+                String second = word(random);
+                if (name.length() + second.length() < 20) {
+                    name = name + " " + second;
+                }
+            }
+            names.add(capitalize(name));
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static String title(Random random) {
+        return capitalize(sentence(random, 6 + random.nextInt(6)));
+    }
+
+    private static String content(Random random, int paragraphs) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            content.append("<p>");
+            for (int j = 0, sentences = 3 + random.nextInt(4); j < sentences; j++) {
+                content.append(capitalize(sentence(random, 10 + random.nextInt(15)))).append(". ");
+            }
+            content.append("</p>\n");
+        }
+        return content.toString();
+    }
+
+    /**
+     * Words of the vocabulary, the first ones much more frequent, mixed with
+     * stop words, as in text the analyzer sees
+     */
+    private static String sentence(Random random, int words) {
+        StringJoiner sentence = new StringJoiner(" ");
+        for (int i = 0; i < words; i++) {
+            sentence.add(random.nextInt(3) == 0 ? FILLER[random.nextInt(FILLER.length)] : word(random));
+        }
+        return sentence.toString();
+    }
+
+    private static String word(Random random) {
+        double skewed = random.nextDouble();
+        return WORDS[(int) (skewed * skewed * WORDS.length)];
+    }
+
+    private static String imageUrl(Random random) {
+        byte[] hash = new byte[32];
+        random.nextBytes(hash);
+        String hex = HexFormat.of().formatHex(hash);
+        return "/media/" + hex.substring(0, 2) + "/" + hex.substring(2, 4) + "/" + hex + ".jpg";
+    }
+
+    private static String capitalize(String text) {
+        return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,90 @@
+package net.filippov.newsportal.domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import net.filippov.newsportal.benchmark.Fixtures;
+
+/**
+ * Mapping of loaded data to what views show. Entities become summaries in
+ * JPQL constructor expressions, so the mapping left in the application is
+ * what a list derives from every summary, image variants and cursors, and
+ * the JSON of a comment slice. Rendering of whole pages is measured by
+ * {@code RenderBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int COMMENTS_PAGE_SIZE = 20;
+
+    private ArticleSlice articles;
+    private Article article;
+    private CommentSlice comments;
+
+    /**
+     * Configured as the application's, dates written as ISO-8601 strings
+     */
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        articles = Fixtures.articleSlice(PAGE_SIZE, PAGE_SIZE);
+        article = Fixtures.article(42L);
+        comments = Fixtures.comments(COMMENTS_PAGE_SIZE);
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    /**
+     * Image, srcset and cursors of a page of article cards
+     */
+    @Benchmark
+    public void articleCards(Blackhole blackhole) {
+        for (ArticleSummary summary : articles) {
+            blackhole.consume(summary.getImageUrl(640));
+            blackhole.consume(summary.getImageSrcset());
+        }
+        blackhole.consume(articles.getNextCursor().toString());
+        blackhole.consume(articles.getPreviousCursor().toString());
+    }
+
+    /**
+     * Image and srcset of an article page
+     */
+    @Benchmark
+    public void articleImage(Blackhole blackhole) {
+        blackhole.consume(article.getImageUrl(1280));
+        blackhole.consume(article.getImageSrcset());
+    }
+
+    /**
+     * Comments loaded by the article page as JSON
+     */
+    @Benchmark
+    public String commentsJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(comments);
+    }
+}
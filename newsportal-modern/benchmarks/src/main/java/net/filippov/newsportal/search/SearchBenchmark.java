@@ -0,0 +1,81 @@
+package net.filippov.newsportal.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.filippov.newsportal.benchmark.Fixtures;
+
+/**
+ * Evaluation of search queries on an index laid out as in production:
+ * committed segments mapped from disk and recent articles still buffered in
+ * memory, with the default boosts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final float[] BOOSTS = { 3.0f, 1.5f, 1.0f };
+    private static final int MAX_BUFFERED_DOCS = 1000;
+    private static final int MAX_SEGMENTS = 8;
+    private static final int BUFFERED = 200;
+
+    @Param({ "5000" })
+    int articles;
+
+    /**
+     * A frequent term, two terms, a rare term and a long query
+     */
+    @Param({ "inflation", "java docker", "telescope", "central bank raised interest rates after inflation report" })
+    String query;
+
+    private Path directory;
+    private SegmentedIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("benchmark-search");
+        index = SegmentedIndex.create(directory.resolve("index"), new Analyzer(), BOOSTS, MAX_BUFFERED_DOCS,
+                MAX_SEGMENTS);
+        List<SearchDocument> documents = Fixtures.searchDocuments(articles);
+        documents.subList(0, articles - BUFFERED).forEach(index::add);
+        index.commit();
+        documents.subList(articles - BUFFERED, articles).forEach(index::add);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index = null;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public SearchHits firstPage() {
+        return index.search(query, 0, 10);
+    }
+}
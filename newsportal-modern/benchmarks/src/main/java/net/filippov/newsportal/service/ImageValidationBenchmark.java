@@ -0,0 +1,79 @@
+package net.filippov.newsportal.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import net.filippov.newsportal.benchmark.Fixtures;
+
+/**
+ * Checks of an uploaded image: its declared name, type and size, then its
+ * content, verified and hashed block by block as it is written to the store
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class ImageValidationBenchmark {
+
+    private static final byte[] JPEG_SIGNATURE = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 };
+
+    /**
+     * Size of the upload in KB, a phone photo and one close to the limit
+     */
+    @Param({ "300", "4500" })
+    int kilobytes;
+
+    private byte[] content;
+    private MockMultipartFile file;
+    private Path target;
+
+    @Setup
+    public void setUp() throws IOException {
+        content = new byte[kilobytes * 1024];
+        new Random(Fixtures.SEED).nextBytes(content);
+        System.arraycopy(JPEG_SIGNATURE, 0, content, 0, JPEG_SIGNATURE.length);
+        file = new MockMultipartFile("image", "Photo of the Summit.JPG", "image/jpeg", content);
+        target = Files.createTempFile("benchmark-upload", ".tmp");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public MockMultipartFile validate() {
+        ImageService.validateImage(file);
+        return file;
+    }
+
+    @Benchmark
+    public ImageFormat copy() throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ImageFormat format = ImageService.copy(new ByteArrayInputStream(content), target, digest);
+        digest.digest();
+        return format;
+    }
+}
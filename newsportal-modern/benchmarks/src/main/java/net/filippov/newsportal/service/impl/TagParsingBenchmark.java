@@ -0,0 +1,50 @@
+package net.filippov.newsportal.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.filippov.newsportal.benchmark.Fixtures;
+
+/**
+ * Parsing of the tag string of a submitted article. ArticleServiceImpl hands
+ * it to {@link TagServiceImpl#getTagsFromString(String)}, which splits and
+ * normalizes it before resolving all names in one round-trip
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class TagParsingBenchmark {
+
+    /**
+     * Number of tags, a typical article and a heavily tagged one
+     */
+    @Param({ "5", "30" })
+    int tags;
+
+    private String tagString;
+
+    @Setup
+    public void setUp() {
+        tagString = Fixtures.tagString(tags);
+    }
+
+    @Benchmark
+    public Map<String, String> normalize() {
+        return TagServiceImpl.normalize(tagString);
+    }
+}
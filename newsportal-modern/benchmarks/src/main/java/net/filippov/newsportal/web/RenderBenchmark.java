@@ -0,0 +1,156 @@
+package net.filippov.newsportal.web;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.expression.DefaultWebSecurityExpressionHandler;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.extras.springsecurity6.dialect.SpringSecurityDialect;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import net.filippov.newsportal.benchmark.Fixtures;
+
+/**
+ * Rendering of the home and article pages for a signed-in reader, whose pages
+ * are not served from the page cache. Templates, dialects and view resolution
+ * are set up as Spring Boot sets them up for the application, with template
+ * caching on as in production
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int COMMENTS_PAGE_SIZE = 20;
+    private static final long ARTICLE_ID = 42L;
+
+    private GenericWebApplicationContext context;
+    private MockServletContext servletContext;
+    private View homeView;
+    private View articleView;
+    private Map<String, Object> homeModel;
+    private Map<String, Object> articleModel;
+
+    @Setup
+    public void setUp() throws Exception {
+        servletContext = new MockServletContext();
+        context = new GenericWebApplicationContext(servletContext);
+        // Evaluates sec:authorize and #authorization expressions
+        context.registerBean(DefaultWebSecurityExpressionHandler.class);
+        context.refresh();
+        servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, context);
+
+        SpringResourceTemplateResolver templateResolver = new SpringResourceTemplateResolver();
+        templateResolver.setApplicationContext(context);
+        templateResolver.setPrefix("classpath:/templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setCacheable(true);
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.addDialect(new SpringSecurityDialect());
+        ThymeleafViewResolver viewResolver = new ThymeleafViewResolver();
+        viewResolver.setApplicationContext(context);
+        viewResolver.setTemplateEngine(templateEngine);
+        viewResolver.setCharacterEncoding("UTF-8");
+        viewResolver.setProducePartialOutputWhileProcessing(true);
+        homeView = viewResolver.resolveViewName("home", Locale.ENGLISH);
+        articleView = viewResolver.resolveViewName("article", Locale.ENGLISH);
+
+        // Benchmark threads are not the one running the setup
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                "reader", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+        homeModel = new HashMap<>();
+        homeModel.put("categories", Fixtures.categories());
+        homeModel.put("tags", Fixtures.tagNames(30));
+        homeModel.put("topViewedArticles", Fixtures.summaries(0, 5));
+        homeModel.put("articles", Fixtures.articleSlice(0, PAGE_SIZE));
+
+        articleModel = new HashMap<>();
+        articleModel.put("article", Fixtures.article(ARTICLE_ID));
+        articleModel.put("articleId", ARTICLE_ID);
+        articleModel.put("categories", Fixtures.categories());
+        articleModel.put("tags", Fixtures.tagNames(30));
+        articleModel.put("relatedArticles", Fixtures.summaries(20, 5));
+        articleModel.put("similarArticles", Fixtures.summaries(40, 5));
+        articleModel.put("comments", Fixtures.comments(COMMENTS_PAGE_SIZE));
+
+        // Fail early rather than measure an error page
+        check(home(), Fixtures.articleSlice(0, PAGE_SIZE).getContent().get(0).getTitle());
+        check(article(), Fixtures.article(ARTICLE_ID).getTitle());
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Benchmark
+    public String home() throws Exception {
+        return render(homeView, homeModel, "/");
+    }
+
+    @Benchmark
+    public String article() throws Exception {
+        return render(articleView, articleModel, "/article/" + ARTICLE_ID);
+    }
+
+    private String render(View view, Map<String, Object> model, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", path);
+        StringWriter page = new StringWriter(64 * 1024);
+        PrintWriter writer = new PrintWriter(page);
+        // The writer of the mock response flushes on every write, unlike the buffered one of the container
+        HttpServletResponse response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public PrintWriter getWriter() {
+                return writer;
+            }
+        };
+        view.render(model, request, response);
+        writer.flush();
+        return page.toString();
+    }
+
+    private static void check(String page, String expected) {
+        if (!page.contains(expected)) {
+            throw new IllegalStateException("Rendered page lacks \"" + expected + "\": " + page);
+        }
+    }
+}
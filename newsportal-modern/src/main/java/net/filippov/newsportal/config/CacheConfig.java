@@ -0,0 +1,18 @@
+package net.filippov.newsportal.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application caches. The cache manager is Caffeine, configured by
+ * {@code spring.cache.*} properties: every cache is bounded in size and
+ * expires entries after write, and records statistics that are published
+ * as {@code cache.gets} hit/miss metrics
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String SIDEBAR_CATEGORIES = "sidebarCategories";
+    public static final String SIDEBAR_TAGS = "sidebarTags";
+}
@@ -0,0 +1,32 @@
+package net.filippov.newsportal.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.filippov.newsportal.web.HandlerObservationConvention;
+
+/**
+ * Metrics beyond those Spring Boot binds by itself (JVM, connection pool,
+ * Hibernate statistics, caches and Spring Data repository invocations):
+ * a {@code newsportal.service} timer on every method of the services
+ * annotated with {@link Timed}, and the controller method handling each
+ * request as a tag of {@code http.server.requests}. Percentiles and
+ * histograms are configured by {@code management.metrics.distribution.*}
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public ServerRequestObservationConvention serverRequestObservationConvention() {
+        return new HandlerObservationConvention();
+    }
+}
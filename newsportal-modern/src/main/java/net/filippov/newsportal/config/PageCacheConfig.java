@@ -0,0 +1,30 @@
+package net.filippov.newsportal.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.filippov.newsportal.service.ViewCounter;
+import net.filippov.newsportal.trending.UniqueReaders;
+import net.filippov.newsportal.web.cache.PageCache;
+import net.filippov.newsportal.web.cache.PageCacheFilter;
+
+/**
+ * Registers the page cache filter right after the Spring Security filter
+ * chain, unless {@code newsportal.page-cache.enabled} is {@code false}
+ */
+@Configuration
+@ConditionalOnProperty(name = "newsportal.page-cache.enabled", matchIfMissing = true)
+public class PageCacheConfig {
+
+    @Bean
+    public FilterRegistrationBean<PageCacheFilter> pageCacheFilter(PageCache pageCache, ViewCounter viewCounter,
+            UniqueReaders uniqueReaders) {
+        FilterRegistrationBean<PageCacheFilter> registration = new FilterRegistrationBean<>(
+                new PageCacheFilter(pageCache, viewCounter, uniqueReaders));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,50 @@
+package net.filippov.newsportal.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.filippov.newsportal.sql.CountingDataSource;
+import net.filippov.newsportal.web.QueryBudgetFilter;
+
+/**
+ * Counts the SQL statements of every request: wraps the data source in a
+ * {@link CountingDataSource} and registers the {@link QueryBudgetFilter}
+ * right inside the request observation filter, so it sees the route of
+ * every request, unless {@code newsportal.query-budget.enabled} is
+ * {@code false}
+ */
+@Configuration
+@ConditionalOnProperty(name = "newsportal.query-budget.enabled", matchIfMissing = true)
+public class QueryBudgetConfig {
+
+    @Bean
+    public static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+                        ? new CountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(MeterRegistry meterRegistry,
+            @Value("${newsportal.query-budget.max-statements:20}") int maxStatements,
+            @Value("${newsportal.query-budget.repeated-threshold:5}") int repeatedThreshold,
+            @Value("${newsportal.query-budget.enforce:false}") boolean enforce) {
+        FilterRegistrationBean<QueryBudgetFilter> registration = new FilterRegistrationBean<>(
+                new QueryBudgetFilter(meterRegistry, maxStatements, repeatedThreshold, enforce));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
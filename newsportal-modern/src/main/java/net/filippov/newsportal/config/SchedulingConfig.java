@@ -0,0 +1,12 @@
+package net.filippov.newsportal.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} maintenance jobs, such as counter reconciliation
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -2,6 +2,7 @@ package net.filippov.newsportal.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -18,12 +19,16 @@ public class SecurityConfig {
         public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
                 http
                                 .authorizeHttpRequests(auth -> auth
+                                                .requestMatchers("/actuator/metrics/**", "/actuator/prometheus")
+                                                .hasRole("ADMIN")
                                                 .anyRequest().permitAll()) // Temporarily permit all to avoid redirect
                                                                            // loop
                                 .formLogin(form -> form
                                                 .loginPage("/login")
                                                 .defaultSuccessUrl("/")
                                                 .permitAll())
+                                // Scrapers of /actuator/prometheus cannot log in through the form
+                                .httpBasic(Customizer.withDefaults())
                                 .logout(logout -> logout
                                                 .logoutSuccessUrl("/")
                                                 .permitAll())
@@ -3,10 +3,12 @@ package net.filippov.newsportal.domain;
 import java.util.Date;
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -18,7 +20,9 @@ import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
 import jakarta.validation.constraints.NotBlank;
 
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents an article with String content
@@ -26,7 +30,13 @@ import org.hibernate.annotations.Formula;
  * @author Oleg Filippov
  */
 @Entity
-@Table(name = "article")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "article", indexes = {
+        @Index(name = "idx_article_created_id", columnList = "created, id"),
+        @Index(name = "idx_article_category_created_id", columnList = "category_id, created, id"),
+        @Index(name = "idx_article_user_created_id", columnList = "user_id, created, id"),
+        @Index(name = "idx_article_image_url", columnList = "image_url") })
 public class Article extends BaseEntity {
 
     private static final long serialVersionUID = 38150497082508411L;
@@ -67,9 +77,9 @@ public class Article extends BaseEntity {
     private Date lastModified;
 
     /**
-     * Article view count
+     * Article view count, only incremented in the database by the view counter
      */
-    @Column(name = "view_count", insertable = false, columnDefinition = "INT DEFAULT 0")
+    @Column(name = "view_count", insertable = false, updatable = false, columnDefinition = "INT DEFAULT 0")
     private int viewCount;
 
     /**
@@ -79,9 +89,16 @@ public class Article extends BaseEntity {
     private String imageUrl;
 
     /**
-     * Article comment count
+     * Widths of resized copies of the image, see {@link ImageVariants}
      */
-    @Formula("(SELECT COUNT(c.id) FROM Comment c WHERE c.article_id = id)")
+    @Column(name = "image_variants", length = 64)
+    private String imageVariants;
+
+    /**
+     * Article comment count, maintained by the service layer
+     */
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
     private int commentCount;
 
     /**
@@ -101,7 +118,7 @@ public class Article extends BaseEntity {
     /**
      * Comments to this article
      */
-    @OneToMany(mappedBy = "article", fetch = FetchType.EAGER, cascade = CascadeType.REMOVE)
+    @OneToMany(mappedBy = "article", fetch = FetchType.LAZY, cascade = CascadeType.REMOVE)
     @OrderBy("created desc")
     private Set<Comment> comments;
 
@@ -112,6 +129,7 @@ public class Article extends BaseEntity {
     @JoinTable(name = "article_tag", joinColumns = { @JoinColumn(name = "article_id") }, inverseJoinColumns = {
             @JoinColumn(name = "tag_id") })
     @OrderBy("name")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<Tag> tags;
 
     /**
@@ -276,6 +294,35 @@ public class Article extends BaseEntity {
         this.imageUrl = imageUrl;
     }
 
+    /**
+     * @return widths of resized copies of the image, null until they are made
+     */
+    public String getImageVariants() {
+        return imageVariants;
+    }
+
+    /**
+     * @param imageVariants widths of resized copies of the image to set
+     */
+    public void setImageVariants(String imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
+    /**
+     * @param minWidth minimum width needed
+     * @return URL of the smallest copy of the image that is wide enough
+     */
+    public String getImageUrl(int minWidth) {
+        return ImageVariants.smallest(imageUrl, imageVariants, minWidth);
+    }
+
+    /**
+     * @return srcset of the resized copies of the image, null if there are none
+     */
+    public String getImageSrcset() {
+        return ImageVariants.srcset(imageUrl, imageVariants);
+    }
+
     /**
      * @see java.lang.Object#hashCode()
      */
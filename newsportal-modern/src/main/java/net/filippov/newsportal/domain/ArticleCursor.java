@@ -0,0 +1,104 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Position in an article list ordered by {@code created DESC, id DESC}.
+ * Used for keyset pagination: the next slice is fetched relative to the
+ * (created, id) pair of the last shown article instead of an offset, so
+ * every slice costs the same no matter how deep it is.
+ * <p>
+ * Cursors are passed in URLs as {@code a<millis>.<id>} (articles older than
+ * the position) or {@code b<millis>.<id>} (articles newer than the position)
+ *
+ * @author Oleg Filippov
+ */
+public class ArticleCursor implements Serializable {
+
+    private static final long serialVersionUID = 5121630924451893127L;
+
+    private final Date created;
+    private final Long id;
+    private final boolean backward;
+
+    /**
+     * @param created creation date of the article at the position
+     * @param id id of the article at the position
+     * @param backward true to fetch articles newer than the position
+     */
+    public ArticleCursor(Date created, Long id, boolean backward) {
+        this.created = created;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    /**
+     * @param article article at the position
+     * @return cursor pointing to articles older than given one
+     */
+    public static ArticleCursor after(ArticleSummary article) {
+        return new ArticleCursor(article.getCreated(), article.getId(), false);
+    }
+
+    /**
+     * @param article article at the position
+     * @return cursor pointing to articles newer than given one
+     */
+    public static ArticleCursor before(ArticleSummary article) {
+        return new ArticleCursor(article.getCreated(), article.getId(), true);
+    }
+
+    /**
+     * Parse cursor from its URL form
+     *
+     * @param value cursor string, may be null
+     * @return parsed cursor or null if value is absent or malformed
+     */
+    public static ArticleCursor parse(String value) {
+        if (value == null || value.length() < 4) {
+            return null;
+        }
+        char direction = value.charAt(0);
+        int separator = value.indexOf('.');
+        if ((direction != 'a' && direction != 'b') || separator < 2) {
+            return null;
+        }
+        try {
+            long millis = Long.parseLong(value.substring(1, separator));
+            long id = Long.parseLong(value.substring(separator + 1));
+            return new ArticleCursor(new Date(millis), id, direction == 'b');
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return creation date of the article at the position
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return id of the article at the position
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return true if cursor points to articles newer than the position
+     */
+    public boolean isBackward() {
+        return backward;
+    }
+
+    /**
+     * @return URL form of this cursor
+     */
+    @Override
+    public String toString() {
+        return (backward ? "b" : "a") + created.getTime() + "." + id;
+    }
+}
@@ -0,0 +1,96 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Distinct readers of an article, stored as a serialized HyperLogLog sketch
+ * along with its estimate. Sketches of all nodes are merged into the same row
+ *
+ * @author Oleg Filippov
+ */
+@Entity
+@Table(name = "article_readers")
+public class ArticleReaders implements Serializable {
+
+    private static final long serialVersionUID = -6218863013271446630L;
+
+    /**
+     * Id of the article
+     */
+    @Id
+    @Column(name = "article_id", nullable = false, updatable = false)
+    private Long articleId;
+
+    /**
+     * Serialized sketch, at most 3 KB
+     */
+    @Column(name = "sketch", nullable = false, length = 4096)
+    private byte[] sketch;
+
+    /**
+     * Estimated number of distinct readers
+     */
+    @Column(name = "reader_count", nullable = false)
+    private long readerCount;
+
+    /**
+     * Default constructor
+     */
+    public ArticleReaders() {
+    }
+
+    /**
+     * @param articleId id of the article
+     */
+    public ArticleReaders(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    /**
+     * @return id of the article
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * @return serialized sketch, null for a new row
+     */
+    public byte[] getSketch() {
+        return sketch;
+    }
+
+    /**
+     * @param sketch serialized sketch
+     */
+    public void setSketch(byte[] sketch) {
+        this.sketch = sketch;
+    }
+
+    /**
+     * @return estimated number of distinct readers
+     */
+    public long getReaderCount() {
+        return readerCount;
+    }
+
+    /**
+     * @param readerCount estimated number of distinct readers
+     */
+    public void setReaderCount(long readerCount) {
+        this.readerCount = readerCount;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ArticleReaders[articleId=%d, readerCount=%d]", getArticleId(), getReaderCount());
+    }
+}
@@ -0,0 +1,130 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+/**
+ * MinHash signature of the title and content of an article, used to find
+ * near-duplicate and similar articles. Signatures of another version are
+ * computed again
+ *
+ * @author Oleg Filippov
+ */
+@Entity
+@Table(name = "article_signature")
+public class ArticleSignature implements Persistable<Long>, Serializable {
+
+    private static final long serialVersionUID = 3958120462719183301L;
+
+    /**
+     * Id of the article
+     */
+    @Id
+    @Column(name = "article_id", nullable = false, updatable = false)
+    private Long articleId;
+
+    /**
+     * Version of the signature computation
+     */
+    @Column(name = "signature_version", nullable = false)
+    private int version;
+
+    /**
+     * Serialized signature, 512 bytes
+     */
+    @Column(name = "signature", nullable = false, length = 512)
+    private byte[] signature;
+
+    /**
+     * Whether the row is still to be inserted, so that saving it needs no select
+     */
+    @Transient
+    private boolean isNew = true;
+
+    /**
+     * Default constructor
+     */
+    public ArticleSignature() {
+    }
+
+    /**
+     * @param articleId id of the article
+     */
+    public ArticleSignature(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    /**
+     * @return id of the article
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * @return version of the signature computation
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version version of the signature computation
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * @return serialized signature
+     */
+    public byte[] getSignature() {
+        return signature;
+    }
+
+    /**
+     * @param signature serialized signature
+     */
+    public void setSignature(byte[] signature) {
+        this.signature = signature;
+    }
+
+    /**
+     * @see org.springframework.data.domain.Persistable#getId()
+     */
+    @Override
+    public Long getId() {
+        return articleId;
+    }
+
+    /**
+     * @see org.springframework.data.domain.Persistable#isNew()
+     */
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ArticleSignature[articleId=%d, version=%d]", getArticleId(), getVersion());
+    }
+}
@@ -0,0 +1,89 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Slice of an article list fetched with an {@link ArticleCursor}.
+ * Unlike a page it has no total count, only cursors to its neighbours
+ *
+ * @author Oleg Filippov
+ */
+public class ArticleSlice implements Iterable<ArticleSummary>, Serializable {
+
+    private static final long serialVersionUID = -6384029317251664802L;
+
+    private final List<ArticleSummary> content;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+
+    /**
+     * @param content articles of this slice ordered by creation date descending
+     * @param hasNext true if there are older articles
+     * @param hasPrevious true if there are newer articles
+     */
+    public ArticleSlice(List<ArticleSummary> content, boolean hasNext, boolean hasPrevious) {
+        this.content = Collections.unmodifiableList(content);
+        this.hasNext = hasNext && !content.isEmpty();
+        this.hasPrevious = hasPrevious && !content.isEmpty();
+    }
+
+    /**
+     * @return articles of this slice
+     */
+    public List<ArticleSummary> getContent() {
+        return content;
+    }
+
+    /**
+     * @return true if slice has articles
+     */
+    public boolean hasContent() {
+        return !content.isEmpty();
+    }
+
+    /**
+     * @return true if slice has no articles
+     */
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    /**
+     * @return true if there are older articles
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * @return true if there are newer articles
+     */
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+
+    /**
+     * @return cursor to the slice of older articles, null if there is none
+     */
+    public ArticleCursor getNextCursor() {
+        return hasNext ? ArticleCursor.after(content.get(content.size() - 1)) : null;
+    }
+
+    /**
+     * @return cursor to the slice of newer articles, null if there is none
+     */
+    public ArticleCursor getPreviousCursor() {
+        return hasPrevious ? ArticleCursor.before(content.get(0)) : null;
+    }
+
+    /**
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<ArticleSummary> iterator() {
+        return content.iterator();
+    }
+}
@@ -0,0 +1,137 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Read-only summary of {@link Article} used by article lists.
+ * Holds only the fields rendered on an article card, so list queries
+ * don't load content, comments or tags
+ *
+ * @author Oleg Filippov
+ */
+public class ArticleSummary implements Serializable {
+
+    private static final long serialVersionUID = -2307532871412907412L;
+
+    private final Long id;
+    private final String title;
+    private final String preview;
+    private final String imageUrl;
+    private final String imageVariants;
+    private final Date created;
+    private final int viewCount;
+    private final String authorLogin;
+    private final String categoryName;
+    private final int commentCount;
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public ArticleSummary(Long id, String title, String preview, String imageUrl, String imageVariants,
+            Date created, int viewCount, String authorLogin, String categoryName, int commentCount) {
+        this.id = id;
+        this.title = title;
+        this.preview = preview;
+        this.imageUrl = imageUrl;
+        this.imageVariants = imageVariants;
+        this.created = created;
+        this.viewCount = viewCount;
+        this.authorLogin = authorLogin;
+        this.categoryName = categoryName;
+        this.commentCount = commentCount;
+    }
+
+    /**
+     * @return article id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return article title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return article preview
+     */
+    public String getPreview() {
+        return preview;
+    }
+
+    /**
+     * @return image URL/path of the article
+     */
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    /**
+     * @return widths of resized copies of the image, null if there are none
+     */
+    public String getImageVariants() {
+        return imageVariants;
+    }
+
+    /**
+     * @param minWidth minimum width needed
+     * @return URL of the smallest copy of the image that is wide enough
+     */
+    public String getImageUrl(int minWidth) {
+        return ImageVariants.smallest(imageUrl, imageVariants, minWidth);
+    }
+
+    /**
+     * @return srcset of the resized copies of the image, null if there are none
+     */
+    public String getImageSrcset() {
+        return ImageVariants.srcset(imageUrl, imageVariants);
+    }
+
+    /**
+     * @return article date and time of creation
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return article view count
+     */
+    public int getViewCount() {
+        return viewCount;
+    }
+
+    /**
+     * @return login of the article author
+     */
+    public String getAuthorLogin() {
+        return authorLogin;
+    }
+
+    /**
+     * @return name of the article category, null if article has no category
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    /**
+     * @return article comment count
+     */
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ArticleSummary[id=%d, author=%s]", getId(), getAuthorLogin());
+    }
+}
@@ -2,13 +2,16 @@ package net.filippov.newsportal.domain;
 
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents category of article
@@ -16,6 +19,8 @@ import org.hibernate.annotations.Formula;
  * @author Oleg Filippov
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "category")
 public class Category extends BaseEntity {
 
@@ -28,9 +33,10 @@ public class Category extends BaseEntity {
     private String name;
 
     /**
-     * Article count having this category
+     * Article count having this category, maintained by the service layer
      */
-    @Formula("( SELECT COUNT(a.id) FROM Article a WHERE a.category_id = id )")
+    @Column(name = "article_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
     private int articleCount;
 
     /**
@@ -0,0 +1,56 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+
+/**
+ * Read-only view of {@link Category} with its article count, as shown in the
+ * sidebar
+ *
+ * @author Oleg Filippov
+ */
+public class CategorySummary implements Serializable {
+
+    private static final long serialVersionUID = 5148094418306117427L;
+
+    private final Long id;
+    private final String name;
+    private final int articleCount;
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public CategorySummary(Long id, String name, int articleCount) {
+        this.id = id;
+        this.name = name;
+        this.articleCount = articleCount;
+    }
+
+    /**
+     * @return category id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return category name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of articles in this category
+     */
+    public int getArticleCount() {
+        return articleCount;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("CategorySummary[id=%d, name=%s]", getId(), getName());
+    }
+}
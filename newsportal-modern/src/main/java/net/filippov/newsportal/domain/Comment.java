@@ -4,6 +4,7 @@ import java.util.Date;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -17,7 +18,8 @@ import jakarta.validation.constraints.NotBlank;
  * @author Oleg Filippov
  */
 @Entity
-@Table(name = "comment")
+@Table(name = "comment", indexes = {
+        @Index(name = "idx_comment_article_created_id", columnList = "article_id, created, id") })
 public class Comment extends BaseEntity {
 
     private static final long serialVersionUID = -4252140027137381170L;
@@ -0,0 +1,86 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Position in the comments of an article, ordered by {@code created DESC, id DESC}.
+ * The next slice holds comments older than the position, so loading more
+ * comments costs the same however many have been shown.
+ * <p>
+ * Cursors are passed in URLs as {@code <millis>.<id>}
+ *
+ * @author Oleg Filippov
+ */
+public class CommentCursor implements Serializable {
+
+    private static final long serialVersionUID = -1728394610482570932L;
+
+    private final Date created;
+    private final Long id;
+
+    /**
+     * @param created creation date of the comment at the position
+     * @param id id of the comment at the position
+     */
+    public CommentCursor(Date created, Long id) {
+        this.created = created;
+        this.id = id;
+    }
+
+    /**
+     * @param comment comment at the position
+     * @return cursor pointing to comments older than given one
+     */
+    public static CommentCursor after(CommentSummary comment) {
+        return new CommentCursor(comment.getCreated(), comment.getId());
+    }
+
+    /**
+     * Parse cursor from its URL form
+     *
+     * @param value cursor string, may be null
+     * @return parsed cursor or null if value is absent or malformed
+     */
+    public static CommentCursor parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf('.');
+        if (separator < 1) {
+            return null;
+        }
+        try {
+            long millis = Long.parseLong(value.substring(0, separator));
+            long id = Long.parseLong(value.substring(separator + 1));
+            return new CommentCursor(new Date(millis), id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return creation date of the comment at the position
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return id of the comment at the position
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return URL form of this cursor
+     */
+    @Override
+    @JsonValue
+    public String toString() {
+        return created.getTime() + "." + id;
+    }
+}
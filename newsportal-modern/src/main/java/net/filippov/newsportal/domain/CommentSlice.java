@@ -0,0 +1,51 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Slice of the comments of an article fetched with a {@link CommentCursor}
+ *
+ * @author Oleg Filippov
+ */
+public class CommentSlice implements Serializable {
+
+    private static final long serialVersionUID = 8512290335871046153L;
+
+    private final List<CommentSummary> content;
+    private final boolean hasNext;
+
+    /**
+     * @param content comments of this slice ordered by creation date descending
+     * @param hasNext true if there are older comments
+     */
+    public CommentSlice(List<CommentSummary> content, boolean hasNext) {
+        this.content = Collections.unmodifiableList(content);
+        this.hasNext = hasNext && !content.isEmpty();
+    }
+
+    /**
+     * @return comments of this slice
+     */
+    public List<CommentSummary> getContent() {
+        return content;
+    }
+
+    /**
+     * @return true if there are older comments
+     */
+    @JsonProperty("hasNext")
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * @return cursor to the slice of older comments, null if there is none
+     */
+    public CommentCursor getNextCursor() {
+        return hasNext ? CommentCursor.after(content.get(content.size() - 1)) : null;
+    }
+}
@@ -0,0 +1,66 @@
+package net.filippov.newsportal.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Read-only view of {@link Comment} as shown under an article, without the
+ * commented article itself
+ *
+ * @author Oleg Filippov
+ */
+public class CommentSummary implements Serializable {
+
+    private static final long serialVersionUID = 3860174217523098421L;
+
+    private final Long id;
+    private final String content;
+    private final Date created;
+    private final String authorLogin;
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public CommentSummary(Long id, String content, Date created, String authorLogin) {
+        this.id = id;
+        this.content = content;
+        this.created = created;
+        this.authorLogin = authorLogin;
+    }
+
+    /**
+     * @return comment id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return comment content
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return creation date and time
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return login of the comment author, null if the author is unknown
+     */
+    public String getAuthorLogin() {
+        return authorLogin;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("CommentSummary[id=%d, author=%s]", getId(), getAuthorLogin());
+    }
+}
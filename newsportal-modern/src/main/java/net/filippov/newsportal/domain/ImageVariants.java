@@ -0,0 +1,90 @@
+package net.filippov.newsportal.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Resized copies of an article image. A variant is stored next to the original
+ * with its width appended to the name, {@code photo.jpg} has variants such as
+ * {@code photo-320w.jpg}. Available widths are recorded as a comma-separated
+ * list in ascending order.
+ *
+ * @author Oleg Filippov
+ */
+public final class ImageVariants {
+
+    private ImageVariants() {
+    }
+
+    /**
+     * @param imageUrl URL of the original image
+     * @param width width of the variant
+     * @return URL of the variant
+     */
+    public static String url(String imageUrl, int width) {
+        int slash = imageUrl.lastIndexOf('/');
+        int dot = imageUrl.lastIndexOf('.');
+        if (dot <= slash) {
+            return imageUrl + "-" + width + "w";
+        }
+        return imageUrl.substring(0, dot) + "-" + width + "w" + imageUrl.substring(dot);
+    }
+
+    /**
+     * @param widths recorded widths, may be {@code null}
+     * @return widths in ascending order, empty if there are no variants
+     */
+    public static List<Integer> widths(String widths) {
+        List<Integer> result = new ArrayList<>();
+        if (widths == null || widths.isEmpty()) {
+            return result;
+        }
+        for (String width : widths.split(",")) {
+            result.add(Integer.valueOf(width.trim()));
+        }
+        return result;
+    }
+
+    /**
+     * @param widths widths in ascending order
+     * @return recorded form of widths, {@code null} if there are none
+     */
+    public static String join(List<Integer> widths) {
+        if (widths.isEmpty()) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        widths.forEach(width -> joiner.add(String.valueOf(width)));
+        return joiner.toString();
+    }
+
+    /**
+     * Smallest variant at least {@code minWidth} wide, the original if there
+     * is none
+     */
+    public static String smallest(String imageUrl, String widths, int minWidth) {
+        if (imageUrl == null) {
+            return null;
+        }
+        for (int width : widths(widths)) {
+            if (width >= minWidth) {
+                return url(imageUrl, width);
+            }
+        }
+        return imageUrl;
+    }
+
+    /**
+     * @return value of the {@code srcset} attribute, {@code null} if there are
+     *         no variants
+     */
+    public static String srcset(String imageUrl, String widths) {
+        if (imageUrl == null || widths == null) {
+            return null;
+        }
+        StringJoiner srcset = new StringJoiner(", ");
+        widths(widths).forEach(width -> srcset.add(url(imageUrl, width) + " " + width + "w"));
+        return srcset.toString();
+    }
+}
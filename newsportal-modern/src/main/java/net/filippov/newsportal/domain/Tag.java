@@ -2,13 +2,16 @@ package net.filippov.newsportal.domain;
 
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents tag of article
@@ -16,6 +19,8 @@ import org.hibernate.annotations.Formula;
  * @author Oleg Filippov
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "tag")
 public class Tag extends BaseEntity {
 
@@ -28,11 +33,10 @@ public class Tag extends BaseEntity {
     private String name;
 
     /**
-     * Article count tagged with this tag
+     * Article count tagged with this tag, maintained by the service layer
      */
-    @Formula("(SELECT COUNT(a.id) FROM article_tag at "
-            + "JOIN Article a ON at.article_id = a.id "
-            + "JOIN Tag t ON at.tag_id = t.id WHERE t.id = id)")
+    @Column(name = "article_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
     private int articleCount;
 
     /**
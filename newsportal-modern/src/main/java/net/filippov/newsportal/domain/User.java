@@ -3,6 +3,7 @@ package net.filippov.newsportal.domain;
 import java.util.Date;
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -18,7 +19,9 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Stores information about user
@@ -26,6 +29,8 @@ import org.hibernate.annotations.Formula;
  * @author Oleg Filippov
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "user")
 public class User extends BaseEntity {
 
@@ -80,15 +85,17 @@ public class User extends BaseEntity {
     private boolean enabled;
 
     /**
-     * Article count of this user
+     * Article count of this user, maintained by the service layer
      */
-    @Formula("(SELECT COUNT(a.id) FROM Article a WHERE a.user_id = id)")
+    @Column(name = "article_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
     private int articleCount;
 
     /**
-     * Comment count of this user
+     * Comment count of this user, maintained by the service layer
      */
-    @Formula("(SELECT COUNT(c.id) FROM Comment c WHERE c.user_id = id)")
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
     private int commentCount;
 
     /**
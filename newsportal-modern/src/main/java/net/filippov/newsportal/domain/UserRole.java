@@ -2,12 +2,15 @@ package net.filippov.newsportal.domain;
 
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 
 /**
@@ -17,6 +20,8 @@ import org.springframework.security.core.GrantedAuthority;
  * @author Oleg Filippov
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "role")
 public class UserRole extends BaseEntity implements GrantedAuthority {
 
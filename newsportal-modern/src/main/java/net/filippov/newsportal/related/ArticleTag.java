@@ -0,0 +1,34 @@
+package net.filippov.newsportal.related;
+
+/**
+ * Tag of an article as read from the database
+ *
+ * @author Oleg Filippov
+ */
+public class ArticleTag {
+
+    private final Long articleId;
+    private final String tagName;
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public ArticleTag(Long articleId, String tagName) {
+        this.articleId = articleId;
+        this.tagName = tagName;
+    }
+
+    /**
+     * @return article id
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * @return tag name
+     */
+    public String getTagName() {
+        return tagName;
+    }
+}
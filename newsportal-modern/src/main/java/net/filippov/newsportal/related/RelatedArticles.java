@@ -0,0 +1,212 @@
+package net.filippov.newsportal.related;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.repository.ArticleRepository;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.trending.ArticleActivity;
+
+/**
+ * Articles related to each article by shared tags, category and recency, see
+ * {@link TagIndex}. The index holds the tags of all articles; it is loaded in
+ * the background on startup and kept up to date from
+ * {@link ArticleChangedEvent}s after their transactions commit. Until it is
+ * loaded no related articles are returned.
+ * <p>
+ * Summaries of the related articles are cached per article, bounded by
+ * {@code newsportal.related.cache-size}, so showing them is a cache lookup.
+ * A change to an article drops the cached lists of every article sharing one
+ * of its previous or current tags, the only ones it can appear in; lists
+ * also expire after {@code newsportal.related.ttl-minutes}, as ages move on
+ */
+@Component
+public class RelatedArticles {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RelatedArticles.class);
+
+    private final ArticleRepository articleRepository;
+    private final TagIndex index;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Cache<Long, List<ArticleSummary>> cache;
+    private final int size;
+    private final int batchSize;
+
+    private ExecutorService loader;
+    private volatile boolean ready;
+
+    // Articles changed while the index is loading, read again once it is loaded
+    private final Set<Long> changedDuringLoad = ConcurrentHashMap.newKeySet();
+
+    public RelatedArticles(ArticleRepository articleRepository, MeterRegistry meterRegistry,
+            @Value("${newsportal.related.size:5}") int size,
+            @Value("${newsportal.related.max-tag-articles:1000}") int maxTagArticles,
+            @Value("${newsportal.related.category-weight:1.0}") double categoryWeight,
+            @Value("${newsportal.related.recency-weight:0.5}") double recencyWeight,
+            @Value("${newsportal.related.recency-half-life-days:30}") long recencyHalfLifeDays,
+            @Value("${newsportal.related.cache-size:10000}") long cacheSize,
+            @Value("${newsportal.related.ttl-minutes:60}") long ttlMinutes,
+            @Value("${newsportal.related.load-batch-size:1000}") int batchSize) {
+        this.articleRepository = articleRepository;
+        this.index = new TagIndex(maxTagArticles, categoryWeight, recencyWeight,
+                TimeUnit.DAYS.toMillis(recencyHalfLifeDays));
+        this.size = size;
+        this.batchSize = batchSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "relatedArticles");
+    }
+
+    /**
+     * @param articleId id of article
+     * @return summaries of related articles, best first
+     */
+    public List<ArticleSummary> get(Long articleId) {
+        if (!ready) {
+            return List.of();
+        }
+        return cache.get(articleId, this::load);
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        if (!ready) {
+            changedDuringLoad.add(event.getArticleId());
+        }
+        refresh(event.getArticleId(), event.getType() == ArticleChangedEvent.Type.DELETED);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "related-articles-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.execute(this::loadIndex);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    private void loadIndex() {
+        long started = System.currentTimeMillis();
+        try {
+            Long afterId = 0L;
+            List<ArticleActivity> batch;
+            do {
+                batch = articleRepository.findActivities(afterId, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Map<Long, List<String>> tags = tagsOf(batch.stream().map(ArticleActivity::getId).toList());
+                lock.writeLock().lock();
+                try {
+                    for (ArticleActivity article : batch) {
+                        index.put(article.getId(), article.getCategoryName(), article.getCreated().getTime(),
+                                tags.getOrDefault(article.getId(), List.of()));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            } while (batch.size() == batchSize);
+            ready = true;
+            for (Long id : new ArrayList<>(changedDuringLoad)) {
+                refresh(id, false);
+            }
+            changedDuringLoad.clear();
+            LOG.info("Related articles index of {} articles loaded in {} ms", index.size(),
+                    System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            LOG.error("Failed to load related articles index", e);
+        }
+    }
+
+    /**
+     * Read the article again, or drop it, and invalidate the cached lists it may affect
+     */
+    private void refresh(Long articleId, boolean deleted) {
+        Optional<ArticleActivity> article = deleted ? Optional.empty() : articleRepository.findActivity(articleId);
+        List<String> tags = article.isPresent() ? tagsOf(List.of(articleId)).getOrDefault(articleId, List.of())
+                : List.of();
+        Set<Long> affected;
+        lock.writeLock().lock();
+        try {
+            affected = article.isPresent()
+                    ? index.put(articleId, article.get().getCategoryName(), article.get().getCreated().getTime(), tags)
+                    : index.remove(articleId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // After the index changed, so lists being computed from the old state are dropped as well
+        cache.invalidateAll(affected);
+    }
+
+    private List<ArticleSummary> load(Long articleId) {
+        List<Long> ids;
+        lock.readLock().lock();
+        try {
+            ids = index.related(articleId, size, System.currentTimeMillis());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ArticleSummary> summaries = new HashMap<>();
+        articleRepository.findSummariesByIdIn(ids).forEach(summary -> summaries.put(summary.getId(), summary));
+        List<ArticleSummary> related = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ArticleSummary summary = summaries.get(id);
+            if (summary != null) {
+                related.add(summary);
+            }
+        }
+        return List.copyOf(related);
+    }
+
+    private Map<Long, List<String>> tagsOf(Collection<Long> articleIds) {
+        Map<Long, List<String>> tags = new HashMap<>();
+        for (ArticleTag tag : articleRepository.findTagsByArticleIdIn(new HashSet<>(articleIds))) {
+            tags.computeIfAbsent(tag.getArticleId(), id -> new ArrayList<>()).add(tag.getTagName());
+        }
+        return tags;
+    }
+}
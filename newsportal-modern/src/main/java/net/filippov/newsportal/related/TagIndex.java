@@ -0,0 +1,161 @@
+package net.filippov.newsportal.related;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Bipartite index of articles and their tags, ranking the articles related to
+ * a given one. A candidate must share at least one tag; its score is the sum
+ * of the inverse document frequencies of the shared tags, so rare tags count
+ * more, plus {@code categoryWeight} if it is in the same category and
+ * {@code recencyWeight} halved for every {@code recencyHalfLifeMs} of its age.
+ * Tags on more than {@code maxTagArticles} articles say little about
+ * relatedness and are not used to find candidates.
+ * <p>
+ * Not thread-safe; the owner serializes changes with lookups
+ *
+ * @author Oleg Filippov
+ */
+public class TagIndex {
+
+    private static final Comparator<Map.Entry<Long, Double>> RANKING =
+            Map.Entry.<Long, Double> comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    private final int maxTagArticles;
+    private final double categoryWeight;
+    private final double recencyWeight;
+    private final long recencyHalfLifeMs;
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    /**
+     * @param maxTagArticles tags on more articles are not used to find candidates
+     * @param categoryWeight score added for a shared category
+     * @param recencyWeight score added for a brand new candidate
+     * @param recencyHalfLifeMs age at which the recency score halves
+     */
+    public TagIndex(int maxTagArticles, double categoryWeight, double recencyWeight, long recencyHalfLifeMs) {
+        this.maxTagArticles = maxTagArticles;
+        this.categoryWeight = categoryWeight;
+        this.recencyWeight = recencyWeight;
+        this.recencyHalfLifeMs = recencyHalfLifeMs;
+    }
+
+    /**
+     * Add an article or replace its previous state
+     *
+     * @param articleId id of article
+     * @param categoryName name of its category, null if it has none
+     * @param created creation time in milliseconds
+     * @param tagNames names of its tags
+     * @return ids of articles whose related articles may have changed, the article itself included
+     */
+    public Set<Long> put(Long articleId, String categoryName, long created, Collection<String> tagNames) {
+        Set<Long> affected = remove(articleId);
+        Document document = new Document(categoryName, created, Set.copyOf(tagNames));
+        documents.put(articleId, document);
+        for (String tag : document.tags) {
+            Set<Long> articles = postings.computeIfAbsent(tag, name -> new HashSet<>());
+            affected.addAll(articles);
+            articles.add(articleId);
+        }
+        affected.add(articleId);
+        return affected;
+    }
+
+    /**
+     * @param articleId id of deleted article
+     * @return ids of articles whose related articles may have changed
+     */
+    public Set<Long> remove(Long articleId) {
+        Set<Long> affected = new HashSet<>();
+        Document document = documents.remove(articleId);
+        if (document == null) {
+            return affected;
+        }
+        for (String tag : document.tags) {
+            Set<Long> articles = postings.get(tag);
+            articles.remove(articleId);
+            affected.addAll(articles);
+            if (articles.isEmpty()) {
+                postings.remove(tag);
+            }
+        }
+        affected.add(articleId);
+        return affected;
+    }
+
+    /**
+     * @param articleId id of article
+     * @param limit maximum number of related articles
+     * @param now current time in milliseconds
+     * @return ids of the most related articles, best first
+     */
+    public List<Long> related(Long articleId, int limit, long now) {
+        Document document = documents.get(articleId);
+        if (document == null) {
+            return List.of();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        for (String tag : document.tags) {
+            Set<Long> articles = postings.get(tag);
+            if (articles.size() > maxTagArticles) {
+                continue;
+            }
+            double idf = Math.log(1 + (double) documents.size() / articles.size());
+            for (Long candidate : articles) {
+                if (!candidate.equals(articleId)) {
+                    scores.merge(candidate, idf, Double::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(limit + 1, RANKING);
+        scores.forEach((candidate, overlap) -> {
+            Document other = documents.get(candidate);
+            double score = overlap;
+            if (document.categoryName != null && Objects.equals(document.categoryName, other.categoryName)) {
+                score += categoryWeight;
+            }
+            long age = Math.max(0, now - other.created);
+            score += recencyWeight * Math.pow(0.5, (double) age / recencyHalfLifeMs);
+            best.add(Map.entry(candidate, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        Long[] ids = new Long[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = best.poll().getKey();
+        }
+        return List.of(ids);
+    }
+
+    /**
+     * @return number of indexed articles
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    private static final class Document {
+
+        private final String categoryName;
+        private final long created;
+        private final Set<String> tags;
+
+        private Document(String categoryName, long created, Set<String> tags) {
+            this.categoryName = categoryName;
+            this.created = created;
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.filippov.newsportal.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import net.filippov.newsportal.domain.ArticleReaders;
+
+@Repository
+public interface ArticleReadersRepository extends JpaRepository<ArticleReaders, Long> {
+
+    /**
+     * Rows are locked until the transaction ends, so that sketches merged by
+     * other nodes meanwhile are not overwritten
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ArticleReaders r WHERE r.articleId IN :articleIds ORDER BY r.articleId")
+    List<ArticleReaders> findForUpdate(@Param("articleIds") Collection<Long> articleIds);
+
+    @Query("SELECT r FROM ArticleReaders r WHERE r.articleId IN :articleIds")
+    List<ArticleReaders> findByArticleIdIn(@Param("articleIds") Collection<Long> articleIds);
+
+    @Modifying
+    @Query("DELETE FROM ArticleReaders r WHERE r.articleId = :articleId")
+    int deleteByArticleId(@Param("articleId") Long articleId);
+}
@@ -1,7 +1,10 @@
 
 package net.filippov.newsportal.repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,10 +15,28 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.related.ArticleTag;
+import net.filippov.newsportal.search.SearchDocument;
+import net.filippov.newsportal.trending.ArticleActivity;
 
 @Repository
 public interface ArticleRepository extends JpaRepository<Article, Long> {
 
+    String SUMMARY_SELECT = "SELECT new net.filippov.newsportal.domain.ArticleSummary("
+            + "a.id, a.title, a.preview, a.imageUrl, a.imageVariants, a.created, a.viewCount, au.login, c.name, "
+            + "a.commentCount) "
+            + "FROM Article a JOIN a.author au LEFT JOIN a.category c ";
+
+    String ACTIVITY_SELECT = "SELECT new net.filippov.newsportal.trending.ArticleActivity("
+            + "a.id, c.name, a.created, a.viewCount, a.commentCount) FROM Article a LEFT JOIN a.category c ";
+
+    String OLDER_THAN = "(a.created < :created OR (a.created = :created AND a.id < :id)) "
+            + "ORDER BY a.created DESC, a.id DESC";
+
+    String NEWER_THAN = "(a.created > :created OR (a.created = :created AND a.id > :id)) "
+            + "ORDER BY a.created ASC, a.id ASC";
+
     Page<Article> findByAuthorId(Long id, Pageable pageable);
 
     Page<Article> findByCategoryName(String name, Pageable pageable);
@@ -28,4 +49,107 @@ public interface ArticleRepository extends JpaRepository<Article, Long> {
     long countByContentContaining(String fragment);
 
     List<Article> findTop5ByOrderByViewCountDesc();
+
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(a) FROM Article a")
+    Page<ArticleSummary> findAllSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT)
+    List<ArticleSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE au.id = :authorId",
+            countQuery = "SELECT COUNT(a) FROM Article a WHERE a.author.id = :authorId")
+    Page<ArticleSummary> findSummariesByAuthorId(@Param("authorId") Long authorId, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE c.name = :name",
+            countQuery = "SELECT COUNT(a) FROM Article a WHERE a.category.name = :name")
+    Page<ArticleSummary> findSummariesByCategoryName(@Param("name") String name, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "JOIN a.tags t WHERE t.name = :name",
+            countQuery = "SELECT COUNT(a) FROM Article a JOIN a.tags t WHERE t.name = :name")
+    Page<ArticleSummary> findSummariesByTagName(@Param("name") String name, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT
+            + "WHERE a.title LIKE %:fragment% OR a.preview LIKE %:fragment% OR a.content LIKE %:fragment%",
+            countQuery = "SELECT COUNT(a) FROM Article a "
+                    + "WHERE a.title LIKE %:fragment% OR a.preview LIKE %:fragment% OR a.content LIKE %:fragment%")
+    Page<ArticleSummary> findSummariesByContentContaining(@Param("fragment") String fragment, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE " + OLDER_THAN)
+    List<ArticleSummary> findSummariesOlderThan(@Param("created") Date created, @Param("id") Long id,
+            Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE " + NEWER_THAN)
+    List<ArticleSummary> findSummariesNewerThan(@Param("created") Date created, @Param("id") Long id,
+            Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE c.name = :name AND " + OLDER_THAN)
+    List<ArticleSummary> findSummariesByCategoryNameOlderThan(@Param("name") String name,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE c.name = :name AND " + NEWER_THAN)
+    List<ArticleSummary> findSummariesByCategoryNameNewerThan(@Param("name") String name,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "JOIN a.tags t WHERE t.name = :name AND " + OLDER_THAN)
+    List<ArticleSummary> findSummariesByTagNameOlderThan(@Param("name") String name,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "JOIN a.tags t WHERE t.name = :name AND " + NEWER_THAN)
+    List<ArticleSummary> findSummariesByTagNameNewerThan(@Param("name") String name,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE au.id = :authorId AND " + OLDER_THAN)
+    List<ArticleSummary> findSummariesByAuthorIdOlderThan(@Param("authorId") Long authorId,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE au.id = :authorId AND " + NEWER_THAN)
+    List<ArticleSummary> findSummariesByAuthorIdNewerThan(@Param("authorId") Long authorId,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE a.id IN :ids")
+    List<ArticleSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new net.filippov.newsportal.search.SearchDocument(a.id, a.title, a.preview, a.content) "
+            + "FROM Article a WHERE a.id > :afterId ORDER BY a.id")
+    List<SearchDocument> findSearchDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new net.filippov.newsportal.search.SearchDocument(a.id, a.title, a.preview, a.content) "
+            + "FROM Article a WHERE a.id = :id")
+    Optional<SearchDocument> findSearchDocument(@Param("id") Long id);
+
+    @Query("SELECT new net.filippov.newsportal.search.SearchDocument(a.id, a.title, a.preview, a.content) "
+            + "FROM Article a WHERE (a.created >= :since OR a.lastModified >= :since) AND a.id > :afterId "
+            + "ORDER BY a.id")
+    List<SearchDocument> findSearchDocumentsChangedSince(@Param("since") Date since,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new net.filippov.newsportal.search.SearchDocument(a.id, a.title, a.preview, a.content) "
+            + "FROM Article a WHERE a.id > :afterId AND NOT EXISTS (SELECT s.articleId FROM ArticleSignature s "
+            + "WHERE s.articleId = a.id AND s.version = :version) ORDER BY a.id")
+    List<SearchDocument> findUnsignedDocuments(@Param("afterId") Long afterId, @Param("version") int version,
+            Pageable pageable);
+
+    @Query(ACTIVITY_SELECT + "WHERE a.id > :afterId ORDER BY a.id")
+    List<ArticleActivity> findActivities(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(ACTIVITY_SELECT + "WHERE a.id = :id")
+    Optional<ArticleActivity> findActivity(@Param("id") Long id);
+
+    @Query("SELECT new net.filippov.newsportal.related.ArticleTag(a.id, t.name) "
+            + "FROM Article a JOIN a.tags t WHERE a.id IN :ids")
+    List<ArticleTag> findTagsByArticleIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT a.id FROM Article a")
+    List<Long> findAllIds();
+
+    @Query("SELECT a.imageUrl FROM Article a WHERE a.id = :id AND a.imageUrl IS NOT NULL AND a.imageVariants IS NULL")
+    List<String> findImageUrlWithoutVariants(@Param("id") Long id);
+
+    long countByImageUrl(String imageUrl);
+
+    @Query("SELECT DISTINCT a.imageUrl FROM Article a WHERE a.imageUrl IN :imageUrls")
+    List<String> findImageUrlsIn(@Param("imageUrls") Collection<String> imageUrls);
+
+    @Query("SELECT a.id FROM Article a WHERE a.imageUrl = :imageUrl")
+    List<Long> findIdsByImageUrl(@Param("imageUrl") String imageUrl);
 }
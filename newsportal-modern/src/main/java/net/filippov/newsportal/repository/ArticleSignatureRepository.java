@@ -0,0 +1,25 @@
+package net.filippov.newsportal.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import net.filippov.newsportal.domain.ArticleSignature;
+
+@Repository
+public interface ArticleSignatureRepository extends JpaRepository<ArticleSignature, Long> {
+
+    @Query("SELECT s FROM ArticleSignature s WHERE s.articleId > :afterId AND s.version = :version "
+            + "ORDER BY s.articleId")
+    List<ArticleSignature> findByVersion(@Param("afterId") Long afterId, @Param("version") int version,
+            Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ArticleSignature s WHERE s.articleId = :articleId")
+    int deleteByArticleId(@Param("articleId") Long articleId);
+}
@@ -1,14 +1,21 @@
 package net.filippov.newsportal.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import net.filippov.newsportal.domain.Category;
+import net.filippov.newsportal.domain.CategorySummary;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     Optional<Category> findByName(String name);
+
+    @Query("SELECT new net.filippov.newsportal.domain.CategorySummary(c.id, c.name, c.articleCount) "
+            + "FROM Category c ORDER BY c.name")
+    List<CategorySummary> findAllSummaries();
 }
@@ -1,15 +1,29 @@
 package net.filippov.newsportal.repository;
 
+import java.util.Date;
 import java.util.List;
 
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.CommentSummary;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
-    List<Comment> findByArticleId(Long id, Sort sort);
+    String SUMMARY_SELECT = "SELECT new net.filippov.newsportal.domain.CommentSummary(c.id, c.content, c.created, u.login) "
+            + "FROM Comment c LEFT JOIN c.author u ";
+
+    @Query(SUMMARY_SELECT + "WHERE c.article.id = :articleId ORDER BY c.created DESC, c.id DESC")
+    List<CommentSummary> findSummariesByArticleId(@Param("articleId") Long articleId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE c.article.id = :articleId "
+            + "AND (c.created < :created OR (c.created = :created AND c.id < :id)) "
+            + "ORDER BY c.created DESC, c.id DESC")
+    List<CommentSummary> findSummariesByArticleIdOlderThan(@Param("articleId") Long articleId,
+            @Param("created") Date created, @Param("id") Long id, Pageable pageable);
 }
@@ -3,8 +3,12 @@ package net.filippov.newsportal.repository;
 import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import net.filippov.newsportal.domain.Tag;
@@ -14,6 +18,11 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
 
     Optional<Tag> findByName(String name);
 
+    /**
+     * Cached in the query cache, invalidated by any change to the tag table
+     */
     @Query("SELECT t.name FROM Tag t ORDER BY t.name")
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "tagNames") })
     List<String> findAllNames();
 }
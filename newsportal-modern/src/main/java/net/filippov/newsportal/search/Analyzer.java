@@ -0,0 +1,62 @@
+package net.filippov.newsportal.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Turns article text into index terms: strips HTML markup, folds case and
+ * diacritics, splits on everything that is not a letter or digit and drops
+ * stop words and single characters. The same analyzer is used for documents
+ * and queries so both produce identical terms
+ *
+ * @author Oleg Filippov
+ */
+public class Analyzer {
+
+    private static final Pattern TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern ENTITIES = Pattern.compile("&[#a-zA-Z0-9]+;");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with");
+
+    /**
+     * @param text text to analyze, may contain HTML
+     * @return terms in order of appearance, with repetitions
+     */
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String plain = ENTITIES.matcher(TAGS.matcher(text).replaceAll(" ")).replaceAll(" ");
+        String folded = MARKS.matcher(Normalizer.normalize(plain, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addTerm(terms, folded.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private void addTerm(List<String> terms, String term) {
+        if (term.length() > 1 && !STOP_WORDS.contains(term)) {
+            terms.add(term);
+        }
+    }
+}
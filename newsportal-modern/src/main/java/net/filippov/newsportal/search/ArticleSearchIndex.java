@@ -0,0 +1,318 @@
+package net.filippov.newsportal.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import net.filippov.newsportal.repository.ArticleRepository;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+
+/**
+ * Full-text index of all articles, persisted as a {@link SegmentedIndex} in
+ * {@code newsportal.search.index-dir}. On startup the committed index is
+ * memory-mapped and only articles changed since its last commit are read
+ * from the database; without a usable index it is rebuilt from the database
+ * in the background. Kept up to date from {@link ArticleChangedEvent}s after
+ * their transactions commit and committed periodically and on shutdown.
+ * Until the index is available {@link #isReady()} is false and callers
+ * should fall back to database search.
+ * <p>
+ * Each build goes to its own directory named in the {@code CURRENT} file,
+ * so a rebuild never disturbs the index being served
+ *
+ * @author Oleg Filippov
+ */
+@Component
+public class ArticleSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArticleSearchIndex.class);
+
+    private static final String CURRENT = "CURRENT";
+    private static final String GENERATION_PREFIX = "index-";
+    // Changes are applied after their transaction commits, look back a bit further than the last commit
+    private static final long CATCH_UP_MARGIN_MS = 60_000;
+
+    private final ArticleRepository articleRepository;
+    private final Analyzer analyzer = new Analyzer();
+    private final float[] boosts;
+    private final int batchSize;
+    private final Path indexDir;
+    private final int maxBufferedDocs;
+    private final int maxSegments;
+    private final long commitIntervalMs;
+
+    private ScheduledExecutorService maintenance;
+    private volatile SegmentedIndex index;
+    private volatile boolean ready;
+
+    // Articles changed while a rebuild or catch-up is running, replayed once it completes
+    private volatile Set<Long> changedDuringRebuild;
+
+    public ArticleSearchIndex(ArticleRepository articleRepository,
+            @Value("${newsportal.search.boost.title:3.0}") float titleBoost,
+            @Value("${newsportal.search.boost.preview:1.5}") float previewBoost,
+            @Value("${newsportal.search.boost.content:1.0}") float contentBoost,
+            @Value("${newsportal.search.rebuild-batch-size:500}") int batchSize,
+            @Value("${newsportal.search.index-dir:data/search-index}") String indexDir,
+            @Value("${newsportal.search.max-buffered-docs:1000}") int maxBufferedDocs,
+            @Value("${newsportal.search.max-segments:8}") int maxSegments,
+            @Value("${newsportal.search.commit-interval-ms:10000}") long commitIntervalMs) {
+        this.articleRepository = articleRepository;
+        this.boosts = new float[] { titleBoost, previewBoost, contentBoost };
+        this.batchSize = batchSize;
+        this.indexDir = Paths.get(indexDir).toAbsolutePath();
+        this.maxBufferedDocs = maxBufferedDocs;
+        this.maxSegments = maxSegments;
+        this.commitIntervalMs = commitIntervalMs;
+    }
+
+    /**
+     * @return true once the index holds all articles
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @param query user query
+     * @param offset number of best hits to skip
+     * @param limit maximum number of hits to return
+     * @return ids of matching articles, best match first
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        SegmentedIndex current = index;
+        return current == null ? SearchHits.empty() : current.search(query, offset, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.execute(this::openOrRebuild);
+        maintenance.scheduleWithFixedDelay(this::maintain, commitIntervalMs, commitIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        SegmentedIndex current = index;
+        if (current != null) {
+            try {
+                current.commit();
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to commit search index on shutdown", e);
+            }
+        }
+    }
+
+    /**
+     * Re-read all articles from the database into a fresh index and swap it in
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        Path generation = indexDir.resolve(GENERATION_PREFIX + started);
+        try {
+            SegmentedIndex fresh = SegmentedIndex.create(generation, analyzer, boosts, maxBufferedDocs,
+                    maxSegments);
+            long lastId = 0;
+            List<SearchDocument> batch;
+            do {
+                batch = articleRepository.findSearchDocuments(lastId, PageRequest.of(0, batchSize));
+                for (SearchDocument document : batch) {
+                    fresh.add(document);
+                    lastId = document.getId();
+                }
+            } while (batch.size() == batchSize);
+            fresh.commit();
+            writeCurrent(generation);
+
+            index = fresh;
+            Set<Long> changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            changed.forEach(articleId -> reindex(fresh, articleId));
+            ready = true;
+            LOG.info("Search index built with {} articles in {} ms", fresh.size(),
+                    System.currentTimeMillis() - started);
+            deleteOtherGenerations(generation);
+        } catch (IOException | RuntimeException e) {
+            changedDuringRebuild = null;
+            LOG.error("Failed to build search index, database search stays in use", e);
+            if (index == null || !generation.equals(index.getDirectory())) {
+                deleteGeneration(generation);
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        Set<Long> changed = changedDuringRebuild;
+        if (changed != null) {
+            changed.add(event.getArticleId());
+        }
+        SegmentedIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            reindex(current, event.getArticleId());
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to update search index for article {}", event.getArticleId(), e);
+        }
+    }
+
+    private void reindex(SegmentedIndex target, Long articleId) {
+        articleRepository.findSearchDocument(articleId).ifPresentOrElse(
+                target::add,
+                () -> target.remove(articleId));
+    }
+
+    private void openOrRebuild() {
+        long started = System.currentTimeMillis();
+        SegmentedIndex opened = null;
+        try {
+            opened = openCurrent();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Failed to open search index in {}, rebuilding it", indexDir, e);
+        }
+        if (opened == null) {
+            rebuild();
+            return;
+        }
+        try {
+            changedDuringRebuild = ConcurrentHashMap.newKeySet();
+            index = opened;
+            int changedCount = catchUp(opened);
+            Set<Long> changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            for (Long articleId : changed) {
+                reindex(opened, articleId);
+            }
+            opened.commit();
+            ready = true;
+            LOG.info("Search index opened with {} articles in {} segments, {} changed articles caught up in {} ms",
+                    opened.size(), opened.getSegmentCount(), changedCount, System.currentTimeMillis() - started);
+        } catch (IOException | RuntimeException e) {
+            changedDuringRebuild = null;
+            LOG.warn("Failed to catch up search index, rebuilding it", e);
+            rebuild();
+        }
+    }
+
+    /**
+     * Apply articles created or modified since the last commit and drop deleted ones
+     *
+     * @return number of re-read articles
+     */
+    private int catchUp(SegmentedIndex target) {
+        Date since = new Date(target.getCommittedAt() - CATCH_UP_MARGIN_MS);
+        int count = 0;
+        long lastId = 0;
+        List<SearchDocument> batch;
+        do {
+            batch = articleRepository.findSearchDocumentsChangedSince(since, lastId, PageRequest.of(0, batchSize));
+            for (SearchDocument document : batch) {
+                target.add(document);
+                lastId = document.getId();
+                count++;
+            }
+        } while (batch.size() == batchSize);
+
+        Set<Long> ids = new HashSet<>(articleRepository.findAllIds());
+        target.retain(ids::contains);
+        return count;
+    }
+
+    private void maintain() {
+        SegmentedIndex current = index;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.commit();
+            current.maybeMerge();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Search index maintenance failed", e);
+        }
+    }
+
+    /**
+     * @return index named in the CURRENT file, null if there is none
+     */
+    private SegmentedIndex openCurrent() throws IOException {
+        Path current = indexDir.resolve(CURRENT);
+        if (!Files.exists(current)) {
+            return null;
+        }
+        String generation = Files.readString(current, StandardCharsets.UTF_8).trim();
+        return SegmentedIndex.open(indexDir.resolve(generation), analyzer, boosts, maxBufferedDocs, maxSegments);
+    }
+
+    private void writeCurrent(Path generation) throws IOException {
+        Path tmp = indexDir.resolve(CURRENT + ".tmp");
+        Files.writeString(tmp, generation.getFileName().toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, indexDir.resolve(CURRENT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteOtherGenerations(Path keep) {
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(indexDir, GENERATION_PREFIX + "*")) {
+            for (Path generation : generations) {
+                if (!generation.equals(keep)) {
+                    deleteGeneration(generation);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to list old search index directories in {}", indexDir, e);
+        }
+    }
+
+    private void deleteGeneration(Path generation) {
+        if (!Files.exists(generation)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(generation)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to delete search index directory {}", generation, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.filippov.newsportal.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * BM25F ranking over a set of {@link Segment}s. Field frequencies are
+ * length-normalized and weighted by field boost before the BM25 saturation
+ * is applied; document count, average field lengths and document frequencies
+ * are taken over all segments
+ *
+ * @author Oleg Filippov
+ */
+final class Bm25 {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+
+    private final float[] boosts;
+    private final float[] avgLengths = new float[InvertedIndex.FIELDS];
+    private final int docCount;
+    private float idf;
+
+    private Bm25(List<? extends Segment> segments, float[] boosts) {
+        this.boosts = boosts;
+        int docs = 0;
+        long[] totals = new long[InvertedIndex.FIELDS];
+        for (Segment segment : segments) {
+            docs += segment.liveDocs();
+            for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+                totals[field] += segment.totalFieldLength(field);
+            }
+        }
+        this.docCount = docs;
+        for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+            avgLengths[field] = docs == 0 ? 1f : Math.max(1f, (float) totals[field] / docs);
+        }
+    }
+
+    /**
+     * Find articles matching any of the query terms, best match first
+     */
+    static SearchHits search(List<? extends Segment> segments, List<String> queryTerms, float[] boosts,
+            int offset, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(queryTerms));
+        if (terms.isEmpty() || limit <= 0) {
+            return SearchHits.empty();
+        }
+        Bm25 stats = new Bm25(segments, boosts);
+        if (stats.docCount == 0) {
+            return SearchHits.empty();
+        }
+        Map<Long, float[]> scores = new HashMap<>();
+        for (String term : terms) {
+            int docFreq = 0;
+            for (Segment segment : segments) {
+                docFreq += segment.docFreq(term);
+            }
+            if (docFreq == 0) {
+                continue;
+            }
+            stats.idf = idf(stats.docCount, Math.min(docFreq, stats.docCount));
+            for (Segment segment : segments) {
+                segment.score(term, stats, scores);
+            }
+        }
+        return topHits(scores, offset, limit);
+    }
+
+    static float idf(int docCount, int docFreq) {
+        return (float) Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    /**
+     * Score of the current term for one article
+     *
+     * @param packedFreqs per-field frequencies packed by {@link PostingList#pack(int[])}
+     * @param lengths article field lengths
+     */
+    float score(int packedFreqs, int[] lengths) {
+        float weighted = 0;
+        for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+            int freq = PostingList.unpack(packedFreqs, field);
+            if (freq > 0) {
+                float norm = 1 - B + B * lengths[field] / avgLengths[field];
+                weighted += boosts[field] * freq / norm;
+            }
+        }
+        return idf * weighted * (K1 + 1) / (weighted + K1);
+    }
+
+    private static SearchHits topHits(Map<Long, float[]> scores, int offset, int limit) {
+        int k = offset + limit;
+        // Min-heap of the k best hits, ties broken by newer (higher) article id.
+        // Scores are positive, so their int bits sort like the floats do
+        PriorityQueue<long[]> heap = new PriorityQueue<>(Math.min(k, scores.size()) + 1,
+                (x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+        for (Map.Entry<Long, float[]> entry : scores.entrySet()) {
+            heap.offer(new long[] { Float.floatToIntBits(entry.getValue()[0]), entry.getKey() });
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<Long> ids = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ids.add(heap.poll()[1]);
+        }
+        Collections.reverse(ids);
+        List<Long> page = offset >= ids.size() ? Collections.emptyList() : ids.subList(offset, ids.size());
+        return new SearchHits(scores.size(), new ArrayList<>(page));
+    }
+}
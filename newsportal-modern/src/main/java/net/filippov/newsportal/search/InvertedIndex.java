@@ -0,0 +1,315 @@
+package net.filippov.newsportal.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over article title, preview and content.
+ * Every article gets an internal ordinal; each term maps to a {@link PostingList}
+ * of ordinals with per-field frequencies. Queries are ranked with {@link Bm25}.
+ * <p>
+ * Serves as the mutable segment of {@link SegmentedIndex} and can be written
+ * to disk as an immutable {@link MappedSegment}.
+ * <p>
+ * Thread-safe: searches share a read lock, updates take the write lock
+ *
+ * @author Oleg Filippov
+ */
+public class InvertedIndex implements Segment {
+
+    public static final int TITLE = 0;
+    public static final int PREVIEW = 1;
+    public static final int CONTENT = 2;
+    public static final int FIELDS = 3;
+
+    private final Analyzer analyzer;
+    private final float[] boosts;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // Per ordinal data
+    private long[] articleIds = new long[256];
+    private int[] fieldLengths = new int[256 * FIELDS];
+    private String[][] docTerms = new String[256][];
+    private int nextOrdinal;
+
+    private final long[] totalFieldLengths = new long[FIELDS];
+
+    /**
+     * @param analyzer analyzer for documents and queries
+     * @param boosts weights of title, preview and content
+     */
+    public InvertedIndex(Analyzer analyzer, float[] boosts) {
+        if (boosts.length != FIELDS) {
+            throw new IllegalArgumentException("Expected " + FIELDS + " field boosts");
+        }
+        this.analyzer = analyzer;
+        this.boosts = boosts.clone();
+    }
+
+    /**
+     * Add the document or replace its previous version
+     *
+     * @param document document to index
+     */
+    public void add(SearchDocument document) {
+        // Analyze outside of the lock, it is the expensive part
+        List<Map<String, Integer>> fieldFreqs = new ArrayList<>(FIELDS);
+        int[] lengths = new int[FIELDS];
+        String[] texts = { document.getTitle(), document.getPreview(), document.getContent() };
+        Set<String> terms = new LinkedHashSet<>();
+        for (int field = 0; field < FIELDS; field++) {
+            Map<String, Integer> freqs = new HashMap<>();
+            List<String> tokens = analyzer.analyze(texts[field]);
+            for (String token : tokens) {
+                freqs.merge(token, 1, Integer::sum);
+            }
+            lengths[field] = tokens.size();
+            fieldFreqs.add(freqs);
+            terms.addAll(freqs.keySet());
+        }
+
+        lock.writeLock().lock();
+        try {
+            int ordinal = removeInternal(document.getId(), true);
+            if (ordinal < 0) {
+                ordinal = freeOrdinals.isEmpty() ? allocateOrdinal() : freeOrdinals.pop();
+            }
+            ordinals.put(document.getId(), ordinal);
+            articleIds[ordinal] = document.getId();
+
+            String[] storedTerms = new String[terms.size()];
+            int[] freqs = new int[FIELDS];
+            int i = 0;
+            for (String term : terms) {
+                for (int field = 0; field < FIELDS; field++) {
+                    freqs[field] = fieldFreqs.get(field).getOrDefault(term, 0);
+                }
+                PostingList list = postings.computeIfAbsent(term, t -> new PostingList());
+                list.put(ordinal, PostingList.pack(freqs));
+                storedTerms[i++] = term;
+            }
+            docTerms[ordinal] = storedTerms;
+            for (int field = 0; field < FIELDS; field++) {
+                fieldLengths[ordinal * FIELDS + field] = lengths[field];
+                totalFieldLengths[field] += lengths[field];
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param articleId id of article to remove
+     * @return true if article was indexed
+     */
+    public boolean remove(Long articleId) {
+        lock.writeLock().lock();
+        try {
+            return removeInternal(articleId, false) >= 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param articleId id of article
+     * @return true if article is indexed
+     */
+    public boolean contains(Long articleId) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(articleId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed articles
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find articles matching any of the query terms, best match first
+     *
+     * @param query user query
+     * @param offset number of best hits to skip
+     * @param limit maximum number of hits to return
+     * @return requested hits and total number of matches
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return Bm25.search(List.of(this), analyzer.analyze(query), boosts, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int liveDocs() {
+        return size();
+    }
+
+    @Override
+    public long totalFieldLength(int field) {
+        lock.readLock().lock();
+        try {
+            return totalFieldLengths[field];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int docFreq(String term) {
+        lock.readLock().lock();
+        try {
+            PostingList list = postings.get(term);
+            return list == null ? 0 : list.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void score(String term, Bm25 stats, Map<Long, float[]> scores) {
+        lock.readLock().lock();
+        try {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return;
+            }
+            int[] lengths = new int[FIELDS];
+            for (int i = 0; i < list.size(); i++) {
+                int ordinal = list.doc(i);
+                System.arraycopy(fieldLengths, ordinal * FIELDS, lengths, 0, FIELDS);
+                scores.computeIfAbsent(articleIds[ordinal], id -> new float[1])[0] += stats.score(list.freqs(i),
+                        lengths);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(long articleId) {
+        return remove(articleId);
+    }
+
+    /**
+     * Write this index as an immutable segment file. Documents are renumbered
+     * in article id order, as {@link MappedSegment} expects
+     *
+     * @param file segment file to create
+     * @throws IOException if the file cannot be written
+     */
+    void writeSegment(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            long[] ids = new long[ordinals.size()];
+            int n = 0;
+            for (Long id : ordinals.keySet()) {
+                ids[n++] = id;
+            }
+            Arrays.sort(ids);
+            int[] newOrdinals = new int[nextOrdinal];
+            int[] lengths = new int[ids.length * FIELDS];
+            for (int i = 0; i < ids.length; i++) {
+                int ordinal = ordinals.get(ids[i]);
+                newOrdinals[ordinal] = i;
+                System.arraycopy(fieldLengths, ordinal * FIELDS, lengths, i * FIELDS, FIELDS);
+            }
+
+            List<byte[]> terms = new ArrayList<>(postings.size());
+            Map<byte[], PostingList> byBytes = new HashMap<>();
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                terms.add(bytes);
+                byBytes.put(bytes, entry.getValue());
+            }
+            terms.sort(Arrays::compareUnsigned);
+
+            try (SegmentWriter writer = new SegmentWriter(file, ids, lengths)) {
+                long[] buffer = new long[16];
+                for (byte[] term : terms) {
+                    PostingList list = byBytes.get(term);
+                    if (buffer.length < list.size()) {
+                        buffer = new long[list.size()];
+                    }
+                    // Ordinal in the high bits, so sorting orders postings by new ordinal
+                    for (int i = 0; i < list.size(); i++) {
+                        buffer[i] = ((long) newOrdinals[list.doc(i)] << 32) | (list.freqs(i) & 0xFFFFFFFFL);
+                    }
+                    Arrays.sort(buffer, 0, list.size());
+                    writer.addTerm(term, buffer, list.size());
+                }
+                writer.finish();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param keepOrdinal true to keep the ordinal reserved for a replacement
+     * @return freed ordinal or -1 if article wasn't indexed
+     */
+    private int removeInternal(Long articleId, boolean keepOrdinal) {
+        Integer ordinal = ordinals.remove(articleId);
+        if (ordinal == null) {
+            return -1;
+        }
+        for (String term : docTerms[ordinal]) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                list.remove(ordinal);
+                if (list.size() == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+        for (int field = 0; field < FIELDS; field++) {
+            totalFieldLengths[field] -= fieldLengths[ordinal * FIELDS + field];
+            fieldLengths[ordinal * FIELDS + field] = 0;
+        }
+        docTerms[ordinal] = null;
+        if (!keepOrdinal) {
+            freeOrdinals.push(ordinal);
+        }
+        return ordinal;
+    }
+
+    private int allocateOrdinal() {
+        if (nextOrdinal == articleIds.length) {
+            int capacity = articleIds.length * 2;
+            articleIds = Arrays.copyOf(articleIds, capacity);
+            fieldLengths = Arrays.copyOf(fieldLengths, capacity * FIELDS);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        return nextOrdinal++;
+    }
+}
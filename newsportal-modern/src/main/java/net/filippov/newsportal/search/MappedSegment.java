@@ -0,0 +1,386 @@
+package net.filippov.newsportal.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Immutable on-disk segment written by {@link SegmentWriter}, memory-mapped
+ * read-only so that opening it costs no more than reading the footer and the
+ * operating system page cache holds the hot parts. Lookups use absolute
+ * reads only, so a segment is shared by concurrent searches without copying
+ * the buffer.
+ * <p>
+ * Footer, the last {@link SegmentWriter#FOOTER_SIZE} bytes:
+ * <pre>
+ * int magic, int version, int docCount, int termCount,
+ * long totalTitleLength, long totalPreviewLength, long totalContentLength,
+ * long postingsStart, long termsStart, long termIndexStart, int magic
+ * </pre>
+ * Deleted articles are kept in a bit set by ordinal, replaced on every
+ * change so that readers never see it half updated, and persisted next to
+ * the segment in a {@code .del} file by {@link #commitDeletions()}.
+ * Segments over 2 GB are not supported, they are never produced with the
+ * default merge limits
+ *
+ * @author Oleg Filippov
+ */
+class MappedSegment implements Segment {
+
+    private final String name;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final long[] totalFieldLengths = new long[InvertedIndex.FIELDS];
+    private final int termsStart;
+    private final int termIndexStart;
+
+    private volatile BitSet deleted;
+    private volatile boolean deletionsDirty;
+    private volatile int liveDocs;
+    private final long[] liveFieldLengths = new long[InvertedIndex.FIELDS];
+
+    private MappedSegment(String name, Path file, MappedByteBuffer buffer, BitSet deleted) throws IOException {
+        this.name = name;
+        this.file = file;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - SegmentWriter.FOOTER_SIZE;
+        if (footer < 0 || buffer.getInt(footer) != SegmentWriter.MAGIC
+                || buffer.getInt(buffer.capacity() - Integer.BYTES) != SegmentWriter.MAGIC) {
+            throw new IOException("Not a search index segment: " + file);
+        }
+        if (buffer.getInt(footer + 4) != SegmentWriter.VERSION) {
+            throw new IOException("Unsupported search index segment version in " + file);
+        }
+        this.docCount = buffer.getInt(footer + 8);
+        this.termCount = buffer.getInt(footer + 12);
+        for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+            totalFieldLengths[field] = buffer.getLong(footer + 16 + field * Long.BYTES);
+        }
+        int offsets = footer + 16 + InvertedIndex.FIELDS * Long.BYTES;
+        this.termsStart = (int) buffer.getLong(offsets + Long.BYTES);
+        this.termIndexStart = (int) buffer.getLong(offsets + 2 * Long.BYTES);
+        this.deleted = deleted;
+        this.liveDocs = docCount - deleted.cardinality();
+        System.arraycopy(totalFieldLengths, 0, liveFieldLengths, 0, InvertedIndex.FIELDS);
+        for (int ordinal = deleted.nextSetBit(0); ordinal >= 0; ordinal = deleted.nextSetBit(ordinal + 1)) {
+            for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+                liveFieldLengths[field] -= fieldLength(ordinal, field);
+            }
+        }
+    }
+
+    /**
+     * Map the segment file and load its deletions
+     *
+     * @param directory index directory
+     * @param name segment name, file names are derived from it
+     * @return opened segment
+     * @throws IOException if the segment cannot be read or is corrupt
+     */
+    static MappedSegment open(Path directory, String name) throws IOException {
+        Path file = segmentFile(directory, name);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Search index segment is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Path deletions = deletionsFile(directory, name);
+        BitSet deleted = Files.exists(deletions) ? BitSet.valueOf(Files.readAllBytes(deletions)) : new BitSet();
+        return new MappedSegment(name, file, buffer, deleted);
+    }
+
+    /**
+     * @param directory index directory
+     * @param name segment name
+     * @return path of the segment file
+     */
+    static Path segmentFile(Path directory, String name) {
+        return directory.resolve(name + ".seg");
+    }
+
+    /**
+     * @param directory index directory
+     * @param name segment name
+     * @return path of the deletions file
+     */
+    static Path deletionsFile(Path directory, String name) {
+        return directory.resolve(name + ".del");
+    }
+
+    /**
+     * @return segment name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of articles including deleted ones
+     */
+    int docCount() {
+        return docCount;
+    }
+
+    /**
+     * @return number of terms in the dictionary
+     */
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * @return current deletions, must not be modified
+     */
+    BitSet deletions() {
+        return deleted;
+    }
+
+    /**
+     * @param ordinal document ordinal
+     * @return article id of the document
+     */
+    long articleId(int ordinal) {
+        return buffer.getLong(ordinal * SegmentWriter.DOC_SIZE);
+    }
+
+    /**
+     * @param ordinal document ordinal
+     * @param field field number
+     * @return length of the field of the document
+     */
+    int fieldLength(int ordinal, int field) {
+        return buffer.getInt(ordinal * SegmentWriter.DOC_SIZE + Long.BYTES + field * Integer.BYTES);
+    }
+
+    /**
+     * @param index term number in dictionary order
+     * @return UTF-8 bytes of the term
+     */
+    byte[] term(int index) {
+        int entry = termIndexStart + index * SegmentWriter.TERM_ENTRY_SIZE;
+        byte[] term = new byte[buffer.getInt(entry + Integer.BYTES)];
+        buffer.get(termsStart + buffer.getInt(entry), term);
+        return term;
+    }
+
+    /**
+     * Read postings of a term, deleted documents included
+     *
+     * @param index term number in dictionary order
+     * @param postings ordinal in the high and packed frequencies in the low 32 bits,
+     * must hold {@link #docFreq(int)} entries
+     */
+    void postings(int index, long[] postings) {
+        int entry = termIndexStart + index * SegmentWriter.TERM_ENTRY_SIZE;
+        int count = buffer.getInt(entry + 2 * Integer.BYTES);
+        int[] position = { (int) buffer.getLong(entry + 3 * Integer.BYTES) };
+        int ordinal = 0;
+        for (int i = 0; i < count; i++) {
+            ordinal += readVarInt(position);
+            postings[i] = ((long) ordinal << 32) | (readVarInt(position) & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * @param index term number in dictionary order
+     * @return number of documents containing the term, deleted ones included
+     */
+    int docFreq(int index) {
+        return buffer.getInt(termIndexStart + index * SegmentWriter.TERM_ENTRY_SIZE + 2 * Integer.BYTES);
+    }
+
+    @Override
+    public int liveDocs() {
+        return liveDocs;
+    }
+
+    @Override
+    public long totalFieldLength(int field) {
+        synchronized (liveFieldLengths) {
+            return liveFieldLengths[field];
+        }
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int index = findTerm(term.getBytes(StandardCharsets.UTF_8));
+        return index < 0 ? 0 : docFreq(index);
+    }
+
+    @Override
+    public void score(String term, Bm25 stats, Map<Long, float[]> scores) {
+        int index = findTerm(term.getBytes(StandardCharsets.UTF_8));
+        if (index < 0) {
+            return;
+        }
+        BitSet deleted = this.deleted;
+        int entry = termIndexStart + index * SegmentWriter.TERM_ENTRY_SIZE;
+        int count = buffer.getInt(entry + 2 * Integer.BYTES);
+        int[] position = { (int) buffer.getLong(entry + 3 * Integer.BYTES) };
+        int[] lengths = new int[InvertedIndex.FIELDS];
+        int ordinal = 0;
+        for (int i = 0; i < count; i++) {
+            ordinal += readVarInt(position);
+            int freqs = readVarInt(position);
+            if (deleted.get(ordinal)) {
+                continue;
+            }
+            for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+                lengths[field] = fieldLength(ordinal, field);
+            }
+            scores.computeIfAbsent(articleId(ordinal), id -> new float[1])[0] += stats.score(freqs, lengths);
+        }
+    }
+
+    @Override
+    public boolean delete(long articleId) {
+        int ordinal = findArticle(articleId);
+        if (ordinal < 0) {
+            return false;
+        }
+        BitSet ordinals = new BitSet();
+        ordinals.set(ordinal);
+        return deleteOrdinals(ordinals) > 0;
+    }
+
+    /**
+     * Delete several documents with a single copy of the deletions, which
+     * readers share
+     *
+     * @param ordinals ordinals of documents to delete
+     * @return number of documents that were not deleted yet
+     */
+    int deleteOrdinals(BitSet ordinals) {
+        synchronized (liveFieldLengths) {
+            BitSet added = (BitSet) ordinals.clone();
+            added.andNot(deleted);
+            if (added.isEmpty()) {
+                return 0;
+            }
+            for (int ordinal = added.nextSetBit(0); ordinal >= 0; ordinal = added.nextSetBit(ordinal + 1)) {
+                for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+                    liveFieldLengths[field] -= fieldLength(ordinal, field);
+                }
+            }
+            BitSet copy = (BitSet) deleted.clone();
+            copy.or(added);
+            int count = added.cardinality();
+            deleted = copy;
+            liveDocs -= count;
+            deletionsDirty = true;
+            return count;
+        }
+    }
+
+    /**
+     * @return ordinal of the article, -1 if the segment does not hold it
+     */
+    int ordinal(long articleId) {
+        return findArticle(articleId);
+    }
+
+    /**
+     * Write deletions made since the last commit to the {@code .del} file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void commitDeletions() throws IOException {
+        if (!deletionsDirty) {
+            return;
+        }
+        BitSet snapshot;
+        synchronized (liveFieldLengths) {
+            snapshot = deleted;
+            deletionsDirty = false;
+        }
+        Path target = deletionsFile(file.getParent(), name);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(snapshot.toByteArray()));
+            channel.force(true);
+        } catch (IOException e) {
+            deletionsDirty = true;
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return binary search over article ids, ordinal or -1 if absent
+     */
+    private int findArticle(long articleId) {
+        int low = 0;
+        int high = docCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = articleId(mid);
+            if (id < articleId) {
+                low = mid + 1;
+            } else if (id > articleId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return binary search over the term dictionary, term number or -1 if absent
+     */
+    private int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTerm(int index, byte[] term) {
+        int entry = termIndexStart + index * SegmentWriter.TERM_ENTRY_SIZE;
+        int offset = termsStart + buffer.getInt(entry);
+        int length = buffer.getInt(entry + Integer.BYTES);
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(offset + i) & 0xFF, term[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private int readVarInt(int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position[0]++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,79 @@
+package net.filippov.newsportal.search;
+
+import java.util.Arrays;
+
+/**
+ * Postings of a single term: document ordinals in ascending order, each with
+ * its term frequencies per field packed into one int (10 bits per field)
+ *
+ * @author Oleg Filippov
+ */
+class PostingList {
+
+    private static final int FREQ_BITS = 10;
+    private static final int FREQ_MASK = (1 << FREQ_BITS) - 1;
+
+    private int[] docs = new int[4];
+    private int[] freqs = new int[4];
+    private int size;
+
+    /**
+     * Pack per-field frequencies, saturating each at 1023
+     */
+    static int pack(int[] fieldFreqs) {
+        int packed = 0;
+        for (int field = 0; field < fieldFreqs.length; field++) {
+            packed |= Math.min(fieldFreqs[field], FREQ_MASK) << (field * FREQ_BITS);
+        }
+        return packed;
+    }
+
+    static int unpack(int packed, int field) {
+        return (packed >>> (field * FREQ_BITS)) & FREQ_MASK;
+    }
+
+    /**
+     * Insert or replace posting of the document
+     */
+    void put(int doc, int packedFreqs) {
+        int pos = size > 0 && docs[size - 1] < doc ? -(size + 1) : Arrays.binarySearch(docs, 0, size, doc);
+        if (pos >= 0) {
+            freqs[pos] = packedFreqs;
+            return;
+        }
+        pos = -(pos + 1);
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            freqs = Arrays.copyOf(freqs, size * 2);
+        }
+        System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+        System.arraycopy(freqs, pos, freqs, pos + 1, size - pos);
+        docs[pos] = doc;
+        freqs[pos] = packedFreqs;
+        size++;
+    }
+
+    /**
+     * Remove posting of the document if present
+     */
+    void remove(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos >= 0) {
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    int freqs(int index) {
+        return freqs[index];
+    }
+}
@@ -0,0 +1,52 @@
+package net.filippov.newsportal.search;
+
+/**
+ * Searchable fields of an article as read from the database
+ *
+ * @author Oleg Filippov
+ */
+public class SearchDocument {
+
+    private final Long id;
+    private final String title;
+    private final String preview;
+    private final String content;
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public SearchDocument(Long id, String title, String preview, String content) {
+        this.id = id;
+        this.title = title;
+        this.preview = preview;
+        this.content = content;
+    }
+
+    /**
+     * @return article id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return article title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return article preview
+     */
+    public String getPreview() {
+        return preview;
+    }
+
+    /**
+     * @return article content
+     */
+    public String getContent() {
+        return content;
+    }
+}
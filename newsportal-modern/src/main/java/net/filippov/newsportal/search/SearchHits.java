@@ -0,0 +1,48 @@
+package net.filippov.newsportal.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a search: ids of requested hits ordered by relevance and
+ * the total number of matching articles
+ *
+ * @author Oleg Filippov
+ */
+public class SearchHits {
+
+    private static final SearchHits EMPTY = new SearchHits(0, Collections.emptyList());
+
+    private final long totalHits;
+    private final List<Long> articleIds;
+
+    /**
+     * @param totalHits number of matching articles
+     * @param articleIds ids of requested hits, best match first
+     */
+    public SearchHits(long totalHits, List<Long> articleIds) {
+        this.totalHits = totalHits;
+        this.articleIds = Collections.unmodifiableList(articleIds);
+    }
+
+    /**
+     * @return result without hits
+     */
+    public static SearchHits empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return number of matching articles
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return ids of requested hits, best match first
+     */
+    public List<Long> getArticleIds() {
+        return articleIds;
+    }
+}
@@ -0,0 +1,48 @@
+package net.filippov.newsportal.search;
+
+import java.util.Map;
+
+/**
+ * Part of the search index that can be scored on its own: the in-memory
+ * {@link InvertedIndex} holding fresh writes or an on-disk {@link MappedSegment}.
+ * Collection statistics are summed over all segments before scoring so that
+ * ranking doesn't depend on how articles are spread between them
+ *
+ * @author Oleg Filippov
+ */
+interface Segment {
+
+    /**
+     * @return number of live (not deleted) articles
+     */
+    int liveDocs();
+
+    /**
+     * @param field field number
+     * @return sum of the field lengths of live articles
+     */
+    long totalFieldLength(int field);
+
+    /**
+     * @param term analyzed term
+     * @return number of articles containing the term, deleted ones may be included
+     */
+    int docFreq(String term);
+
+    /**
+     * Add BM25F score of the term to every live article containing it
+     *
+     * @param term analyzed term
+     * @param stats collection statistics
+     * @param scores accumulated scores by article id
+     */
+    void score(String term, Bm25 stats, Map<Long, float[]> scores);
+
+    /**
+     * Mark the article as deleted
+     *
+     * @param articleId id of article
+     * @return true if the article was live in this segment
+     */
+    boolean delete(long articleId);
+}
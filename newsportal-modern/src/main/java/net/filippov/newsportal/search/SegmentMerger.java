@@ -0,0 +1,138 @@
+package net.filippov.newsportal.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges segments into one, dropping deleted articles. Term dictionaries are
+ * already sorted, so they are merged in a single pass with a priority queue
+ * and postings are streamed to the new segment term by term
+ *
+ * @author Oleg Filippov
+ */
+final class SegmentMerger {
+
+    private SegmentMerger() {
+    }
+
+    /**
+     * @param sources segments to merge, oldest first
+     * @param deletions deletions of each source to apply, a snapshot taken by the caller
+     * @param file segment file to create
+     * @throws IOException if the file cannot be written
+     */
+    static void merge(List<MappedSegment> sources, List<BitSet> deletions, Path file) throws IOException {
+        // Live documents of all sources ordered by article id: id in the high bits
+        // of the first long, source and ordinal in the second
+        List<long[]> docs = new ArrayList<>();
+        for (int s = 0; s < sources.size(); s++) {
+            MappedSegment source = sources.get(s);
+            BitSet deleted = deletions.get(s);
+            for (int ordinal = 0; ordinal < source.docCount(); ordinal++) {
+                if (!deleted.get(ordinal)) {
+                    docs.add(new long[] { source.articleId(ordinal), ((long) s << 32) | ordinal });
+                }
+            }
+        }
+        // On equal ids the newer source wins, it sorts last
+        docs.sort((x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+
+        int[][] newOrdinals = new int[sources.size()][];
+        for (int s = 0; s < sources.size(); s++) {
+            newOrdinals[s] = new int[sources.get(s).docCount()];
+            Arrays.fill(newOrdinals[s], -1);
+        }
+        long[] ids = new long[docs.size()];
+        int[] lengths = new int[docs.size() * InvertedIndex.FIELDS];
+        int count = 0;
+        for (int i = 0; i < docs.size(); i++) {
+            long[] doc = docs.get(i);
+            if (i + 1 < docs.size() && docs.get(i + 1)[0] == doc[0]) {
+                continue;
+            }
+            int s = (int) (doc[1] >>> 32);
+            int ordinal = (int) doc[1];
+            newOrdinals[s][ordinal] = count;
+            ids[count] = doc[0];
+            for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+                lengths[count * InvertedIndex.FIELDS + field] = sources.get(s).fieldLength(ordinal, field);
+            }
+            count++;
+        }
+
+        try (SegmentWriter writer = new SegmentWriter(file, Arrays.copyOf(ids, count),
+                Arrays.copyOf(lengths, count * InvertedIndex.FIELDS))) {
+            PriorityQueue<TermCursor> queue = new PriorityQueue<>();
+            for (int s = 0; s < sources.size(); s++) {
+                TermCursor cursor = new TermCursor(sources.get(s), s);
+                if (cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+            long[] merged = new long[16];
+            long[] postings = new long[16];
+            while (!queue.isEmpty()) {
+                byte[] term = queue.peek().term;
+                int size = 0;
+                while (!queue.isEmpty() && Arrays.equals(queue.peek().term, term)) {
+                    TermCursor cursor = queue.poll();
+                    int docFreq = cursor.segment.docFreq(cursor.index);
+                    if (postings.length < docFreq) {
+                        postings = new long[docFreq];
+                    }
+                    cursor.segment.postings(cursor.index, postings);
+                    if (merged.length < size + docFreq) {
+                        merged = Arrays.copyOf(merged, Math.max(merged.length * 2, size + docFreq));
+                    }
+                    for (int i = 0; i < docFreq; i++) {
+                        int ordinal = newOrdinals[cursor.source][(int) (postings[i] >>> 32)];
+                        if (ordinal >= 0) {
+                            merged[size++] = ((long) ordinal << 32) | (postings[i] & 0xFFFFFFFFL);
+                        }
+                    }
+                    if (cursor.next()) {
+                        queue.add(cursor);
+                    }
+                }
+                Arrays.sort(merged, 0, size);
+                writer.addTerm(term, merged, size);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Position in the term dictionary of one source
+     */
+    private static class TermCursor implements Comparable<TermCursor> {
+
+        private final MappedSegment segment;
+        private final int source;
+        private int index = -1;
+        private byte[] term;
+
+        TermCursor(MappedSegment segment, int source) {
+            this.segment = segment;
+            this.source = source;
+        }
+
+        boolean next() {
+            if (++index >= segment.termCount()) {
+                return false;
+            }
+            term = segment.term(index);
+            return true;
+        }
+
+        @Override
+        public int compareTo(TermCursor other) {
+            int cmp = Arrays.compareUnsigned(term, other.term);
+            return cmp != 0 ? cmp : Integer.compare(source, other.source);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package net.filippov.newsportal.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Writes an immutable segment file read by {@link MappedSegment}.
+ * Postings are streamed to a temporary file, the term dictionary and the
+ * footer are appended by {@link #finish()}, which then atomically moves the
+ * file in place. A segment that wasn't finished is deleted on close.
+ * <p>
+ * Layout, all numbers big-endian:
+ * <pre>
+ * docs       docCount x (long articleId, int titleLength, int previewLength, int contentLength)
+ * postings   per term: docFreq x (varint ordinal delta, varint packed freqs)
+ * terms      UTF-8 bytes of all terms, sorted as unsigned bytes
+ * term index termCount x (int termOffset, int termLength, int docFreq, long postingsOffset)
+ * footer     see {@link MappedSegment}
+ * </pre>
+ * Documents must be given in ascending article id order and terms in
+ * ascending unsigned byte order
+ *
+ * @author Oleg Filippov
+ */
+class SegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x4E505349; // "NPSI"
+    static final int VERSION = 1;
+    static final int DOC_SIZE = Long.BYTES + InvertedIndex.FIELDS * Integer.BYTES;
+    static final int TERM_ENTRY_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    static final int FOOTER_SIZE = 4 * Integer.BYTES + (InvertedIndex.FIELDS + 3) * Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final Path tmp;
+    private final FileOutputStream stream;
+    private final DataOutputStream out;
+    private final int docCount;
+    private final long[] totalFieldLengths = new long[InvertedIndex.FIELDS];
+
+    private final ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream termIndexBytes = new ByteArrayOutputStream();
+    private final DataOutputStream termIndex = new DataOutputStream(termIndexBytes);
+    private int termCount;
+    private byte[] lastTerm;
+
+    private long position;
+    private long postingsStart;
+    private boolean finished;
+
+    /**
+     * @param file segment file to create
+     * @param articleIds article ids in ascending order, their index is the document ordinal
+     * @param fieldLengths field lengths of each document, {@link InvertedIndex#FIELDS} per document
+     * @throws IOException if the file cannot be written
+     */
+    SegmentWriter(Path file, long[] articleIds, int[] fieldLengths) throws IOException {
+        this.file = file;
+        this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.stream = new FileOutputStream(tmp.toFile());
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        this.docCount = articleIds.length;
+        try {
+            for (int i = 0; i < articleIds.length; i++) {
+                if (i > 0 && articleIds[i] <= articleIds[i - 1]) {
+                    throw new IllegalArgumentException("Article ids must be ascending");
+                }
+                out.writeLong(articleIds[i]);
+                for (int field = 0; field < InvertedIndex.FIELDS; field++) {
+                    int length = fieldLengths[i * InvertedIndex.FIELDS + field];
+                    out.writeInt(length);
+                    totalFieldLengths[field] += length;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        position = (long) docCount * DOC_SIZE;
+        postingsStart = position;
+    }
+
+    /**
+     * Append postings of the next term
+     *
+     * @param term UTF-8 bytes of the term
+     * @param postings document ordinal in the high and packed frequencies in the low
+     * 32 bits of each posting, in ascending ordinal order
+     * @param count number of postings to take from the array
+     * @throws IOException if the file cannot be written
+     */
+    void addTerm(byte[] term, long[] postings, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (lastTerm != null && Arrays.compareUnsigned(lastTerm, term) >= 0) {
+            throw new IllegalArgumentException("Terms must be ascending");
+        }
+        lastTerm = term;
+
+        termIndex.writeInt(termBytes.size());
+        termIndex.writeInt(term.length);
+        termIndex.writeInt(count);
+        termIndex.writeLong(position);
+        termBytes.write(term);
+        termCount++;
+
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int ordinal = (int) (postings[i] >>> 32);
+            writeVarInt(ordinal - previous);
+            writeVarInt((int) postings[i]);
+            previous = ordinal;
+        }
+    }
+
+    /**
+     * Write the term dictionary and footer, sync and move the file in place
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void finish() throws IOException {
+        long termsStart = position;
+        termBytes.writeTo(out);
+        long termIndexStart = termsStart + termBytes.size();
+        termIndexBytes.writeTo(out);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(docCount);
+        out.writeInt(termCount);
+        for (long total : totalFieldLengths) {
+            out.writeLong(total);
+        }
+        out.writeLong(postingsStart);
+        out.writeLong(termsStart);
+        out.writeLong(termIndexStart);
+        out.writeInt(MAGIC);
+        out.flush();
+        stream.getChannel().force(true);
+        out.close();
+
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+            position++;
+        }
+        out.writeByte(value);
+        position++;
+    }
+}
@@ -0,0 +1,442 @@
+package net.filippov.newsportal.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Search index persisted in a directory as immutable memory-mapped
+ * {@link MappedSegment}s plus an in-memory {@link InvertedIndex} buffering
+ * recent changes. Updating an article deletes it from every segment and adds
+ * it to the buffer; {@link #commit()} writes the buffer as a new segment,
+ * persists deletions and then atomically replaces the manifest listing the
+ * live segments, so a crash leaves the last committed state intact.
+ * Small segments are merged in the background by {@link #maybeMerge()}.
+ * <p>
+ * Searches run without locks against a snapshot of the segment list; all
+ * modifications are serialized
+ *
+ * @author Oleg Filippov
+ */
+public class SegmentedIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentedIndex.class);
+
+    static final String MANIFEST = "segments.properties";
+    private static final String SEGMENT_PREFIX = "seg_";
+    private static final double MAX_DELETED_RATIO = 0.3;
+
+    private final Path directory;
+    private final Analyzer analyzer;
+    private final float[] boosts;
+    private final int maxBufferedDocs;
+    private final int maxSegments;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock mergeLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+    private volatile long committedAt;
+    private int nextSegment;
+    private boolean dirty;
+
+    private SegmentedIndex(Path directory, Analyzer analyzer, float[] boosts, int maxBufferedDocs,
+            int maxSegments) {
+        this.directory = directory;
+        this.analyzer = analyzer;
+        this.boosts = boosts.clone();
+        this.maxBufferedDocs = maxBufferedDocs;
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * Open the index committed to the directory
+     *
+     * @param directory index directory
+     * @param analyzer analyzer for documents and queries
+     * @param boosts weights of title, preview and content
+     * @param maxBufferedDocs number of buffered articles that triggers a new segment
+     * @param maxSegments number of segments above which they are merged
+     * @return opened index
+     * @throws IOException if there is no committed index or it cannot be read
+     */
+    public static SegmentedIndex open(Path directory, Analyzer analyzer, float[] boosts, int maxBufferedDocs,
+            int maxSegments) throws IOException {
+        Properties manifest = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(MANIFEST), StandardCharsets.UTF_8)) {
+            manifest.load(reader);
+        }
+        SegmentedIndex index = new SegmentedIndex(directory, analyzer, boosts, maxBufferedDocs, maxSegments);
+        index.nextSegment = Integer.parseInt(manifest.getProperty("nextSegment"));
+        index.committedAt = Long.parseLong(manifest.getProperty("committedAt"));
+        List<MappedSegment> segments = new ArrayList<>();
+        String names = manifest.getProperty("segments", "");
+        for (String name : names.split(",")) {
+            if (!name.isEmpty()) {
+                segments.add(MappedSegment.open(directory, name));
+            }
+        }
+        index.snapshot = new Snapshot(new InvertedIndex(analyzer, boosts), segments);
+        index.deleteUnreferencedFiles();
+        return index;
+    }
+
+    /**
+     * Create an empty index, the directory must not hold another one
+     *
+     * @return created index, committed
+     * @throws IOException if the directory cannot be written
+     * @see #open(Path, Analyzer, float[], int, int)
+     */
+    public static SegmentedIndex create(Path directory, Analyzer analyzer, float[] boosts, int maxBufferedDocs,
+            int maxSegments) throws IOException {
+        Files.createDirectories(directory);
+        if (Files.exists(directory.resolve(MANIFEST))) {
+            throw new IOException("Search index already exists in " + directory);
+        }
+        SegmentedIndex index = new SegmentedIndex(directory, analyzer, boosts, maxBufferedDocs, maxSegments);
+        index.snapshot = new Snapshot(new InvertedIndex(analyzer, boosts), Collections.emptyList());
+        index.dirty = true;
+        index.commit();
+        return index;
+    }
+
+    /**
+     * @return index directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return time of the last commit, changes made before it are on disk
+     */
+    public long getCommittedAt() {
+        return committedAt;
+    }
+
+    /**
+     * @return number of on-disk segments
+     */
+    public int getSegmentCount() {
+        return snapshot.segments.size();
+    }
+
+    /**
+     * @return number of indexed articles
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        int size = current.buffer.size();
+        for (MappedSegment segment : current.segments) {
+            size += segment.liveDocs();
+        }
+        return size;
+    }
+
+    /**
+     * @param query user query
+     * @param offset number of best hits to skip
+     * @param limit maximum number of hits to return
+     * @return requested hits and total number of matches
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        Snapshot current = snapshot;
+        List<Segment> segments = new ArrayList<>(current.segments.size() + 1);
+        segments.addAll(current.segments);
+        segments.add(current.buffer);
+        return Bm25.search(segments, analyzer.analyze(query), boosts, offset, limit);
+    }
+
+    /**
+     * Add the document or replace its previous version. Writes a new segment
+     * once the buffer is full
+     *
+     * @param document document to index
+     */
+    public void add(SearchDocument document) {
+        writeLock.lock();
+        try {
+            Snapshot current = snapshot;
+            for (MappedSegment segment : current.segments) {
+                segment.delete(document.getId());
+            }
+            current.buffer.add(document);
+            dirty = true;
+            if (current.buffer.size() >= maxBufferedDocs) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write search index segment", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param articleId id of article to remove
+     */
+    public void remove(long articleId) {
+        writeLock.lock();
+        try {
+            Snapshot current = snapshot;
+            for (MappedSegment segment : current.segments) {
+                segment.delete(articleId);
+            }
+            current.buffer.remove(articleId);
+            dirty = true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Delete on-disk articles rejected by the filter, used to drop articles
+     * deleted from the database while the index wasn't running
+     *
+     * @param keep true for article ids to keep
+     * @return number of deleted articles
+     */
+    public int retain(LongPredicate keep) {
+        writeLock.lock();
+        try {
+            int deleted = 0;
+            for (MappedSegment segment : snapshot.segments) {
+                BitSet deletions = segment.deletions();
+                BitSet rejected = new BitSet();
+                for (int ordinal = 0; ordinal < segment.docCount(); ordinal++) {
+                    if (!deletions.get(ordinal) && !keep.test(segment.articleId(ordinal))) {
+                        rejected.set(ordinal);
+                    }
+                }
+                deleted += segment.deleteOrdinals(rejected);
+            }
+            dirty |= deleted > 0;
+            return deleted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write buffered articles as a new segment, persist deletions and the
+     * manifest. Does nothing if there were no changes since the last commit
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void commit() throws IOException {
+        writeLock.lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            flush();
+            List<MappedSegment> segments = new ArrayList<>();
+            for (MappedSegment segment : snapshot.segments) {
+                // Fully deleted segments are dropped rather than merged
+                if (segment.liveDocs() > 0) {
+                    segment.commitDeletions();
+                    segments.add(segment);
+                }
+            }
+            if (segments.size() < snapshot.segments.size()) {
+                snapshot = new Snapshot(snapshot.buffer, segments);
+            }
+            writeManifest(started);
+            dirty = false;
+            deleteUnreferencedFiles();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Merge segments if there are more than allowed or some are mostly
+     * deleted. Runs outside the write lock, only the final swap blocks writers
+     *
+     * @return true if segments were merged
+     * @throws IOException if the index cannot be written
+     */
+    public boolean maybeMerge() throws IOException {
+        if (!mergeLock.tryLock()) {
+            return false;
+        }
+        try {
+            List<MappedSegment> sources = selectMerge(snapshot.segments);
+            if (sources.isEmpty()) {
+                return false;
+            }
+            String name;
+            List<BitSet> deletions = new ArrayList<>(sources.size());
+            writeLock.lock();
+            try {
+                name = SEGMENT_PREFIX + nextSegment++;
+                for (MappedSegment source : sources) {
+                    deletions.add(source.deletions());
+                }
+            } finally {
+                writeLock.unlock();
+            }
+
+            long started = System.currentTimeMillis();
+            SegmentMerger.merge(sources, deletions, MappedSegment.segmentFile(directory, name));
+            MappedSegment merged = MappedSegment.open(directory, name);
+
+            writeLock.lock();
+            try {
+                // Replay deletions made while merging
+                for (int s = 0; s < sources.size(); s++) {
+                    MappedSegment source = sources.get(s);
+                    BitSet missed = (BitSet) source.deletions().clone();
+                    missed.andNot(deletions.get(s));
+                    BitSet replayed = new BitSet();
+                    for (int ordinal = missed.nextSetBit(0); ordinal >= 0; ordinal = missed.nextSetBit(ordinal + 1)) {
+                        int mergedOrdinal = merged.ordinal(source.articleId(ordinal));
+                        if (mergedOrdinal >= 0) {
+                            replayed.set(mergedOrdinal);
+                        }
+                    }
+                    merged.deleteOrdinals(replayed);
+                }
+                List<MappedSegment> segments = new ArrayList<>();
+                boolean inserted = false;
+                for (MappedSegment segment : snapshot.segments) {
+                    if (!sources.contains(segment)) {
+                        segments.add(segment);
+                    } else if (!inserted) {
+                        segments.add(merged);
+                        inserted = true;
+                    }
+                }
+                snapshot = new Snapshot(snapshot.buffer, segments);
+                dirty = true;
+            } finally {
+                writeLock.unlock();
+            }
+            commit();
+            LOG.info("Merged {} search index segments into {} with {} articles in {} ms", sources.size(), name,
+                    merged.liveDocs(), System.currentTimeMillis() - started);
+            return true;
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Segments to merge: the smallest ones once there are too many, else the
+     * first mostly deleted segment on its own
+     */
+    private List<MappedSegment> selectMerge(List<MappedSegment> segments) {
+        if (segments.size() > maxSegments) {
+            List<MappedSegment> bySize = new ArrayList<>(segments);
+            bySize.sort((x, y) -> Integer.compare(x.liveDocs(), y.liveDocs()));
+            return bySize.subList(0, Math.max(2, segments.size() - maxSegments + 1));
+        }
+        for (MappedSegment segment : segments) {
+            if (segment.docCount() > 0 && segment.docCount() - segment.liveDocs() > segment.docCount()
+                    * MAX_DELETED_RATIO) {
+                return List.of(segment);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Write the buffer as a new segment and start a fresh one, called with the write lock held
+     */
+    private void flush() throws IOException {
+        Snapshot current = snapshot;
+        if (current.buffer.size() == 0) {
+            return;
+        }
+        String name = SEGMENT_PREFIX + nextSegment++;
+        current.buffer.writeSegment(MappedSegment.segmentFile(directory, name));
+        List<MappedSegment> segments = new ArrayList<>(current.segments);
+        segments.add(MappedSegment.open(directory, name));
+        snapshot = new Snapshot(new InvertedIndex(analyzer, boosts), segments);
+    }
+
+    private void writeManifest(long timestamp) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (MappedSegment segment : snapshot.segments) {
+            names.add(segment.getName());
+        }
+        Properties manifest = new Properties();
+        manifest.setProperty("segments", String.join(",", names));
+        manifest.setProperty("nextSegment", String.valueOf(nextSegment));
+        manifest.setProperty("committedAt", String.valueOf(timestamp));
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            manifest.store(writer, "Search index segments");
+        }
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        committedAt = timestamp;
+    }
+
+    /**
+     * Remove files of merged segments and leftovers of interrupted writes.
+     * Called with the write lock held, or before the index is shared, so no
+     * segment is being flushed and no manifest written meanwhile; only a
+     * merge writes a segment without it
+     */
+    private void deleteUnreferencedFiles() {
+        Set<String> live = new HashSet<>();
+        live.add(MANIFEST);
+        for (MappedSegment segment : snapshot.segments) {
+            live.add(segment.getName() + ".seg");
+            live.add(segment.getName() + ".del");
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!live.contains(name) && !isBeingWritten(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            // Mapped files can't be deleted on some platforms, retried on the next commit
+            LOG.debug("Failed to delete unused search index files in {}", directory, e);
+        }
+    }
+
+    private boolean isBeingWritten(String name) {
+        if (!mergeLock.isLocked() || mergeLock.isHeldByCurrentThread()) {
+            return false;
+        }
+        return name.startsWith(SEGMENT_PREFIX);
+    }
+
+    /**
+     * Buffer and on-disk segments visible to searches
+     */
+    private static final class Snapshot {
+
+        private final InvertedIndex buffer;
+        private final List<MappedSegment> segments;
+
+        Snapshot(InvertedIndex buffer, List<MappedSegment> segments) {
+            this.buffer = buffer;
+            this.segments = Collections.unmodifiableList(segments);
+        }
+    }
+}
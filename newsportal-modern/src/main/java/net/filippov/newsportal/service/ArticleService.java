@@ -6,6 +6,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleCursor;
+import net.filippov.newsportal.domain.ArticleSlice;
+import net.filippov.newsportal.domain.ArticleSummary;
 
 public interface ArticleService {
 
@@ -13,17 +16,25 @@ public interface ArticleService {
 
     Article get(Long id);
 
-    Article get(Long id, Long userId); // With view count logic
+    Article get(Long id, Long userId, long readerKey); // With view count logic, see ReaderKey
 
-    Page<Article> getAll(Pageable pageable);
+    Page<ArticleSummary> getAll(Pageable pageable);
 
-    Page<Article> getByCategory(String categoryName, Pageable pageable);
+    Page<ArticleSummary> getByCategory(String categoryName, Pageable pageable);
 
-    Page<Article> getByTag(String tagName, Pageable pageable);
+    Page<ArticleSummary> getByTag(String tagName, Pageable pageable);
 
-    Page<Article> getByAuthor(Long authorId, Pageable pageable);
+    Page<ArticleSummary> getByAuthor(Long authorId, Pageable pageable);
 
-    Page<Article> search(String fragment, Pageable pageable);
+    ArticleSlice scrollAll(ArticleCursor cursor, int size); // Keyset pagination, null cursor for the first slice
+
+    ArticleSlice scrollByCategory(String categoryName, ArticleCursor cursor, int size);
+
+    ArticleSlice scrollByTag(String tagName, ArticleCursor cursor, int size);
+
+    ArticleSlice scrollByAuthor(Long authorId, ArticleCursor cursor, int size);
+
+    Page<ArticleSummary> search(String fragment, Pageable pageable);
 
     Article add(Article article, Long authorId, String categoryName, String tagString);
 
@@ -33,7 +44,15 @@ public interface ArticleService {
 
     void delete(Long id);
 
-    List<Article> getTopViewed();
+    List<ArticleSummary> getTopViewed();
+
+    List<ArticleSummary> getMostPopular(int limit); // Trending articles, most viewed while not yet known
+
+    List<ArticleSummary> getMostPopular(String categoryName, int limit);
+
+    List<ArticleSummary> getRelated(Long id); // By shared tags, category and recency
+
+    List<ArticleSummary> getSimilar(Long id); // By text, estimated from MinHash signatures
 
-    List<Article> getMostPopular(int limit);
+    List<ArticleSummary> getNearDuplicates(Long id); // Nearly the same text, such as a republished story
 }
@@ -1,12 +1,18 @@
 package net.filippov.newsportal.service;
 
-import java.util.List;
-
 import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.CommentCursor;
+import net.filippov.newsportal.domain.CommentSlice;
 
 public interface CommentService {
 
     void add(Comment comment);
 
-    List<Comment> getByArticleId(Long articleId);
+    /**
+     * @param articleId commented article
+     * @param cursor position to continue from, null for the newest comments
+     * @param size maximum number of comments
+     * @return comments older than the cursor, newest first
+     */
+    CommentSlice getByArticleId(Long articleId, CommentCursor cursor, int size);
 }
@@ -0,0 +1,26 @@
+package net.filippov.newsportal.service;
+
+import java.util.Set;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.Category;
+import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.Tag;
+
+/**
+ * Maintains denormalized article and comment counters of articles, categories,
+ * tags and users. Counters are changed with relative updates in the caller's
+ * transaction; {@link #reconcile()} recomputes them to repair any drift
+ */
+public interface CounterService {
+
+    void articleAdded(Article article);
+
+    void articleUpdated(Article article, Category previousCategory, Set<Tag> previousTags);
+
+    void articleDeleted(Article article);
+
+    void commentAdded(Comment comment);
+
+    int reconcile();
+}
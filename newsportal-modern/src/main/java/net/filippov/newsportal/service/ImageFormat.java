@@ -0,0 +1,60 @@
+package net.filippov.newsportal.service;
+
+/**
+ * Image formats accepted for upload, recognized by the signature their files
+ * start with rather than by name or declared type
+ */
+public enum ImageFormat {
+
+    JPEG(".jpg", new int[] { 0xFF, 0xD8, 0xFF }),
+    PNG(".png", new int[] { 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A }),
+    /**
+     * A RIFF container, whose size is in bytes 4 to 7, of type WEBP
+     */
+    WEBP(".webp", new int[] { 'R', 'I', 'F', 'F', -1, -1, -1, -1, 'W', 'E', 'B', 'P' });
+
+    private final String extension;
+
+    /**
+     * Leading bytes, {@code -1} matching any
+     */
+    private final int[] signature;
+
+    ImageFormat(String extension, int[] signature) {
+        this.extension = extension;
+        this.signature = signature;
+    }
+
+    /**
+     * @return file extension images of this format are stored with
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param head first bytes of a file
+     * @param length number of bytes read into {@code head}
+     * @return format of the file, {@code null} if it is none of these
+     */
+    public static ImageFormat detect(byte[] head, int length) {
+        for (ImageFormat format : values()) {
+            if (format.matches(head, length)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(byte[] head, int length) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] != -1 && (head[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,27 +1,187 @@
 package net.filippov.newsportal.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import io.micrometer.core.annotation.Timed;
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ImageVariants;
+import net.filippov.newsportal.repository.ArticleRepository;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.service.event.ImageDeletedEvent;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
 /**
- * Service for handling article image uploads and management
+ * Service for handling article image uploads and management.
+ * <p>
+ * Images are stored by content under {@code newsportal.images.dir}: the
+ * SHA-256 of an upload, computed while it is written, names the file and two
+ * levels of directories below, so the same image uploaded again is stored
+ * once and a URL always denotes the same bytes. Images are not counted but
+ * looked up by URL among the articles, so one is deleted only when no article
+ * uses it any more. A stored image is kept for
+ * {@code newsportal.images.orphan-grace-hours} since it was last uploaded, as
+ * the article using it may not be saved yet; a nightly sweep removes images
+ * nothing ever referenced. Images uploaded before are still read from
+ * {@code /images/articles}.
+ * <p>
+ * Uploads are streamed to the store one block at a time: the first block must
+ * start with the signature of an accepted {@link ImageFormat}, which names
+ * the stored file, and the size limit is enforced on the bytes actually read.
+ * <p>
+ * Every upload gets resized copies of the configured widths, made in the
+ * background by a bounded pool of workers so the upload request does not wait
+ * for them. Widths of the copies are recorded on the articles using the image
+ * once they are written; until then, or if the queue is full, pages show the
+ * original.
  */
 @Service
+@Timed("newsportal.service")
 public class ImageService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ImageService.class);
+
+    /**
+     * URL prefix of images in the store
+     */
+    public static final String MEDIA_URL_PREFIX = "/media/";
+
     private static final String UPLOAD_DIR = "src/main/resources/static/images/articles";
+    private static final String UPLOAD_URL_PREFIX = "/images/articles/";
+    private static final Pattern STORED_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int SWEEP_BATCH_SIZE = 500;
     private static final String[] ALLOWED_EXTENSIONS = { ".jpg", ".jpeg", ".png", ".webp" };
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+    private static final int BLOCK_SIZE = 64 * 1024;
 
     /**
-     * Save uploaded image file
+     * Largest image, in pixels, decoded to make resized copies
+     */
+    private static final long MAX_PIXELS = 40_000_000L;
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final String SET_VARIANTS_SQL = "UPDATE article SET image_variants = ? WHERE image_url = ?";
+
+    private final ArticleRepository articleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path storeDir;
+    private final Duration orphanGrace;
+    private final List<Integer> variantWidths;
+    private final int workers;
+    private final int queueCapacity;
+
+    /**
+     * Guards checking and removing or renewing a stored image. A lock rather
+     * than a monitor, so a virtual thread doing file I/O under it does not
+     * pin its carrier
+     */
+    private final ReentrantLock storeLock = new ReentrantLock();
+
+    private ThreadPoolExecutor executor;
+
+    public ImageService(ArticleRepository articleRepository, PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${newsportal.images.dir:data/images}") String storeDir,
+            @Value("${newsportal.images.orphan-grace-hours:24}") long orphanGraceHours,
+            @Value("${newsportal.images.variant-widths:320,640,1280}") List<Integer> variantWidths,
+            @Value("${newsportal.images.workers:2}") int workers,
+            @Value("${newsportal.images.queue-capacity:100}") int queueCapacity) {
+        this.articleRepository = articleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.storeDir = Paths.get(storeDir).toAbsolutePath().normalize();
+        this.orphanGrace = Duration.ofHours(orphanGraceHours);
+        // Also used after commit of another transaction, so always a new one
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Integer> widths = new ArrayList<>(variantWidths);
+        Collections.sort(widths);
+        this.variantWidths = List.copyOf(widths);
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "image-variants-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Save uploaded image file, or renew the stored one with the same content
      * 
      * @param file the uploaded file
      * @return the relative path to the saved image
@@ -31,50 +191,400 @@ public class ImageService {
     public String saveImage(MultipartFile file) throws IOException {
         validateImage(file);
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-        String filename = UUID.randomUUID().toString() + extension;
+        Files.createDirectories(storeDir);
+        Path temp = Files.createTempFile(storeDir, ".upload", TEMP_SUFFIX);
+        try {
+            MessageDigest digest = sha256();
+            ImageFormat format;
+            try (InputStream input = file.getInputStream()) {
+                format = copy(input, temp, digest);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String name = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + format.getExtension();
+            Path stored = storeDir.resolve(name);
+            String imageUrl = MEDIA_URL_PREFIX + name;
 
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            boolean added;
+            storeLock.lock();
+            try {
+                added = !Files.exists(stored);
+                if (added) {
+                    Files.createDirectories(stored.getParent());
+                    Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    // Kept for the grace period again, the new article using it is not saved yet
+                    Files.setLastModifiedTime(stored, FileTime.from(Instant.now()));
+                }
+            } finally {
+                storeLock.unlock();
+            }
+            if (added || variantsOnDisk(stored) == null) {
+                submitVariants(stored, imageUrl);
+            }
+            return imageUrl;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-        // Return relative path for web access
-        return "/images/articles/" + filename;
+    /**
+     * Write an upload to a file, checking its format on the first block and
+     * its size and hash on every block as it is written. Package-private and
+     * static so the benchmarks module measures it without a service instance
+     *
+     * @return format of the image
+     * @throws IllegalArgumentException if it is not an accepted image or too
+     *                                  large
+     */
+    static ImageFormat copy(InputStream input, Path target, MessageDigest digest) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        int read = input.readNBytes(block, 0, block.length);
+        ImageFormat format = ImageFormat.detect(block, read);
+        if (format == null) {
+            throw new IllegalArgumentException("File content is not a JPG, PNG or WEBP image");
+        }
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (read > 0) {
+                size += read;
+                if (size > MAX_FILE_SIZE) {
+                    throw new IllegalArgumentException("File size must not exceed 5MB");
+                }
+                digest.update(block, 0, read);
+                ByteBuffer buffer = ByteBuffer.wrap(block, 0, read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                read = input.read(block);
+            }
+        }
+        return format;
     }
 
     /**
-     * Delete an image file
+     * Delete an image and its resized copies, unless an article still uses it
+     * or it was uploaded within the grace period
      * 
      * @param imageUrl the relative path of the image to delete
+     * @return whether the image was deleted
      */
-    public void deleteImage(String imageUrl) {
+    public boolean deleteImage(String imageUrl) {
         if (imageUrl == null || imageUrl.isEmpty()) {
+            return false;
+        }
+        Path original = resolve(imageUrl);
+        if (original == null || articleRepository.countByImageUrl(imageUrl) > 0) {
+            return false;
+        }
+        try {
+            return deleteUnreferenced(imageUrl, original);
+        } catch (IOException e) {
+            // Deletion failure shouldn't break the application, the sweep retries it
+            LOG.warn("Failed to delete image {}", imageUrl, e);
+            return false;
+        }
+    }
+
+    /**
+     * Delete stored images no article uses that were uploaded before the grace
+     * period, and uploads abandoned half-written
+     *
+     * @return number of images deleted
+     */
+    @Scheduled(cron = "${newsportal.images.sweep-cron:0 0 4 * * *}")
+    public int sweep() {
+        if (!Files.isDirectory(storeDir)) {
+            return 0;
+        }
+        long started = System.currentTimeMillis();
+        int deleted = 0;
+        Map<String, Path> candidates = new HashMap<>();
+        try (Stream<Path> files = Files.walk(storeDir)) {
+            for (Iterator<Path> it = files.iterator(); it.hasNext();) {
+                Path file = it.next();
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX) && !withinGrace(file)) {
+                    Files.deleteIfExists(file);
+                } else if (STORED_NAME.matcher(name).matches() && !withinGrace(file)) {
+                    candidates.put(urlOf(file), file);
+                    if (candidates.size() == SWEEP_BATCH_SIZE) {
+                        deleted += deleteUnreferenced(candidates);
+                        candidates.clear();
+                    }
+                }
+            }
+            deleted += deleteUnreferenced(candidates);
+        } catch (IOException e) {
+            LOG.warn("Image sweep stopped", e);
+        }
+        LOG.info("Deleted {} unused images in {} ms", deleted, System.currentTimeMillis() - started);
+        return deleted;
+    }
+
+    private int deleteUnreferenced(Map<String, Path> candidates) throws IOException {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>(articleRepository.findImageUrlsIn(candidates.keySet()));
+        int deleted = 0;
+        for (Map.Entry<String, Path> candidate : candidates.entrySet()) {
+            if (!referenced.contains(candidate.getKey())
+                    && deleteUnreferenced(candidate.getKey(), candidate.getValue())) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean deleteUnreferenced(String imageUrl, Path original) throws IOException {
+        storeLock.lock();
+        try {
+            if (!Files.exists(original) || withinGrace(original)) {
+                return false;
+            }
+            Files.delete(original);
+            for (int width : variantWidths) {
+                Files.deleteIfExists(variantPath(original, width));
+            }
+        } finally {
+            storeLock.unlock();
+        }
+        eventPublisher.publishEvent(new ImageDeletedEvent(imageUrl));
+        return true;
+    }
+
+    private boolean withinGrace(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toInstant().isAfter(Instant.now().minus(orphanGrace));
+    }
+
+    /**
+     * @param imageUrl URL of an image or of one of its resized copies
+     * @return file of an image in the store or uploaded before it, {@code null}
+     *         for any other URL
+     */
+    public Path resolve(String imageUrl) {
+        if (imageUrl.startsWith(MEDIA_URL_PREFIX)) {
+            Path path = storeDir.resolve(imageUrl.substring(MEDIA_URL_PREFIX.length())).normalize();
+            return path.startsWith(storeDir) ? path : null;
+        }
+        if (imageUrl.startsWith(UPLOAD_URL_PREFIX)) {
+            return Paths.get(UPLOAD_DIR, imageUrl.substring(imageUrl.lastIndexOf("/") + 1));
+        }
+        return null;
+    }
+
+    private String urlOf(Path stored) {
+        return MEDIA_URL_PREFIX + storeDir.relativize(stored).toString().replace('\\', '/');
+    }
+
+    /**
+     * Queue making resized copies of an image, it is served as is if the
+     * queue is full
+     */
+    private void submitVariants(Path original, String imageUrl) {
+        try {
+            executor.execute(() -> makeVariants(original, imageUrl));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Image queue is full, {} is served without resized copies", imageUrl);
+        }
+    }
+
+    /**
+     * Write resized copies of an image and record their widths on the
+     * articles using it
+     */
+    void makeVariants(Path original, String imageUrl) {
+        try {
+            List<Integer> widths = resize(original);
+            if (!widths.isEmpty()) {
+                String variants = ImageVariants.join(widths);
+                evict(transactionTemplate.execute(status -> setVariants(imageUrl, variants)));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Failed to make resized copies of {}", imageUrl, e);
+        }
+    }
+
+    /**
+     * Delete the image an article stopped using if no other article uses it,
+     * and record copies written before the article using the image was
+     * committed
+     */
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        deleteImage(event.getReleasedImageUrl());
+        if (event.getType() == ArticleChangedEvent.Type.DELETED) {
             return;
         }
+        evict(transactionTemplate.execute(status -> {
+            List<Long> updated = new ArrayList<>();
+            for (String imageUrl : articleRepository.findImageUrlWithoutVariants(event.getArticleId())) {
+                String variants = variantsOnDisk(imageUrl);
+                if (variants != null) {
+                    updated.addAll(setVariants(imageUrl, variants));
+                }
+            }
+            return updated;
+        }));
+    }
+
+    /**
+     * Record the widths of the resized copies of an image on the articles
+     * using it. Through JDBC, as a bulk HQL update would drop every article
+     * from the second-level cache
+     *
+     * @return ids of the updated articles, to evict once committed
+     */
+    private List<Long> setVariants(String imageUrl, String variants) {
+        jdbcTemplate.update(SET_VARIANTS_SQL, variants, imageUrl);
+        return articleRepository.findIdsByImageUrl(imageUrl);
+    }
+
+    private void evict(List<Long> articleIds) {
+        Cache cache = entityManagerFactory.getCache();
+        for (Long id : articleIds) {
+            cache.evict(Article.class, id);
+        }
+    }
+
+    private String variantsOnDisk(String imageUrl) {
+        Path original = resolve(imageUrl);
+        return original == null ? null : variantsOnDisk(original);
+    }
+
+    private String variantsOnDisk(Path original) {
+        List<Integer> widths = new ArrayList<>();
+        for (int width : variantWidths) {
+            if (Files.exists(variantPath(original, width))) {
+                widths.add(width);
+            }
+        }
+        return ImageVariants.join(widths);
+    }
 
+    /**
+     * Scale the image down to every configured width smaller than its own,
+     * each copy from the next larger one
+     *
+     * @return widths written, in ascending order
+     */
+    private List<Integer> resize(Path original) throws IOException {
+        String format = formatOf(original);
+        if (format == null) {
+            return List.of();
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return List.of();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    LOG.warn("Image {} of {}x{} is too large to resize", original, width, height);
+                    return List.of();
+                }
+                BufferedImage source = reader.read(0);
+                List<Integer> written = new ArrayList<>();
+                for (int i = variantWidths.size() - 1; i >= 0; i--) {
+                    int target = variantWidths.get(i);
+                    if (target >= width) {
+                        continue;
+                    }
+                    source = scale(source, target, Math.max(1, Math.round((float) height * target / width)),
+                            "png".equals(format));
+                    write(source, format, variantPath(original, target));
+                    written.add(0, target);
+                }
+                return written;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halve the image while it is more than twice too large, then scale to
+     * size, which keeps bilinear scaling sharp
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height, boolean alpha) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, alpha);
+        }
+        return current.getWidth() == width ? current : draw(current, width, height, alpha);
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, boolean alpha) {
+        BufferedImage scaled = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
         try {
-            // Extract filename from URL
-            String filename = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-            Path filePath = Paths.get(UPLOAD_DIR, filename);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
 
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+    /**
+     * Write next to the target and move in place, so a copy is never served
+     * half-written
+     */
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if ("jpeg".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
             }
-        } catch (IOException e) {
-            // Log error but don't throw - deletion failure shouldn't break the application
-            System.err.println("Failed to delete image: " + imageUrl);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return image format to write copies in, {@code null} if copies are not
+     *         made for this type, such as WebP which has no built-in codec
+     */
+    private static String formatOf(Path original) {
+        String name = original.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "jpeg";
+        }
+        if (name.endsWith(".png")) {
+            return "png";
+        }
+        return null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
 
+    private static Path variantPath(Path original, int width) {
+        return original.resolveSibling(ImageVariants.url(original.getFileName().toString(), width));
+    }
+
     /**
      * Get fallback image based on category
      * 
@@ -99,12 +609,13 @@ public class ImageService {
     }
 
     /**
-     * Validate uploaded image file
+     * Validate uploaded image file. Package-private and static, as it needs no
+     * state and is measured on its own by {@code ImageValidationBenchmark}
      * 
      * @param file the file to validate
      * @throws IllegalArgumentException if validation fails
      */
-    private void validateImage(MultipartFile file) {
+    static void validateImage(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Please select an image file to upload");
         }
@@ -0,0 +1,27 @@
+package net.filippov.newsportal.service;
+
+import java.util.List;
+
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.domain.CategorySummary;
+
+/**
+ * Data rendered in the sidebar of every page. Categories and tags are cached
+ * and evicted when articles or tags change, see
+ * {@link net.filippov.newsportal.config.CacheConfig}; top articles are served
+ * from {@link net.filippov.newsportal.trending.TrendingArticles}
+ */
+public interface SidebarService {
+
+    List<CategorySummary> getCategories();
+
+    List<String> getTagNames();
+
+    List<ArticleSummary> getTopViewed();
+
+    /**
+     * @return number changing whenever the top articles change, for entity
+     *         tags of pages showing them
+     */
+    long getTopViewedVersion();
+}
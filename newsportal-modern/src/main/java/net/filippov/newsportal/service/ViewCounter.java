@@ -0,0 +1,26 @@
+package net.filippov.newsportal.service;
+
+/**
+ * Accumulates article views in memory and writes them to the database
+ * asynchronously, so that viewing an article doesn't update its row
+ */
+public interface ViewCounter {
+
+    /**
+     * Register a single view of the given article
+     *
+     * @param articleId id of viewed article
+     */
+    void increment(Long articleId);
+
+    /**
+     * @param articleId id of article
+     * @return views registered for the article but not yet written to the database
+     */
+    long getPending(Long articleId);
+
+    /**
+     * Write all pending views to the database
+     */
+    void flush();
+}
@@ -0,0 +1,86 @@
+package net.filippov.newsportal.service.event;
+
+import java.util.Set;
+
+/**
+ * Published by the article service whenever an article is created, updated
+ * or deleted. Listeners keeping derived data (indexes, caches) in sync should
+ * handle it after the transaction commits
+ *
+ * @author Oleg Filippov
+ */
+public class ArticleChangedEvent {
+
+    /**
+     * Kind of change
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Long articleId;
+    private final Type type;
+    private final Set<String> categoryNames;
+    private final Set<String> tagNames;
+    private final String releasedImageUrl;
+
+    /**
+     * @param articleId id of changed article
+     * @param type kind of change
+     * @param categoryNames categories the article was or is now listed under
+     * @param tagNames tags the article was or is now listed under
+     * @param releasedImageUrl image the article no longer uses, or {@code null}
+     */
+    public ArticleChangedEvent(Long articleId, Type type, Set<String> categoryNames, Set<String> tagNames,
+            String releasedImageUrl) {
+        this.articleId = articleId;
+        this.type = type;
+        this.categoryNames = Set.copyOf(categoryNames);
+        this.tagNames = Set.copyOf(tagNames);
+        this.releasedImageUrl = releasedImageUrl;
+    }
+
+    /**
+     * @return id of changed article
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * @return kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return names of categories whose article lists are affected
+     */
+    public Set<String> getCategoryNames() {
+        return categoryNames;
+    }
+
+    /**
+     * @return names of tags whose article lists are affected
+     */
+    public Set<String> getTagNames() {
+        return tagNames;
+    }
+
+    /**
+     * @return image the article used before the change and no longer does,
+     *         {@code null} if it did not change
+     */
+    public String getReleasedImageUrl() {
+        return releasedImageUrl;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ArticleChangedEvent[articleId=%d, type=%s]", getArticleId(), getType());
+    }
+}
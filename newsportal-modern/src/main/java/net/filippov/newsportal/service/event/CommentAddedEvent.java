@@ -0,0 +1,33 @@
+package net.filippov.newsportal.service.event;
+
+/**
+ * Published when a comment is added to an article
+ *
+ * @author Oleg Filippov
+ */
+public class CommentAddedEvent {
+
+    private final Long articleId;
+
+    /**
+     * @param articleId id of commented article
+     */
+    public CommentAddedEvent(Long articleId) {
+        this.articleId = articleId;
+    }
+
+    /**
+     * @return id of commented article
+     */
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("CommentAddedEvent[articleId=%d]", getArticleId());
+    }
+}
@@ -0,0 +1,33 @@
+package net.filippov.newsportal.service.event;
+
+/**
+ * Published when a stored image and its resized copies are deleted
+ *
+ * @author Oleg Filippov
+ */
+public class ImageDeletedEvent {
+
+    private final String imageUrl;
+
+    /**
+     * @param imageUrl URL of deleted image
+     */
+    public ImageDeletedEvent(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    /**
+     * @return URL of deleted image
+     */
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ImageDeletedEvent[imageUrl=%s]", getImageUrl());
+    }
+}
@@ -0,0 +1,33 @@
+package net.filippov.newsportal.service.event;
+
+/**
+ * Published by the tag service when a new tag is stored
+ *
+ * @author Oleg Filippov
+ */
+public class TagCreatedEvent {
+
+    private final String name;
+
+    /**
+     * @param name name of created tag
+     */
+    public TagCreatedEvent(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return name of created tag
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("TagCreatedEvent[name=%s]", getName());
+    }
+}
@@ -1,18 +1,33 @@
 package net.filippov.newsportal.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import io.micrometer.core.annotation.Timed;
 import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleCursor;
+import net.filippov.newsportal.domain.ArticleSlice;
+import net.filippov.newsportal.domain.ArticleSummary;
 import net.filippov.newsportal.domain.Category;
 import net.filippov.newsportal.domain.Comment;
 import net.filippov.newsportal.domain.Tag;
@@ -20,37 +35,80 @@ import net.filippov.newsportal.domain.User;
 import net.filippov.newsportal.repository.ArticleRepository;
 import net.filippov.newsportal.repository.CategoryRepository;
 import net.filippov.newsportal.repository.CommentRepository;
-import net.filippov.newsportal.repository.TagRepository;
 import net.filippov.newsportal.repository.UserRepository;
+import net.filippov.newsportal.related.RelatedArticles;
+import net.filippov.newsportal.search.ArticleSearchIndex;
+import net.filippov.newsportal.search.SearchHits;
+import net.filippov.newsportal.similar.SimilarArticles;
 import net.filippov.newsportal.service.ArticleService;
+import net.filippov.newsportal.service.CounterService;
+import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.ViewCounter;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.service.event.CommentAddedEvent;
+import net.filippov.newsportal.trending.TrendingArticles;
+import net.filippov.newsportal.trending.UniqueReaders;
 
 @Service
 @Transactional
+@Timed("newsportal.service")
 public class ArticleServiceImpl implements ArticleService {
 
+    /**
+     * Position before the newest possible article (9999-12-31T23:59:59Z, still valid for MySQL)
+     */
+    private static final ArticleCursor FIRST_SLICE = new ArticleCursor(new Date(253402300799000L),
+            Long.MAX_VALUE, false);
+
     private final ArticleRepository articleRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
-    private final TagRepository tagRepository;
+    private final TagService tagService;
     private final CommentRepository commentRepository;
+    private final CounterService counterService;
+    private final ViewCounter viewCounter;
+    private final ArticleSearchIndex searchIndex;
+    private final TrendingArticles trendingArticles;
+    private final UniqueReaders uniqueReaders;
+    private final RelatedArticles relatedArticles;
+    private final SimilarArticles similarArticles;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ArticleServiceImpl(ArticleRepository articleRepository, UserRepository userRepository,
-            CategoryRepository categoryRepository, TagRepository tagRepository, CommentRepository commentRepository) {
+            CategoryRepository categoryRepository, TagService tagService, CommentRepository commentRepository,
+            CounterService counterService, ViewCounter viewCounter, ArticleSearchIndex searchIndex,
+            TrendingArticles trendingArticles, UniqueReaders uniqueReaders, RelatedArticles relatedArticles,
+            SimilarArticles similarArticles, ApplicationEventPublisher eventPublisher) {
         this.articleRepository = articleRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
-        this.tagRepository = tagRepository;
+        this.tagService = tagService;
         this.commentRepository = commentRepository;
+        this.counterService = counterService;
+        this.viewCounter = viewCounter;
+        this.searchIndex = searchIndex;
+        this.trendingArticles = trendingArticles;
+        this.uniqueReaders = uniqueReaders;
+        this.relatedArticles = relatedArticles;
+        this.similarArticles = similarArticles;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public Article save(Article article) {
-        if (article.getId() == null) {
-            // New article
-        } else {
+        ArticleChangedEvent.Type type = ArticleChangedEvent.Type.CREATED;
+        if (article.getId() != null) {
             article.setLastModified(new Date());
+            type = ArticleChangedEvent.Type.UPDATED;
+        }
+        Article saved = articleRepository.save(article);
+        similarArticles.sign(saved);
+        // Previous state of a detached article is unknown, reconciliation repairs its counters
+        if (type == ArticleChangedEvent.Type.CREATED) {
+            counterService.articleAdded(saved);
         }
-        return articleRepository.save(article);
+        eventPublisher.publishEvent(changedEvent(saved, type, null, null, null));
+        return saved;
     }
 
     @Override
@@ -61,46 +119,108 @@ public class ArticleServiceImpl implements ArticleService {
     }
 
     @Override
-    public Article get(Long id, Long userId) {
+    @Transactional(readOnly = true)
+    public Article get(Long id, Long userId, long readerKey) {
         Article article = get(id);
-        if (userId != null && !userId.equals(article.getAuthor().getId())) {
-            article.setViewCount(article.getViewCount() + 1);
-            articleRepository.save(article);
-        } else if (userId == null) {
-            article.setViewCount(article.getViewCount() + 1);
-            articleRepository.save(article);
+        if (userId == null || !userId.equals(article.getAuthor().getId())) {
+            viewCounter.increment(id);
+            uniqueReaders.add(id, readerKey);
         }
+        // Show views that are still buffered; read-only, so this is never flushed
+        article.setViewCount(article.getViewCount() + (int) viewCounter.getPending(id));
         return article;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Article> getAll(Pageable pageable) {
-        return articleRepository.findAll(pageable);
+    public Page<ArticleSummary> getAll(Pageable pageable) {
+        return articleRepository.findAllSummaries(pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ArticleSummary> getByCategory(String categoryName, Pageable pageable) {
+        return articleRepository.findSummariesByCategoryName(categoryName, pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Article> getByCategory(String categoryName, Pageable pageable) {
-        return articleRepository.findByCategoryName(categoryName, pageable);
+    public Page<ArticleSummary> getByTag(String tagName, Pageable pageable) {
+        return articleRepository.findSummariesByTagName(tagName, pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Article> getByTag(String tagName, Pageable pageable) {
-        return articleRepository.findByTagsName(tagName, pageable);
+    public Page<ArticleSummary> getByAuthor(Long authorId, Pageable pageable) {
+        return articleRepository.findSummariesByAuthorId(authorId, pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Article> getByAuthor(Long authorId, Pageable pageable) {
-        return articleRepository.findByAuthorId(authorId, pageable);
+    public ArticleSlice scrollAll(ArticleCursor cursor, int size) {
+        return scroll(cursor, size,
+                (c, p) -> articleRepository.findSummariesOlderThan(c.getCreated(), c.getId(), p),
+                (c, p) -> articleRepository.findSummariesNewerThan(c.getCreated(), c.getId(), p));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Article> search(String fragment, Pageable pageable) {
-        return articleRepository.findByContentContaining(fragment, pageable);
+    public ArticleSlice scrollByCategory(String categoryName, ArticleCursor cursor, int size) {
+        return scroll(cursor, size,
+                (c, p) -> articleRepository.findSummariesByCategoryNameOlderThan(categoryName, c.getCreated(),
+                        c.getId(), p),
+                (c, p) -> articleRepository.findSummariesByCategoryNameNewerThan(categoryName, c.getCreated(),
+                        c.getId(), p));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ArticleSlice scrollByTag(String tagName, ArticleCursor cursor, int size) {
+        return scroll(cursor, size,
+                (c, p) -> articleRepository.findSummariesByTagNameOlderThan(tagName, c.getCreated(), c.getId(), p),
+                (c, p) -> articleRepository.findSummariesByTagNameNewerThan(tagName, c.getCreated(), c.getId(), p));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ArticleSlice scrollByAuthor(Long authorId, ArticleCursor cursor, int size) {
+        return scroll(cursor, size,
+                (c, p) -> articleRepository.findSummariesByAuthorIdOlderThan(authorId, c.getCreated(), c.getId(), p),
+                (c, p) -> articleRepository.findSummariesByAuthorIdNewerThan(authorId, c.getCreated(), c.getId(), p));
+    }
+
+    /**
+     * Fetch one slice more than requested to find out whether the list goes on,
+     * newer-than queries come in ascending order and are reversed
+     */
+    private ArticleSlice scroll(ArticleCursor cursor, int size,
+            BiFunction<ArticleCursor, Pageable, List<ArticleSummary>> olderThan,
+            BiFunction<ArticleCursor, Pageable, List<ArticleSummary>> newerThan) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        if (cursor != null && cursor.isBackward()) {
+            List<ArticleSummary> content = newerThan.apply(cursor, limit);
+            boolean hasPrevious = content.size() > size;
+            content = new ArrayList<>(hasPrevious ? content.subList(0, size) : content);
+            Collections.reverse(content);
+            return new ArticleSlice(content, true, hasPrevious);
+        }
+        List<ArticleSummary> content = olderThan.apply(cursor == null ? FIRST_SLICE : cursor, limit);
+        boolean hasNext = content.size() > size;
+        return new ArticleSlice(hasNext ? content.subList(0, size) : content, hasNext, cursor != null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ArticleSummary> search(String fragment, Pageable pageable) {
+        if (!searchIndex.isReady()) {
+            return articleRepository.findSummariesByContentContaining(fragment, pageable);
+        }
+        SearchHits hits = searchIndex.search(fragment, (int) pageable.getOffset(), pageable.getPageSize());
+        if (hits.getArticleIds().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, hits.getTotalHits());
+        }
+        // Load only the requested hits and keep the ranking order
+        return new PageImpl<>(summariesOf(hits.getArticleIds()), pageable, hits.getTotalHits());
     }
 
     @Override
@@ -116,34 +236,33 @@ public class ArticleServiceImpl implements ArticleService {
         }
 
         if (tagString != null && !tagString.isEmpty()) {
-            Set<Tag> tags = new HashSet<>();
-            String[] tagNames = tagString.split(",");
-            for (String tagName : tagNames) {
-                String trimmedName = tagName.trim();
-                if (!trimmedName.isEmpty()) {
-                    Tag tag = tagRepository.findByName(trimmedName)
-                            .orElseGet(() -> {
-                                Tag newTag = new Tag();
-                                newTag.setName(trimmedName);
-                                return tagRepository.save(newTag);
-                            });
-                    tags.add(tag);
-                }
-            }
-            article.setTags(tags);
+            article.setTags(tagService.getTagsFromString(tagString));
         }
 
-        return articleRepository.save(article);
+        Article saved = articleRepository.save(article);
+        similarArticles.sign(saved);
+        counterService.articleAdded(saved);
+        eventPublisher.publishEvent(changedEvent(saved, ArticleChangedEvent.Type.CREATED, null, null, null));
+        return saved;
     }
 
     @Override
     public void update(Article article, String categoryName, String tagString) {
         Article existingArticle = get(article.getId());
+        Category previousCategory = existingArticle.getCategory();
+        Set<Tag> previousTags = new HashSet<>(existingArticle.getTags());
 
         existingArticle.setTitle(article.getTitle());
         existingArticle.setPreview(article.getPreview());
         existingArticle.setContent(article.getContent());
         existingArticle.setLastModified(new Date());
+        String releasedImageUrl = null;
+        if (!Objects.equals(existingArticle.getImageUrl(), article.getImageUrl())) {
+            // Resized copies of the new image are recorded once they are made
+            releasedImageUrl = existingArticle.getImageUrl();
+            existingArticle.setImageUrl(article.getImageUrl());
+            existingArticle.setImageVariants(null);
+        }
 
         if (categoryName != null && !categoryName.isEmpty()) {
             Category category = categoryRepository.findByName(categoryName)
@@ -152,24 +271,14 @@ public class ArticleServiceImpl implements ArticleService {
         }
 
         if (tagString != null && !tagString.isEmpty()) {
-            Set<Tag> tags = new HashSet<>();
-            String[] tagNames = tagString.split(",");
-            for (String tagName : tagNames) {
-                String trimmedName = tagName.trim();
-                if (!trimmedName.isEmpty()) {
-                    Tag tag = tagRepository.findByName(trimmedName)
-                            .orElseGet(() -> {
-                                Tag newTag = new Tag();
-                                newTag.setName(trimmedName);
-                                return tagRepository.save(newTag);
-                            });
-                    tags.add(tag);
-                }
-            }
-            existingArticle.setTags(tags);
+            existingArticle.setTags(tagService.getTagsFromString(tagString));
         }
 
         articleRepository.save(existingArticle);
+        similarArticles.sign(existingArticle);
+        counterService.articleUpdated(existingArticle, previousCategory, previousTags);
+        eventPublisher.publishEvent(changedEvent(existingArticle, ArticleChangedEvent.Type.UPDATED, previousCategory,
+                previousTags, releasedImageUrl));
     }
 
     @Override
@@ -179,26 +288,101 @@ public class ArticleServiceImpl implements ArticleService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
         Comment comment = new Comment(author, article, content);
         commentRepository.save(comment);
+        counterService.commentAdded(comment);
+        eventPublisher.publishEvent(new CommentAddedEvent(articleId));
     }
 
     @Override
     public void delete(Long id) {
-        articleRepository.deleteById(id);
+        Article article = get(id);
+        counterService.articleDeleted(article);
+        ArticleChangedEvent event = changedEvent(article, ArticleChangedEvent.Type.DELETED, null, null,
+                article.getImageUrl());
+        articleRepository.delete(article);
+        similarArticles.unsign(id);
+        eventPublisher.publishEvent(event);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Article> getTopViewed() {
-        return articleRepository.findTop5ByOrderByViewCountDesc();
+    public List<ArticleSummary> getTopViewed() {
+        return getMostPopular(5);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Article> getMostPopular(int limit) {
-        return articleRepository.findAll(
-                org.springframework.data.domain.PageRequest.of(0, limit,
-                        org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC,
-                                "viewCount")))
-                .getContent();
+    public List<ArticleSummary> getMostPopular(int limit) {
+        List<ArticleSummary> trending = trendingArticles.getTop(limit);
+        if (!trending.isEmpty()) {
+            return trending;
+        }
+        return articleRepository.findSummaries(PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "viewCount")));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ArticleSummary> getMostPopular(String categoryName, int limit) {
+        List<ArticleSummary> trending = trendingArticles.getTop(categoryName, limit);
+        if (!trending.isEmpty()) {
+            return trending;
+        }
+        return articleRepository.findSummariesByCategoryName(categoryName,
+                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "viewCount"))).getContent();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ArticleSummary> getRelated(Long id) {
+        return relatedArticles.get(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ArticleSummary> getSimilar(Long id) {
+        return summariesOf(similarArticles.getSimilar(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ArticleSummary> getNearDuplicates(Long id) {
+        return summariesOf(similarArticles.getNearDuplicates(id));
+    }
+
+    /**
+     * Summaries of the given articles in the same order, skipping deleted ones
+     */
+    private List<ArticleSummary> summariesOf(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ArticleSummary> summaries = articleRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(ArticleSummary::getId, Function.identity()));
+        return ids.stream()
+                .map(summaries::get)
+                .filter(summary -> summary != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Event naming the categories and tags of both the previous and the
+     * current state of the article, and the image it stopped using
+     */
+    private static ArticleChangedEvent changedEvent(Article article, ArticleChangedEvent.Type type,
+            Category previousCategory, Set<Tag> previousTags, String releasedImageUrl) {
+        Set<String> categoryNames = new HashSet<>();
+        if (previousCategory != null) {
+            categoryNames.add(previousCategory.getName());
+        }
+        if (article.getCategory() != null) {
+            categoryNames.add(article.getCategory().getName());
+        }
+        Set<String> tagNames = new HashSet<>();
+        if (previousTags != null) {
+            previousTags.forEach(tag -> tagNames.add(tag.getName()));
+        }
+        if (article.getTags() != null) {
+            article.getTags().forEach(tag -> tagNames.add(tag.getName()));
+        }
+        return new ArticleChangedEvent(article.getId(), type, categoryNames, tagNames, releasedImageUrl);
     }
 }
@@ -0,0 +1,146 @@
+package net.filippov.newsportal.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.service.ViewCounter;
+
+/**
+ * {@link ViewCounter} keeping a {@link LongAdder} per article. Pending views are
+ * written as one batched {@code UPDATE article SET view_count = view_count + ?}
+ * every {@code flushIntervalMs}, as soon as {@code flushThreshold} views pile up,
+ * and once more on shutdown. The update bypasses the entity version, so views
+ * never conflict with article edits, and Hibernate, so updated articles are
+ * evicted from the second-level cache afterwards.
+ */
+@Service
+public class BufferedViewCounter implements ViewCounter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BufferedViewCounter.class);
+
+    static final String UPDATE_SQL = "UPDATE article SET view_count = view_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final long flushIntervalMs;
+    private final long flushThreshold;
+
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+    private final LongAdder pending = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService executor;
+
+    public BufferedViewCounter(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+            @Value("${newsportal.view-counter.flush-interval-ms:5000}") long flushIntervalMs,
+            @Value("${newsportal.view-counter.flush-threshold:1000}") long flushThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushThreshold = flushThreshold;
+    }
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "view-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+    }
+
+    @Override
+    public void increment(Long articleId) {
+        counters.computeIfAbsent(articleId, id -> new LongAdder()).increment();
+        pending.increment();
+        if (pending.sum() >= flushThreshold && executor != null
+                && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this::flushQuietly);
+        }
+    }
+
+    @Override
+    public long getPending(Long articleId) {
+        LongAdder counter = counters.get(articleId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<Object[]> batch = new ArrayList<>();
+            for (Map.Entry<Long, LongAdder> entry : counters.entrySet()) {
+                long delta = entry.getValue().sumThenReset();
+                if (delta != 0) {
+                    batch.add(new Object[] { delta, entry.getKey() });
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            long total = batch.stream().mapToLong(args -> (Long) args[0]).sum();
+            pending.add(-total);
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            } catch (RuntimeException e) {
+                // Put the deltas back so they are retried with the next flush
+                for (Object[] args : batch) {
+                    counters.computeIfAbsent((Long) args[1], id -> new LongAdder()).add((Long) args[0]);
+                }
+                pending.add(total);
+                throw e;
+            }
+            Cache cache = entityManagerFactory.getCache();
+            for (Object[] args : batch) {
+                cache.evict(Article.class, args[1]);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to flush article view counts, will retry", e);
+        }
+    }
+}
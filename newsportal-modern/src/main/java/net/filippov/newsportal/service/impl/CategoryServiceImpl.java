@@ -8,12 +8,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import io.micrometer.core.annotation.Timed;
 import net.filippov.newsportal.domain.Category;
 import net.filippov.newsportal.repository.CategoryRepository;
 import net.filippov.newsportal.service.CategoryService;
 
 @Service
 @Transactional
+@Timed("newsportal.service")
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
@@ -2,32 +2,57 @@ package net.filippov.newsportal.service.impl;
 
 import java.util.List;
 
-import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.annotation.Timed;
 import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.CommentCursor;
+import net.filippov.newsportal.domain.CommentSlice;
+import net.filippov.newsportal.domain.CommentSummary;
 import net.filippov.newsportal.repository.CommentRepository;
 import net.filippov.newsportal.service.CommentService;
+import net.filippov.newsportal.service.CounterService;
+import net.filippov.newsportal.service.event.CommentAddedEvent;
 
 @Service
 @Transactional
+@Timed("newsportal.service")
 public class CommentServiceImpl implements CommentService {
 
     private final CommentRepository commentRepository;
+    private final CounterService counterService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CommentServiceImpl(CommentRepository commentRepository) {
+    public CommentServiceImpl(CommentRepository commentRepository, CounterService counterService,
+            ApplicationEventPublisher eventPublisher) {
         this.commentRepository = commentRepository;
+        this.counterService = counterService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public void add(Comment comment) {
         commentRepository.save(comment);
+        counterService.commentAdded(comment);
+        if (comment.getArticle() != null) {
+            eventPublisher.publishEvent(new CommentAddedEvent(comment.getArticle().getId()));
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Comment> getByArticleId(Long articleId) {
-        return commentRepository.findByArticleId(articleId, Sort.by(Sort.Direction.DESC, "created"));
+    public CommentSlice getByArticleId(Long articleId, CommentCursor cursor, int size) {
+        // One extra comment tells whether there are more
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<CommentSummary> content = cursor == null
+                ? commentRepository.findSummariesByArticleId(articleId, limit)
+                : commentRepository.findSummariesByArticleIdOlderThan(articleId, cursor.getCreated(),
+                        cursor.getId(), limit);
+        boolean hasNext = content.size() > size;
+        return new CommentSlice(hasNext ? content.subList(0, size) : content, hasNext);
     }
 }
@@ -0,0 +1,211 @@
+package net.filippov.newsportal.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.BaseEntity;
+import net.filippov.newsportal.domain.Category;
+import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.Tag;
+import net.filippov.newsportal.domain.User;
+import net.filippov.newsportal.service.CounterService;
+
+/**
+ * {@link CounterService} issuing {@code count = count + delta} updates, so
+ * concurrent changes never overwrite each other. Counter columns are not
+ * updatable through the entities for the same reason.
+ * <p>
+ * Updates go through JDBC rather than bulk HQL, which would drop the whole
+ * second-level cache region of the entity. Only the updated entities are
+ * evicted instead, once the transaction completes so that a concurrent load
+ * cannot cache the value from before the commit.
+ * <p>
+ * Reconciliation recomputes every counter with one {@code UPDATE} per range of
+ * {@code batchSize} ids, each committed on its own, and only touches rows whose
+ * value is wrong. It runs on {@code newsportal.counters.reconcile-cron}. As it
+ * bypasses Hibernate, repaired entities are then evicted from the second-level
+ * cache.
+ */
+@Service
+@Transactional
+public class CounterServiceImpl implements CounterService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CounterServiceImpl.class);
+
+    /**
+     * Table, counter column and the query computing its value for row {@code t}
+     */
+    private static final String[][] COUNTERS = {
+            { "article", "comment_count", "SELECT COUNT(*) FROM comment x WHERE x.article_id = t.id" },
+            { "category", "article_count", "SELECT COUNT(*) FROM article x WHERE x.category_id = t.id" },
+            { "tag", "article_count", "SELECT COUNT(*) FROM article_tag x WHERE x.tag_id = t.id" },
+            { "user", "article_count", "SELECT COUNT(*) FROM article x WHERE x.user_id = t.id" },
+            { "user", "comment_count", "SELECT COUNT(*) FROM comment x WHERE x.user_id = t.id" } };
+
+    static final String ADD_SQL = "UPDATE %1$s SET %2$s = %2$s + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int batchSize;
+
+    public CounterServiceImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+            @Value("${newsportal.counters.reconcile-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void articleAdded(Article article) {
+        countArticle(article, 1);
+    }
+
+    @Override
+    public void articleUpdated(Article article, Category previousCategory, Set<Tag> previousTags) {
+        Long previousCategoryId = previousCategory == null ? null : previousCategory.getId();
+        Long categoryId = article.getCategory() == null ? null : article.getCategory().getId();
+        if (!Objects.equals(previousCategoryId, categoryId)) {
+            if (previousCategoryId != null) {
+                add(Category.class, "category", "article_count", Set.of(previousCategoryId), -1);
+            }
+            if (categoryId != null) {
+                add(Category.class, "category", "article_count", Set.of(categoryId), 1);
+            }
+        }
+
+        Set<Long> before = ids(previousTags);
+        Set<Long> after = ids(article.getTags());
+        Set<Long> removed = new HashSet<>(before);
+        removed.removeAll(after);
+        after.removeAll(before);
+        if (!removed.isEmpty()) {
+            add(Tag.class, "tag", "article_count", removed, -1);
+        }
+        if (!after.isEmpty()) {
+            add(Tag.class, "tag", "article_count", after, 1);
+        }
+    }
+
+    @Override
+    public void articleDeleted(Article article) {
+        countArticle(article, -1);
+        if (article.getComments() == null) {
+            return;
+        }
+        // Comments are removed along with the article
+        Map<Long, Integer> commentsByUser = new HashMap<>();
+        for (Comment comment : article.getComments()) {
+            if (comment.getAuthor() != null) {
+                commentsByUser.merge(comment.getAuthor().getId(), 1, Integer::sum);
+            }
+        }
+        commentsByUser.forEach(
+                (userId, count) -> add(User.class, "user", "comment_count", Set.of(userId), -count));
+    }
+
+    @Override
+    public void commentAdded(Comment comment) {
+        if (comment.getArticle() != null) {
+            add(Article.class, "article", "comment_count", Set.of(comment.getArticle().getId()), 1);
+        }
+        if (comment.getAuthor() != null) {
+            add(User.class, "user", "comment_count", Set.of(comment.getAuthor().getId()), 1);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Scheduled(cron = "${newsportal.counters.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        int repaired = 0;
+        for (String[] counter : COUNTERS) {
+            String table = counter[0];
+            String column = counter[1];
+            String sql = String.format("UPDATE %1$s t SET %2$s = (%3$s) WHERE t.id BETWEEN ? AND ? AND %2$s <> (%3$s)",
+                    table, column, counter[2]);
+            List<Map<String, Object>> range = jdbcTemplate.queryForList(
+                    String.format("SELECT MIN(id) AS low, MAX(id) AS high FROM %s", table));
+            Number low = (Number) range.get(0).get("low");
+            Number high = (Number) range.get(0).get("high");
+            if (low == null) {
+                continue;
+            }
+            for (long from = low.longValue(); from <= high.longValue(); from += batchSize) {
+                repaired += jdbcTemplate.update(sql, from, from + batchSize - 1);
+            }
+        }
+        if (repaired > 0) {
+            Cache cache = entityManagerFactory.getCache();
+            cache.evict(Article.class);
+            cache.evict(Category.class);
+            cache.evict(Tag.class);
+            cache.evict(User.class);
+            LOG.warn("Repaired {} drifted counters in {} ms", repaired, System.currentTimeMillis() - started);
+        } else {
+            LOG.info("Counters checked in {} ms, no drift", System.currentTimeMillis() - started);
+        }
+        return repaired;
+    }
+
+    private void countArticle(Article article, int delta) {
+        if (article.getAuthor() != null) {
+            add(User.class, "user", "article_count", Set.of(article.getAuthor().getId()), delta);
+        }
+        if (article.getCategory() != null) {
+            add(Category.class, "category", "article_count", Set.of(article.getCategory().getId()), delta);
+        }
+        Set<Long> tagIds = ids(article.getTags());
+        if (!tagIds.isEmpty()) {
+            add(Tag.class, "tag", "article_count", tagIds, delta);
+        }
+    }
+
+    /**
+     * Add {@code delta} to a counter of the rows with the given ids, and evict
+     * their entities once the transaction completes
+     */
+    private void add(Class<?> entity, String table, String column, Collection<Long> ids, int delta) {
+        List<Object[]> batch = ids.stream().map(id -> new Object[] { delta, id }).toList();
+        jdbcTemplate.batchUpdate(String.format(ADD_SQL, table, column), batch);
+        Cache cache = entityManagerFactory.getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(id -> cache.evict(entity, id));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ids.forEach(id -> cache.evict(entity, id));
+            }
+        });
+    }
+
+    private static Set<Long> ids(Collection<? extends BaseEntity> entities) {
+        if (entities == null) {
+            return new HashSet<>();
+        }
+        return entities.stream().map(BaseEntity::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,77 @@
+package net.filippov.newsportal.service.impl;
+
+import java.util.List;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import net.filippov.newsportal.config.CacheConfig;
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.domain.CategorySummary;
+import net.filippov.newsportal.repository.CategoryRepository;
+import net.filippov.newsportal.repository.TagRepository;
+import net.filippov.newsportal.service.ArticleService;
+import net.filippov.newsportal.service.SidebarService;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.service.event.TagCreatedEvent;
+import net.filippov.newsportal.trending.TrendingArticles;
+
+@Service
+public class SidebarServiceImpl implements SidebarService {
+
+    private final CategoryRepository categoryRepository;
+    private final TagRepository tagRepository;
+    private final ArticleService articleService;
+    private final TrendingArticles trendingArticles;
+
+    public SidebarServiceImpl(CategoryRepository categoryRepository, TagRepository tagRepository,
+            ArticleService articleService, TrendingArticles trendingArticles) {
+        this.categoryRepository = categoryRepository;
+        this.tagRepository = tagRepository;
+        this.articleService = articleService;
+        this.trendingArticles = trendingArticles;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(CacheConfig.SIDEBAR_CATEGORIES)
+    public List<CategorySummary> getCategories() {
+        return List.copyOf(categoryRepository.findAllSummaries());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(CacheConfig.SIDEBAR_TAGS)
+    public List<String> getTagNames() {
+        return List.copyOf(tagRepository.findAllNames());
+    }
+
+    // Not cached, trending articles are kept in memory
+    @Override
+    @Transactional(readOnly = true)
+    public List<ArticleSummary> getTopViewed() {
+        return List.copyOf(articleService.getTopViewed());
+    }
+
+    @Override
+    public long getTopViewedVersion() {
+        return trendingArticles.getVersion();
+    }
+
+    // Category counts depend on articles; tags may have been created along with one
+    @TransactionalEventListener
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.SIDEBAR_CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.SIDEBAR_TAGS, allEntries = true) })
+    public void onArticleChanged(ArticleChangedEvent event) {
+    }
+
+    @TransactionalEventListener
+    @CacheEvict(cacheNames = CacheConfig.SIDEBAR_TAGS, allEntries = true)
+    public void onTagCreated(TagCreatedEvent event) {
+    }
+}
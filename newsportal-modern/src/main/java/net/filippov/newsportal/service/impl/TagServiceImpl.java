@@ -1,28 +1,85 @@
 package net.filippov.newsportal.service.impl;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.text.Normalizer;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import net.filippov.newsportal.domain.Tag;
 import net.filippov.newsportal.repository.TagRepository;
 import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.event.TagCreatedEvent;
 
+/**
+ * {@link TagService} resolving a whole tag string at once. Ids of known tags
+ * come from a bounded name-to-id cache or one {@code WHERE name IN (...)}
+ * query, missing tags are created by one multi-row {@code INSERT IGNORE}, so
+ * a concurrent author creating the same tag is not an error, and all tags are
+ * then loaded by id, from the second-level cache where present. The number of
+ * round-trips does not depend on the number of tags.
+ */
 @Service
 @Transactional
+@Timed("newsportal.service")
 public class TagServiceImpl implements TagService {
 
+    /**
+     * Maximum length of a tag name, as defined by {@link Tag}
+     */
+    private static final int MAX_NAME_LENGTH = 20;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
     private final TagRepository tagRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public TagServiceImpl(TagRepository tagRepository) {
+    /**
+     * Tag ids by name {@link #key(String) key}, tag names are unique
+     * regardless of case and accents
+     */
+    private final Cache<String, Long> tagIds;
+
+    public TagServiceImpl(TagRepository tagRepository, EntityManager entityManager, JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+            @Value("${newsportal.tags.id-cache-size:10000}") long idCacheSize) {
         this.tagRepository = tagRepository;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.tagIds = Caffeine.newBuilder().maximumSize(idCacheSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tagIds, "tagIds");
     }
 
     @Override
@@ -40,20 +97,142 @@ public class TagServiceImpl implements TagService {
 
     @Override
     public Set<Tag> getTagsFromString(String tagString) {
-        Set<Tag> tags = new HashSet<>();
-        String[] tagNames = tagString.split(",");
-        for (String tagName : tagNames) {
-            String trimmedName = tagName.trim();
-            if (!trimmedName.isEmpty()) {
-                Tag tag = tagRepository.findByName(trimmedName)
-                        .orElseGet(() -> {
-                            Tag newTag = new Tag();
-                            newTag.setName(trimmedName);
-                            return tagRepository.save(newTag);
-                        });
-                tags.add(tag);
+        Map<String, String> names = normalize(tagString);
+        if (names.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Map<String, Long> ids = new HashMap<>(tagIds.getAllPresent(names.keySet()));
+        List<Tag> tags = load(ids.values());
+        if (tags.size() < ids.size()) {
+            // A cached tag is gone, e.g. its creating transaction rolled back
+            Set<Long> found = tags.stream().map(Tag::getId).collect(Collectors.toSet());
+            Set<String> stale = ids.entrySet().stream()
+                    .filter(entry -> !found.contains(entry.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            tagIds.invalidateAll(stale);
+            ids.keySet().removeAll(stale);
+        }
+
+        Map<String, String> missing = new LinkedHashMap<>(names);
+        missing.keySet().removeAll(ids.keySet());
+        if (!missing.isEmpty()) {
+            tags = new ArrayList<>(tags);
+            tags.addAll(load(resolve(missing).values()));
+        }
+        return new HashSet<>(tags);
+    }
+
+    /**
+     * Find or create tags and cache their ids
+     *
+     * @param names tag names by name key
+     * @return ids by name key
+     * @throws ResponseStatusException if a name matches an existing tag in the
+     *                                 database but not by its key
+     */
+    private Map<String, Long> resolve(Map<String, String> names) {
+        Map<String, Long> ids = select(names.values(), false, new HashMap<>());
+        List<String> missing = names.entrySet().stream()
+                .filter(entry -> !ids.containsKey(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            insert(missing);
+            // Locking read, so tags committed by others since our snapshot are visible
+            Map<String, String> stored = new HashMap<>();
+            ids.putAll(select(missing, true, stored));
+            for (String name : missing) {
+                if (!ids.containsKey(key(name))) {
+                    // The insert was ignored for a tag the collation takes for this one
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Tag conflicts with an existing tag: " + name);
+                }
+                // The insert reports no per-row counts, some of these may be created concurrently
+                if (name.equals(stored.get(key(name)))) {
+                    eventPublisher.publishEvent(new TagCreatedEvent(name));
+                }
             }
         }
-        return tags;
+        tagIds.putAll(ids);
+        return ids;
+    }
+
+    /**
+     * Load tags by id, checking the persistence context and the second-level
+     * cache before the database
+     */
+    private List<Tag> load(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class).byMultipleIds(Tag.class)
+                .multiLoad(new ArrayList<>(ids)).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Insert tags with one statement, ignoring names that already exist. The
+     * statement goes through Hibernate so that cached tag queries are
+     * invalidated on commit.
+     */
+    private void insert(List<String> names) {
+        Query insert = entityManager.createNativeQuery("INSERT IGNORE INTO tag (name) VALUES "
+                + String.join(", ", Collections.nCopies(names.size(), "(?)")));
+        insert.unwrap(NativeQuery.class).addSynchronizedEntityClass(Tag.class);
+        for (int i = 0; i < names.size(); i++) {
+            insert.setParameter(i + 1, names.get(i));
+        }
+        insert.executeUpdate();
+    }
+
+    /**
+     * @param storedNames filled with the names of the tags found, by name key
+     * @return ids of the tags found, by name key
+     */
+    private Map<String, Long> select(Collection<String> names, boolean forUpdate, Map<String, String> storedNames) {
+        String sql = "SELECT id, name FROM tag WHERE name IN ("
+                + String.join(", ", Collections.nCopies(names.size(), "?")) + ")"
+                + (forUpdate ? " FOR UPDATE" : "");
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            String name = rs.getString("name");
+            ids.put(key(name), rs.getLong("id"));
+            storedNames.put(key(name), name);
+        }, names.toArray());
+        return ids;
+    }
+
+    /**
+     * Split a comma-separated tag string, trim names, collapse whitespace and
+     * drop empty names and duplicates
+     *
+     * @return tag names by name key, in order of appearance
+     */
+    static Map<String, String> normalize(String tagString) {
+        Map<String, String> names = new LinkedHashMap<>();
+        if (tagString == null) {
+            return names;
+        }
+        for (String tagName : tagString.split(",")) {
+            String name = WHITESPACE.matcher(tagName.trim()).replaceAll(" ");
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.length() > MAX_NAME_LENGTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Tag is longer than " + MAX_NAME_LENGTH + " characters: " + name);
+            }
+            names.putIfAbsent(key(name), name);
+        }
+        return names;
+    }
+
+    /**
+     * Key telling tag names apart as the {@code utf8mb4_unicode_ci} collation
+     * of the tag table does, ignoring case and accents
+     */
+    static String key(String name) {
+        return MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
     }
 }
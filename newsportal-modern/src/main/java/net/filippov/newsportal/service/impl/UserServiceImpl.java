@@ -5,6 +5,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import io.micrometer.core.annotation.Timed;
 import net.filippov.newsportal.domain.User;
 import net.filippov.newsportal.repository.UserRepository;
 import net.filippov.newsportal.service.UserService;
@@ -13,6 +14,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Service
 @Transactional
+@Timed("newsportal.service")
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
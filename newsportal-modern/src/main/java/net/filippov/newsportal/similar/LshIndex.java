@@ -0,0 +1,191 @@
+package net.filippov.newsportal.similar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locality-sensitive hashing index of MinHash signatures. Each signature is
+ * cut into {@code bands} bands of consecutive values and every band is hashed
+ * to a bucket; articles sharing a bucket in any band are candidates, whose
+ * similarity is then estimated from the full signatures. Two articles of
+ * Jaccard similarity {@code s} become candidates with probability
+ * {@code 1 - (1 - s^rows)^bands}; with 32 bands of 4 rows that is 0.23 at
+ * 0.3, 0.87 at 0.5 and practically 1 from 0.7 up.
+ * <p>
+ * Buckets are kept in a single open-addressing table of (band hash, article
+ * id) pairs, two longs per band of each article, so a lookup touches a few
+ * adjacent slots per band and allocates nothing but the candidates.
+ * <p>
+ * Not thread-safe; the owner serializes changes with lookups
+ *
+ * @author Oleg Filippov
+ */
+public class LshIndex {
+
+    private final int bands;
+    private final int rows;
+
+    private final Map<Long, int[]> signatures = new HashMap<>();
+
+    // Band hashes, 0 marks an empty slot, and the article id of each slot
+    private long[] keys = new long[64];
+    private long[] ids = new long[64];
+    private int entries;
+
+    /**
+     * @param bands number of bands, dividing {@link MinHash#HASHES}
+     */
+    public LshIndex(int bands) {
+        if (bands < 1 || MinHash.HASHES % bands != 0) {
+            throw new IllegalArgumentException("Bands must divide " + MinHash.HASHES + ": " + bands);
+        }
+        this.bands = bands;
+        this.rows = MinHash.HASHES / bands;
+    }
+
+    /**
+     * Add an article or replace its previous signature
+     *
+     * @param articleId id of article
+     * @param signature its signature
+     */
+    public void put(Long articleId, int[] signature) {
+        remove(articleId);
+        signatures.put(articleId, signature);
+        for (int band = 0; band < bands; band++) {
+            insert(bandKey(signature, band), articleId);
+        }
+    }
+
+    /**
+     * @param articleId id of article
+     */
+    public void remove(Long articleId) {
+        int[] signature = signatures.remove(articleId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            delete(bandKey(signature, band), articleId);
+        }
+    }
+
+    /**
+     * @param articleId id of article
+     * @return its signature, null if it is not indexed
+     */
+    public int[] get(Long articleId) {
+        return signatures.get(articleId);
+    }
+
+    /**
+     * @param signature signature to look up
+     * @param excludedId id of article to leave out, usually the signed one, may be null
+     * @param minSimilarity minimum estimated similarity
+     * @param limit maximum number of articles
+     * @return ids of the most similar articles, best first
+     */
+    public List<Long> similar(int[] signature, Long excludedId, double minSimilarity, int limit) {
+        Set<Long> candidates = new HashSet<>();
+        int mask = keys.length - 1;
+        for (int band = 0; band < bands; band++) {
+            long key = bandKey(signature, band);
+            for (int slot = slot(key, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    candidates.add(ids[slot]);
+                }
+            }
+        }
+        candidates.remove(excludedId);
+
+        List<Map.Entry<Long, Double>> matches = new ArrayList<>();
+        for (Long candidate : candidates) {
+            double similarity = MinHash.similarity(signature, signatures.get(candidate));
+            if (similarity >= minSimilarity) {
+                matches.add(Map.entry(candidate, similarity));
+            }
+        }
+        matches.sort(Map.Entry.<Long, Double> comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey())
+                .reversed());
+        return matches.stream()
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * @return number of indexed articles
+     */
+    public int size() {
+        return signatures.size();
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long hash = (band + 1) * 0x9e3779b97f4a7c15L;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            hash = (hash ^ (signature[i] & 0xffffffffL)) * 0x100000001b3L;
+        }
+        hash = MinHash.mix(hash);
+        return hash != 0 ? hash : 1;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) (key ^ key >>> 32) & mask;
+    }
+
+    private void insert(long key, long articleId) {
+        // At most three quarters full, so probe sequences stay short
+        if (4 * (entries + 1) > 3 * keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        ids[slot] = articleId;
+        entries++;
+    }
+
+    private void delete(long key, long articleId) {
+        int mask = keys.length - 1;
+        int hole = slot(key, mask);
+        while (keys[hole] != key || ids[hole] != articleId) {
+            if (keys[hole] == 0) {
+                return;
+            }
+            hole = (hole + 1) & mask;
+        }
+        // Shift back later entries of the probe sequence, so that no lookup stops at the hole
+        for (int slot = (hole + 1) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            int home = slot(keys[slot], mask);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                ids[hole] = ids[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = 0;
+        ids[hole] = 0;
+        entries--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldIds = ids;
+        keys = new long[capacity];
+        ids = new long[capacity];
+        entries = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldIds[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package net.filippov.newsportal.similar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleSignature;
+import net.filippov.newsportal.repository.ArticleRepository;
+import net.filippov.newsportal.repository.ArticleSignatureRepository;
+import net.filippov.newsportal.search.SearchDocument;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+
+/**
+ * Near-duplicate and similar articles by the text of their title and content.
+ * A {@link MinHash} signature is stored with every article as it is saved;
+ * all signatures are held in an {@link LshIndex}, so both lookups are a
+ * handful of bucket probes and signature comparisons in memory.
+ * <p>
+ * The index is loaded from the stored signatures in the background on
+ * startup. Articles without a signature of the current version, such as
+ * those published before signatures existed, are then signed in batches, the
+ * signatures of a batch computed in parallel on
+ * {@code newsportal.similar.backfill-threads} threads. Afterwards the index
+ * follows {@link ArticleChangedEvent}s once their transactions commit.
+ */
+@Component
+public class SimilarArticles {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimilarArticles.class);
+
+    private final ArticleRepository articleRepository;
+    private final ArticleSignatureRepository signatureRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MinHash minHash;
+    private final LshIndex index;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final double duplicateThreshold;
+    private final double similarThreshold;
+    private final int size;
+    private final int batchSize;
+    private final int backfillThreads;
+
+    private ExecutorService loader;
+    private volatile boolean ready;
+    private volatile boolean backfilled;
+
+    // Articles changed while the backfill runs, signed again once it is done
+    private final Set<Long> changedDuringBackfill = ConcurrentHashMap.newKeySet();
+
+    public SimilarArticles(ArticleRepository articleRepository, ArticleSignatureRepository signatureRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${newsportal.similar.shingle-size:3}") int shingleSize,
+            @Value("${newsportal.similar.bands:32}") int bands,
+            @Value("${newsportal.similar.duplicate-threshold:0.8}") double duplicateThreshold,
+            @Value("${newsportal.similar.similar-threshold:0.3}") double similarThreshold,
+            @Value("${newsportal.similar.size:5}") int size,
+            @Value("${newsportal.similar.load-batch-size:1000}") int batchSize,
+            @Value("${newsportal.similar.backfill-threads:0}") int backfillThreads) {
+        this.articleRepository = articleRepository;
+        this.signatureRepository = signatureRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.minHash = new MinHash(shingleSize);
+        this.index = new LshIndex(bands);
+        this.duplicateThreshold = duplicateThreshold;
+        this.similarThreshold = similarThreshold;
+        this.size = size;
+        this.batchSize = batchSize;
+        this.backfillThreads = backfillThreads > 0 ? backfillThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Store the signature of a saved article, in the saving transaction
+     *
+     * @param article saved article
+     */
+    public void sign(Article article) {
+        ArticleSignature signature = signatureRepository.findById(article.getId())
+                .orElseGet(() -> new ArticleSignature(article.getId()));
+        signature.setVersion(MinHash.VERSION);
+        signature.setSignature(MinHash.toBytes(minHash.signature(text(article.getTitle(), article.getContent()))));
+        signatureRepository.save(signature);
+    }
+
+    /**
+     * Drop the signature of an article, in the deleting transaction
+     *
+     * @param articleId id of deleted article
+     */
+    public void unsign(Long articleId) {
+        signatureRepository.deleteByArticleId(articleId);
+    }
+
+    /**
+     * @param articleId id of article
+     * @return ids of articles with nearly the same text, most similar first
+     */
+    public List<Long> getNearDuplicates(Long articleId) {
+        return lookup(articleId, duplicateThreshold);
+    }
+
+    /**
+     * @param articleId id of article
+     * @return ids of articles with similar text, most similar first
+     */
+    public List<Long> getSimilar(Long articleId) {
+        return lookup(articleId, similarThreshold);
+    }
+
+    /**
+     * @return whether the stored signatures are loaded
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        Long articleId = event.getArticleId();
+        if (!backfilled) {
+            changedDuringBackfill.add(articleId);
+        }
+        if (event.getType() == ArticleChangedEvent.Type.DELETED) {
+            update(articleId, null);
+            return;
+        }
+        signatureRepository.findById(articleId)
+                .filter(signature -> signature.getVersion() == MinHash.VERSION)
+                .ifPresent(signature -> update(articleId, MinHash.fromBytes(signature.getSignature())));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similar-articles-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.execute(() -> {
+            try {
+                load();
+                backfill();
+            } catch (RuntimeException e) {
+                LOG.error("Failed to load similar articles index", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    private List<Long> lookup(Long articleId, double threshold) {
+        lock.readLock().lock();
+        try {
+            int[] signature = index.get(articleId);
+            return signature == null ? List.of() : index.similar(signature, articleId, threshold, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(Long articleId, int[] signature) {
+        lock.writeLock().lock();
+        try {
+            if (signature != null) {
+                index.put(articleId, signature);
+            } else {
+                index.remove(articleId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        Long afterId = 0L;
+        List<ArticleSignature> batch;
+        do {
+            batch = signatureRepository.findByVersion(afterId, MinHash.VERSION, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                for (ArticleSignature signature : batch) {
+                    index.put(signature.getArticleId(), MinHash.fromBytes(signature.getSignature()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            afterId = batch.get(batch.size() - 1).getArticleId();
+        } while (batch.size() == batchSize);
+        ready = true;
+        LOG.info("Similar articles index of {} signatures loaded in {} ms", index.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Sign the articles that have no signature of the current version
+     */
+    private void backfill() {
+        long started = System.currentTimeMillis();
+        int signed = 0;
+        ForkJoinPool pool = new ForkJoinPool(backfillThreads);
+        try {
+            Long afterId = 0L;
+            List<SearchDocument> batch;
+            do {
+                batch = articleRepository.findUnsignedDocuments(afterId, MinHash.VERSION,
+                        PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<SearchDocument> documents = batch;
+                Map<Long, int[]> signatures = pool.submit(() -> documents.parallelStream()
+                        .collect(HashMap<Long, int[]>::new,
+                                (map, document) -> map.put(document.getId(),
+                                        minHash.signature(text(document.getTitle(), document.getContent()))),
+                                Map::putAll))
+                        .join();
+                save(signatures);
+                signed += signatures.size();
+                afterId = batch.get(batch.size() - 1).getId();
+            } while (batch.size() == batchSize);
+        } finally {
+            pool.shutdown();
+        }
+
+        backfilled = true;
+        // Their signature may have been replaced with one of an older text meanwhile
+        for (Long articleId : new ArrayList<>(changedDuringBackfill)) {
+            articleRepository.findSearchDocument(articleId).ifPresentOrElse(
+                    document -> save(Map.of(articleId,
+                            minHash.signature(text(document.getTitle(), document.getContent())))),
+                    () -> {
+                        transactionTemplate.executeWithoutResult(status -> unsign(articleId));
+                        update(articleId, null);
+                    });
+        }
+        changedDuringBackfill.clear();
+        if (signed > 0) {
+            LOG.info("Signed {} articles for similar articles index in {} ms on {} threads", signed,
+                    System.currentTimeMillis() - started, backfillThreads);
+        }
+    }
+
+    private void save(Map<Long, int[]> signatures) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Existing rows are loaded in one query and overwritten, missing ones are persisted as new;
+            // the index only sees the signatures once this transaction has committed
+            Map<Long, ArticleSignature> rows = new HashMap<>();
+            signatureRepository.findAllById(signatures.keySet())
+                    .forEach(row -> rows.put(row.getArticleId(), row));
+            List<ArticleSignature> changed = new ArrayList<>(signatures.size());
+            signatures.forEach((articleId, signature) -> {
+                ArticleSignature row = rows.computeIfAbsent(articleId, ArticleSignature::new);
+                row.setVersion(MinHash.VERSION);
+                row.setSignature(MinHash.toBytes(signature));
+                changed.add(row);
+            });
+            signatureRepository.saveAll(changed);
+        });
+        lock.writeLock().lock();
+        try {
+            signatures.forEach(index::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String text(String title, String content) {
+        return title + "\n" + content;
+    }
+}
@@ -0,0 +1,123 @@
+package net.filippov.newsportal.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source recording the statements executed, their time and the rows
+ * read in the {@link QueryStats} bound to the thread that obtains a
+ * connection. Connections obtained without bound stats, such as those of
+ * background jobs, are returned as they are, so only counted requests pay
+ * for the proxies.
+ */
+public class CountingDataSource extends DelegatingDataSource {
+
+    public CountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return count(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return count(super.getConnection(username, password));
+    }
+
+    private static Connection count(Connection connection) {
+        QueryStats stats = QueryStats.current();
+        if (stats == null) {
+            return connection;
+        }
+        return (Connection) proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return proxy(statementType(statement), new StatementHandler(statement, sql, stats));
+            }
+            return result;
+        });
+    }
+
+    private static Class<? extends Statement> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        return statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+    }
+
+    /**
+     * Times execute methods, taking the SQL from the statement or its arguments,
+     * and counts the rows read from the result sets it returns
+     */
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final String sql;
+        private final QueryStats stats;
+
+        StatementHandler(Statement statement, String sql, QueryStats stats) {
+            this.statement = statement;
+            this.sql = sql;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            if (method.getName().startsWith("execute")) {
+                long started = System.nanoTime();
+                try {
+                    result = CountingDataSource.invoke(statement, method, args);
+                } finally {
+                    String executed = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+                    stats.recordStatement(executed, System.nanoTime() - started);
+                }
+            } else {
+                result = CountingDataSource.invoke(statement, method, args);
+            }
+            if (result instanceof ResultSet resultSet && !method.getName().equals("getGeneratedKeys")) {
+                return proxy(ResultSet.class, (resultSetProxy, resultSetMethod, resultSetArgs) -> {
+                    Object value = CountingDataSource.invoke(resultSet, resultSetMethod, resultSetArgs);
+                    if (resultSetMethod.getName().equals("next") && Boolean.TRUE.equals(value)) {
+                        stats.recordRows(1);
+                    }
+                    return value;
+                });
+            }
+            return result;
+        }
+    }
+
+    private static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> switch (method.getName()) {
+                    // Identity of the proxy, the target is never compared with it
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> handler.invoke(proxy, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
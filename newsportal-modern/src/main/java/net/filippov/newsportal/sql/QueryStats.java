@@ -0,0 +1,153 @@
+package net.filippov.newsportal.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Statements, JDBC time and rows read on behalf of one request, recorded by
+ * {@link CountingDataSource} on connections obtained while the stats are
+ * bound to the thread. Statements are also counted by shape, their SQL with
+ * literals and parameter lists reduced to placeholders, so the same query run
+ * once per row of another query stands out.
+ * <p>
+ * Thread-safe, as page fragments of a request run on several threads
+ *
+ * @author Oleg Filippov
+ */
+public class QueryStats {
+
+    /**
+     * Request attribute the stats of a request are stored in
+     */
+    public static final String ATTRIBUTE = QueryStats.class.getName();
+
+    /**
+     * Distinct shapes kept per request, the rest are only counted
+     */
+    private static final int MAX_SHAPES = 1000;
+
+    private static final Pattern STRING_LITERALS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERALS = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LISTS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder jdbcNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final Map<String, AtomicInteger> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * @return stats bound to the current thread, null if statements are not counted
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param stats stats to record the statements of the current thread in, null to stop
+     * @return previously bound stats, to be restored
+     */
+    public static QueryStats bind(QueryStats stats) {
+        QueryStats previous = CURRENT.get();
+        if (stats != null) {
+            CURRENT.set(stats);
+        } else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * @param task task to run on another thread
+     * @return the task recording its statements in the stats bound to the current thread
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        QueryStats stats = current();
+        if (stats == null) {
+            return task;
+        }
+        return () -> {
+            QueryStats previous = bind(stats);
+            try {
+                return task.call();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * @param sql SQL of an executed statement or batch
+     * @param nanos time it took to execute
+     */
+    public void recordStatement(String sql, long nanos) {
+        statements.increment();
+        jdbcNanos.add(nanos);
+        if (sql == null) {
+            return;
+        }
+        String shape = shape(sql);
+        if (shapes.size() < MAX_SHAPES || shapes.containsKey(shape)) {
+            shapes.computeIfAbsent(shape, key -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    /**
+     * @param count number of rows read from a result set
+     */
+    public void recordRows(long count) {
+        rows.add(count);
+    }
+
+    /**
+     * @return number of statements and batches executed
+     */
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    /**
+     * @return time spent executing them in nanoseconds
+     */
+    public long getJdbcTimeNanos() {
+        return jdbcNanos.sum();
+    }
+
+    /**
+     * @return number of rows read
+     */
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * @param threshold number of executions that makes a shape suspicious
+     * @return shapes executed at least that often with their counts, most frequent first
+     */
+    public Map<String, Integer> getRepeatedShapes(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.entrySet().stream()
+                .filter(shape -> shape.getValue().get() >= threshold)
+                .sorted((a, b) -> Integer.compare(b.getValue().get(), a.getValue().get()))
+                .forEach(shape -> repeated.put(shape.getKey(), shape.getValue().get()));
+        return repeated;
+    }
+
+    /**
+     * @param sql SQL statement
+     * @return the statement with literals and lists of parameters replaced by single placeholders
+     */
+    public static String shape(String sql) {
+        String shape = STRING_LITERALS.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERALS.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LISTS.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,63 @@
+package net.filippov.newsportal.trending;
+
+import java.util.Date;
+
+/**
+ * Fields of an article the trending ranking needs, as read from the database
+ *
+ * @author Oleg Filippov
+ */
+public class ArticleActivity {
+
+    private final Long id;
+    private final String categoryName;
+    private final Date created;
+    private final int viewCount;
+    private final int commentCount;
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public ArticleActivity(Long id, String categoryName, Date created, int viewCount, int commentCount) {
+        this.id = id;
+        this.categoryName = categoryName;
+        this.created = created;
+        this.viewCount = viewCount;
+        this.commentCount = commentCount;
+    }
+
+    /**
+     * @return article id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return name of the article's category, null if it has none
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    /**
+     * @return creation date of the article
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return views written to the database
+     */
+    public int getViewCount() {
+        return viewCount;
+    }
+
+    /**
+     * @return number of comments
+     */
+    public int getCommentCount() {
+        return commentCount;
+    }
+}
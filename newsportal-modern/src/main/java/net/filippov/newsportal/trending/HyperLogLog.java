@@ -0,0 +1,189 @@
+package net.filippov.newsportal.trending;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct 64-bit hashes added
+ * to it with a standard error of {@code 1.04 / sqrt(2^PRECISION)}, about
+ * 1.6%, in {@code 2^PRECISION} one-byte registers. Sketches are merged by
+ * taking the maximum of each register, so merging is order independent and
+ * merging the same sketch twice changes nothing.
+ * <p>
+ * {@link #toBytes()} writes the registers packed into six bits each, or only
+ * the non-zero ones while there are few of them; a full sketch takes 3 KB.
+ * <p>
+ * Not thread-safe
+ *
+ * @author Oleg Filippov
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int DENSE_LENGTH = REGISTERS * 6 / 8;
+    private static final byte FORMAT_SPARSE = 1;
+    private static final byte FORMAT_DENSE = 2;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * @param hash well mixed 64-bit hash of an item
+     * @return true if the sketch changed
+     */
+    public boolean add(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Leading zeros of the remaining bits plus one, the sentinel bit bounds it
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param other sketch whose items are added to this one
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return estimated number of distinct items added
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Double.longBitsToDouble((1023L - register) << 52); // 2^-register
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // Linear counting is more accurate while many registers are empty
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return compact serialized form, read by {@link #fromBytes(byte[])}
+     */
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+        // Sparse entries take two bytes for the index and one for the value
+        if (3 * used < DENSE_LENGTH) {
+            byte[] bytes = new byte[1 + 3 * used];
+            bytes[0] = FORMAT_SPARSE;
+            int position = 1;
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    bytes[position++] = (byte) (i >>> 8);
+                    bytes[position++] = (byte) i;
+                    bytes[position++] = registers[i];
+                }
+            }
+            return bytes;
+        }
+        byte[] bytes = new byte[1 + DENSE_LENGTH];
+        bytes[0] = FORMAT_DENSE;
+        // Four registers of six bits in every three bytes
+        for (int i = 0, position = 1; i < REGISTERS; i += 4, position += 3) {
+            int packed = registers[i] << 18 | registers[i + 1] << 12 | registers[i + 2] << 6 | registers[i + 3];
+            bytes[position] = (byte) (packed >>> 16);
+            bytes[position + 1] = (byte) (packed >>> 8);
+            bytes[position + 2] = (byte) packed;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param bytes serialized sketch
+     * @return the sketch
+     * @throws IllegalArgumentException if the bytes are not a serialized sketch
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        byte[] registers = new byte[REGISTERS];
+        if (bytes.length > 0 && bytes[0] == FORMAT_SPARSE && (bytes.length - 1) % 3 == 0) {
+            for (int position = 1; position < bytes.length; position += 3) {
+                int index = (bytes[position] & 0xff) << 8 | bytes[position + 1] & 0xff;
+                if (index >= REGISTERS) {
+                    throw new IllegalArgumentException("Register index out of range: " + index);
+                }
+                registers[index] = bytes[position + 2];
+            }
+        } else if (bytes.length == 1 + DENSE_LENGTH && bytes[0] == FORMAT_DENSE) {
+            for (int i = 0, position = 1; i < REGISTERS; i += 4, position += 3) {
+                int packed = (bytes[position] & 0xff) << 16 | (bytes[position + 1] & 0xff) << 8
+                        | bytes[position + 2] & 0xff;
+                registers[i] = (byte) (packed >>> 18);
+                registers[i + 1] = (byte) (packed >>> 12 & 0x3f);
+                registers[i + 2] = (byte) (packed >>> 6 & 0x3f);
+                registers[i + 3] = (byte) (packed & 0x3f);
+            }
+        } else {
+            throw new IllegalArgumentException("Not a serialized sketch");
+        }
+        return new HyperLogLog(registers);
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes followed by the MurmurHash3 finalizer,
+     * which spreads the bits FNV leaves correlated
+     *
+     * @param value item to hash
+     * @return hash suitable for {@link #add(long)}
+     */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof HyperLogLog other && Arrays.equals(registers, other.registers);
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+}
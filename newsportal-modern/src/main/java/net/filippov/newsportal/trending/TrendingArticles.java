@@ -0,0 +1,434 @@
+package net.filippov.newsportal.trending;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.repository.ArticleRepository;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.service.event.CommentAddedEvent;
+
+/**
+ * Articles ranked by recent activity, overall and per category.
+ * <p>
+ * New readers, as counted by {@link UniqueReaders}, and comments are counted
+ * per article in the current bucket, which every
+ * {@code newsportal.trending.tick-ms} is drained into exponentially decayed
+ * {@link TrendingScores} with a half-life of
+ * {@code newsportal.trending.half-life-minutes}; a comment weighs as much as
+ * {@code newsportal.trending.comment-weight} readers, and repeated views by
+ * the same reader don't count. Scores are only touched by the maintenance
+ * thread, which publishes the summaries of the top articles as an immutable
+ * snapshot, so callers never wait and never query the database. Summaries
+ * are reloaded when the top lists or their articles change, and at least
+ * every {@code summary-refresh-ms} for current counts.
+ * <p>
+ * Scores are checkpointed to {@code newsportal.trending.checkpoint-file}
+ * periodically and on shutdown and restored on startup. Without a usable
+ * checkpoint they are seeded from view and comment counts, as if all of an
+ * article's activity happened when it was created. Until then
+ * {@link #isReady()} is false and callers should fall back to the database.
+ * A failed load is retried by later ticks, waiting twice as long after each
+ * failure up to five minutes; activity is not counted meanwhile, so nothing
+ * piles up while the database is unavailable
+ *
+ * @author Oleg Filippov
+ */
+@Component
+public class TrendingArticles {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrendingArticles.class);
+
+    private static final Snapshot EMPTY = new Snapshot(List.of(), Map.of());
+    private static final long MAX_LOAD_BACKOFF_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ArticleRepository articleRepository;
+    private final long halfLifeMs;
+    private final int topSize;
+    private final double commentWeight;
+    private final long tickMs;
+    private final long summaryRefreshMs;
+    private final long checkpointIntervalMs;
+    private final Path checkpointFile;
+    private final int batchSize;
+
+    // Current bucket, drained by every tick
+    private final Map<Long, LongAdder> readers = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> comments = new ConcurrentHashMap<>();
+    private final Queue<ArticleChangedEvent> changes = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService maintenance;
+    private volatile Snapshot snapshot = EMPTY;
+    private volatile long version;
+    private volatile boolean ready;
+
+    /**
+     * False once a load failed and until one succeeds, activity is then ignored
+     */
+    private volatile boolean counting = true;
+
+    // Confined to the maintenance thread
+    private TrendingScores scores;
+    private final Map<Long, ArticleSummary> summaries = new HashMap<>();
+    private boolean summariesStale;
+    private long summariesLoaded;
+    private long lastCheckpoint;
+    private long loadBackoffMs;
+    private long nextLoad;
+
+    public TrendingArticles(ArticleRepository articleRepository,
+            @Value("${newsportal.trending.half-life-minutes:720}") long halfLifeMinutes,
+            @Value("${newsportal.trending.top-size:50}") int topSize,
+            @Value("${newsportal.trending.comment-weight:5}") double commentWeight,
+            @Value("${newsportal.trending.tick-ms:10000}") long tickMs,
+            @Value("${newsportal.trending.summary-refresh-ms:60000}") long summaryRefreshMs,
+            @Value("${newsportal.trending.checkpoint-interval-ms:300000}") long checkpointIntervalMs,
+            @Value("${newsportal.trending.checkpoint-file:data/trending.bin}") String checkpointFile,
+            @Value("${newsportal.trending.load-batch-size:1000}") int batchSize) {
+        this.articleRepository = articleRepository;
+        this.halfLifeMs = TimeUnit.MINUTES.toMillis(halfLifeMinutes);
+        this.topSize = topSize;
+        this.commentWeight = commentWeight;
+        this.tickMs = tickMs;
+        this.summaryRefreshMs = summaryRefreshMs;
+        this.checkpointIntervalMs = checkpointIntervalMs;
+        this.checkpointFile = Paths.get(checkpointFile).toAbsolutePath();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return true once scores are loaded
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return number incremented whenever the overall top list is published
+     *         with other articles or in another order
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param articleId id of read article
+     * @param count number of readers who had not read it before
+     */
+    public void recordReaders(Long articleId, long count) {
+        if (!counting) {
+            return;
+        }
+        readers.computeIfAbsent(articleId, id -> new LongAdder()).add(count);
+    }
+
+    /**
+     * @param limit maximum number of articles
+     * @return most active articles, empty until scores are loaded
+     */
+    public List<ArticleSummary> getTop(int limit) {
+        return head(snapshot.top, limit);
+    }
+
+    /**
+     * @param categoryName name of category
+     * @param limit maximum number of articles
+     * @return most active articles in the category, empty until scores are loaded
+     */
+    public List<ArticleSummary> getTop(String categoryName, int limit) {
+        return head(snapshot.topByCategory.getOrDefault(categoryName, List.of()), limit);
+    }
+
+    @TransactionalEventListener
+    void onCommentAdded(CommentAddedEvent event) {
+        if (!counting) {
+            return;
+        }
+        comments.computeIfAbsent(event.getArticleId(), id -> new LongAdder()).increment();
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        if (!counting) {
+            return;
+        }
+        changes.add(event);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The first tick loads the scores
+        maintenance.scheduleWithFixedDelay(this::tick, 0, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (maintenance == null) {
+            return;
+        }
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(10, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // The maintenance thread is gone, scores are safe to use here
+        if (ready) {
+            drain(System.currentTimeMillis());
+            checkpoint();
+        }
+    }
+
+    /**
+     * Restore the checkpoint or seed scores from the database and register
+     * the category of every article, unless a failed load is still backing off
+     *
+     * @return true if scores are loaded
+     */
+    private boolean load() {
+        long started = System.currentTimeMillis();
+        if (started < nextLoad) {
+            return false;
+        }
+        try {
+            TrendingScores restored = readCheckpoint();
+            TrendingScores loaded = restored != null ? restored
+                    : new TrendingScores(halfLifeMs, topSize, started);
+            Set<Long> ids = new HashSet<>();
+            Long afterId = 0L;
+            List<ArticleActivity> batch;
+            do {
+                batch = articleRepository.findActivities(afterId, PageRequest.of(0, batchSize));
+                for (ArticleActivity article : batch) {
+                    ids.add(article.getId());
+                    loaded.put(article.getId(), article.getCategoryName());
+                    if (restored == null) {
+                        loaded.add(article.getId(), article.getViewCount()
+                                + commentWeight * article.getCommentCount(), article.getCreated().getTime());
+                    }
+                    afterId = article.getId();
+                }
+            } while (batch.size() == batchSize);
+            loaded.retainAll(ids);
+            scores = loaded;
+            lastCheckpoint = started;
+            summariesStale = true;
+            loadBackoffMs = 0;
+            counting = true;
+            LOG.info("Trending scores of {} articles {} in {} ms", ids.size(),
+                    restored != null ? "restored" : "seeded", System.currentTimeMillis() - started);
+            return true;
+        } catch (RuntimeException e) {
+            loadBackoffMs = Math.min(MAX_LOAD_BACKOFF_MS, Math.max(tickMs, 2 * loadBackoffMs));
+            nextLoad = started + loadBackoffMs;
+            counting = false;
+            readers.clear();
+            comments.clear();
+            changes.clear();
+            LOG.error("Failed to load trending scores, retrying in {} ms", loadBackoffMs, e);
+            return false;
+        }
+    }
+
+    /**
+     * Load scores if not done yet, apply article changes and the current
+     * bucket, then publish a new snapshot and write a checkpoint when due
+     */
+    private void tick() {
+        if (scores == null && !load()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            applyChanges();
+            drain(now);
+            boolean changed = scores.refresh();
+            if (changed || summariesStale || now - summariesLoaded >= summaryRefreshMs) {
+                publish(now);
+            }
+            if (now - lastCheckpoint >= checkpointIntervalMs) {
+                checkpoint();
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            LOG.warn("Trending maintenance failed", e);
+        }
+    }
+
+    private void applyChanges() {
+        ArticleChangedEvent event;
+        while ((event = changes.poll()) != null) {
+            Long id = event.getArticleId();
+            Optional<ArticleActivity> article = event.getType() == ArticleChangedEvent.Type.DELETED
+                    ? Optional.empty() : articleRepository.findActivity(id);
+            if (article.isPresent()) {
+                scores.put(id, article.get().getCategoryName());
+            } else {
+                scores.remove(id);
+                readers.remove(id);
+                comments.remove(id);
+            }
+            // Title or image may have changed
+            summariesStale |= summaries.containsKey(id);
+        }
+    }
+
+    private void drain(long now) {
+        Map<Long, Double> weights = new HashMap<>();
+        readers.forEach((id, count) -> {
+            long sum = count.sumThenReset();
+            if (sum > 0) {
+                weights.merge(id, (double) sum, Double::sum);
+            }
+        });
+        comments.forEach((id, count) -> {
+            long sum = count.sumThenReset();
+            if (sum > 0) {
+                weights.merge(id, commentWeight * sum, Double::sum);
+            }
+        });
+        weights.forEach((id, weight) -> scores.add(id, weight, now));
+    }
+
+    /**
+     * Publish summaries of the current top lists, reusing loaded summaries
+     * unless they are due for a refresh
+     */
+    private void publish(long now) {
+        Set<Long> ids = new HashSet<>(scores.top());
+        for (String name : scores.categoryNames()) {
+            ids.addAll(scores.top(name));
+        }
+        boolean reload = summariesStale || now - summariesLoaded >= summaryRefreshMs;
+        if (reload) {
+            summaries.clear();
+        } else {
+            summaries.keySet().retainAll(ids);
+        }
+        List<Long> missing = new ArrayList<>(ids);
+        missing.removeAll(summaries.keySet());
+        if (!missing.isEmpty()) {
+            articleRepository.findSummariesByIdIn(missing).forEach(summary -> summaries.put(summary.getId(), summary));
+        }
+        if (reload) {
+            summariesLoaded = now;
+            summariesStale = false;
+        }
+
+        Map<String, List<ArticleSummary>> byCategory = new HashMap<>();
+        for (String name : scores.categoryNames()) {
+            byCategory.put(name, summaries(scores.top(name)));
+        }
+        Snapshot published = new Snapshot(summaries(scores.top()), byCategory);
+        if (!ids(published.top).equals(ids(snapshot.top))) {
+            version++;
+        }
+        snapshot = published;
+    }
+
+    private List<ArticleSummary> summaries(List<Long> ids) {
+        List<ArticleSummary> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ArticleSummary summary = summaries.get(id);
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * @return scores in the checkpoint, null if there is no usable one
+     */
+    private TrendingScores readCheckpoint() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            TrendingScores restored = TrendingScores.read(in, halfLifeMs, topSize);
+            if (restored == null) {
+                LOG.info("Trending half-life changed, scores will be seeded from the database");
+            }
+            return restored;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Unreadable trending checkpoint {}, scores will be seeded from the database", checkpointFile, e);
+            return null;
+        }
+    }
+
+    private void checkpoint() {
+        lastCheckpoint = System.currentTimeMillis();
+        try {
+            Files.createDirectories(checkpointFile.getParent());
+            Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                scores.write(out);
+            }
+            Files.move(tmp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.warn("Failed to write trending checkpoint {}", checkpointFile, e);
+        }
+    }
+
+    private static List<Long> ids(List<ArticleSummary> articles) {
+        return articles.stream().map(ArticleSummary::getId).toList();
+    }
+
+    private static List<ArticleSummary> head(List<ArticleSummary> articles, int limit) {
+        return articles.size() <= limit ? articles : articles.subList(0, limit);
+    }
+
+    /**
+     * Top lists as served to readers
+     */
+    private static final class Snapshot {
+
+        private final List<ArticleSummary> top;
+        private final Map<String, List<ArticleSummary>> topByCategory;
+
+        private Snapshot(List<ArticleSummary> top, Map<String, List<ArticleSummary>> topByCategory) {
+            this.top = top;
+            this.topByCategory = topByCategory;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package net.filippov.newsportal.trending;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Exponentially decayed activity scores of articles with the top {@code k}
+ * articles overall and in each category.
+ * <p>
+ * Scores use forward decay: activity of weight {@code w} at time {@code t}
+ * adds {@code w * exp(lambda * (t - landmark))}, so the current score of an
+ * article is its stored value times {@code exp(-lambda * (now - landmark))}.
+ * That factor is the same for every article, so stored values can be compared
+ * directly and the ranking of articles without new activity never changes.
+ * As activity only raises scores, the new top of a list is always found among
+ * its previous top and the articles touched since, and the lists are only
+ * rebuilt from all scores after removals. The landmark is moved forward once
+ * the growth factor gets large, before stored values could overflow.
+ * <p>
+ * Not thread-safe; the owner serializes access
+ *
+ * @author Oleg Filippov
+ */
+public class TrendingScores {
+
+    private static final int MAGIC = 0x54524e44; // "TRND"
+    private static final int VERSION = 1;
+
+    // exp(50) ~ 5e21, far from overflow even with millions of views
+    private static final double MAX_EXPONENT = 50;
+
+    private static final Comparator<Map.Entry<Long, Entry>> RANKING =
+            Comparator.<Map.Entry<Long, Entry>> comparingDouble(e -> e.getValue().score)
+                    .thenComparing(Map.Entry::getKey);
+
+    private final long halfLifeMs;
+    private final double lambda;
+    private final int k;
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private long landmark;
+    private List<Long> top = List.of();
+    private Map<String, List<Long>> topByCategory = Map.of();
+    private final Set<Long> touched = new HashSet<>();
+    private boolean rebuild;
+
+    /**
+     * @param halfLifeMs time after which the weight of activity halves
+     * @param k length of the top lists
+     * @param landmark time scores are stored relative to
+     */
+    public TrendingScores(long halfLifeMs, int k, long landmark) {
+        this.halfLifeMs = halfLifeMs;
+        this.lambda = Math.log(2) / halfLifeMs;
+        this.k = k;
+        this.landmark = landmark;
+    }
+
+    /**
+     * Register an article or change its category. Activity of articles that
+     * are not registered is ignored
+     *
+     * @param articleId id of article
+     * @param categoryName name of its category, null if it has none
+     */
+    public void put(Long articleId, String categoryName) {
+        Entry entry = entries.get(articleId);
+        if (entry == null) {
+            entries.put(articleId, new Entry(categoryName));
+        } else if (!Objects.equals(entry.categoryName, categoryName)) {
+            entry.categoryName = categoryName;
+            rebuild = true;
+        }
+    }
+
+    /**
+     * @param articleId id of deleted article
+     */
+    public void remove(Long articleId) {
+        Entry entry = entries.remove(articleId);
+        if (entry != null && entry.score > 0) {
+            touched.remove(articleId);
+            rebuild = true;
+        }
+    }
+
+    /**
+     * Keep only the given articles
+     *
+     * @param articleIds ids of existing articles
+     */
+    public void retainAll(Collection<Long> articleIds) {
+        if (entries.keySet().retainAll(articleIds)) {
+            touched.retainAll(articleIds);
+            rebuild = true;
+        }
+    }
+
+    /**
+     * @param articleId id of article
+     * @param weight amount of activity
+     * @param time when the activity happened, in milliseconds
+     */
+    public void add(Long articleId, double weight, long time) {
+        Entry entry = entries.get(articleId);
+        if (entry == null || weight <= 0) {
+            return;
+        }
+        if (lambda * (time - landmark) > MAX_EXPONENT) {
+            rebase(time);
+        }
+        entry.score += weight * Math.exp(lambda * (time - landmark));
+        touched.add(articleId);
+    }
+
+    /**
+     * @param articleId id of article
+     * @param now current time in milliseconds
+     * @return decayed score of the article at {@code now}, 0 if it is not registered
+     */
+    public double score(Long articleId, long now) {
+        Entry entry = entries.get(articleId);
+        return entry == null ? 0 : entry.score * Math.exp(-lambda * (now - landmark));
+    }
+
+    /**
+     * Bring the top lists up to date with the changes made since the last call
+     *
+     * @return true if any list changed
+     */
+    public boolean refresh() {
+        if (!rebuild && touched.isEmpty()) {
+            return false;
+        }
+        List<Long> previousTop = top;
+        Map<String, List<Long>> previousByCategory = topByCategory;
+        if (rebuild) {
+            top = best(entries.keySet());
+            Map<String, List<Long>> members = new HashMap<>();
+            entries.forEach((id, entry) -> {
+                if (entry.categoryName != null) {
+                    members.computeIfAbsent(entry.categoryName, name -> new ArrayList<>()).add(id);
+                }
+            });
+            Map<String, List<Long>> byCategory = new HashMap<>();
+            members.forEach((name, ids) -> putIfNotEmpty(byCategory, name, best(ids)));
+            topByCategory = byCategory;
+        } else {
+            Set<Long> candidates = new LinkedHashSet<>(top);
+            candidates.addAll(touched);
+            top = best(candidates);
+            Map<String, Set<Long>> categoryCandidates = new HashMap<>();
+            for (Long id : touched) {
+                String name = entries.get(id).categoryName;
+                if (name != null) {
+                    categoryCandidates.computeIfAbsent(name,
+                            n -> new LinkedHashSet<>(topByCategory.getOrDefault(n, List.of()))).add(id);
+                }
+            }
+            if (!categoryCandidates.isEmpty()) {
+                Map<String, List<Long>> byCategory = new HashMap<>(topByCategory);
+                categoryCandidates.forEach((name, ids) -> putIfNotEmpty(byCategory, name, best(ids)));
+                topByCategory = byCategory;
+            }
+        }
+        touched.clear();
+        rebuild = false;
+        return !top.equals(previousTop) || !topByCategory.equals(previousByCategory);
+    }
+
+    /**
+     * @return ids of the top articles, highest score first
+     */
+    public List<Long> top() {
+        return top;
+    }
+
+    /**
+     * @param categoryName name of category
+     * @return ids of the top articles in the category, highest score first
+     */
+    public List<Long> top(String categoryName) {
+        return topByCategory.getOrDefault(categoryName, List.of());
+    }
+
+    /**
+     * @return names of categories with scored articles
+     */
+    public Set<String> categoryNames() {
+        return topByCategory.keySet();
+    }
+
+    /**
+     * @return number of registered articles
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the half-life, landmark and non-zero scores. Categories are not
+     * written, they are read from the database again on restore
+     *
+     * @param out checkpoint output
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(halfLifeMs);
+        out.writeLong(landmark);
+        int count = (int) entries.values().stream().filter(entry -> entry.score > 0).count();
+        out.writeInt(count);
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().score > 0) {
+                out.writeLong(entry.getKey());
+                out.writeDouble(entry.getValue().score);
+            }
+        }
+    }
+
+    /**
+     * Restore scores written by {@link #write(DataOutput)}. Restored articles
+     * have no category until they are {@link #put(Long, String) put} again
+     *
+     * @param in checkpoint input
+     * @param halfLifeMs configured half-life
+     * @param k length of the top lists
+     * @return restored scores, null if they were written with another half-life
+     * @throws IOException if the input is not a checkpoint
+     */
+    public static TrendingScores read(DataInput in, long halfLifeMs, int k) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a trending checkpoint");
+        }
+        if (in.readLong() != halfLifeMs) {
+            return null;
+        }
+        TrendingScores scores = new TrendingScores(halfLifeMs, k, in.readLong());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Long articleId = in.readLong();
+            Entry entry = new Entry(null);
+            entry.score = in.readDouble();
+            scores.entries.put(articleId, entry);
+        }
+        scores.rebuild = true;
+        return scores;
+    }
+
+    /**
+     * Move the landmark to {@code time}, scaling stored values accordingly
+     */
+    private void rebase(long time) {
+        double factor = Math.exp(-lambda * (time - landmark));
+        entries.values().forEach(entry -> entry.score *= factor);
+        landmark = time;
+        // Scores of long inactive articles may have dropped to zero
+        rebuild = true;
+    }
+
+    /**
+     * @return up to {@code k} of the given articles with a score, highest first
+     */
+    private List<Long> best(Collection<Long> ids) {
+        PriorityQueue<Map.Entry<Long, Entry>> heap = new PriorityQueue<>(k + 1, RANKING);
+        for (Long id : ids) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.score > 0) {
+                heap.add(Map.entry(id, entry));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+        }
+        Long[] best = new Long[heap.size()];
+        for (int i = best.length - 1; i >= 0; i--) {
+            best[i] = heap.poll().getKey();
+        }
+        return List.of(best);
+    }
+
+    private static void putIfNotEmpty(Map<String, List<Long>> lists, String name, List<Long> ids) {
+        if (ids.isEmpty()) {
+            lists.remove(name);
+        } else {
+            lists.put(name, ids);
+        }
+    }
+
+    private static final class Entry {
+
+        private String categoryName;
+        private double score;
+
+        private Entry(String categoryName) {
+            this.categoryName = categoryName;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package net.filippov.newsportal.trending;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.filippov.newsportal.domain.ArticleReaders;
+import net.filippov.newsportal.repository.ArticleReadersRepository;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+
+/**
+ * Estimated number of distinct readers of each article. Readers are
+ * identified by a 64-bit hash of their user id or, when anonymous, of their
+ * address and user agent, and only the hash bits a {@link HyperLogLog} keeps
+ * are ever stored.
+ * <p>
+ * Readers are added to a sketch per article in memory, which is merged into
+ * the article's {@link ArticleReaders} row every {@code flushIntervalMs} and
+ * on shutdown. Rows are locked while merging, so any number of nodes can
+ * share them; a failed merge is retried with the next flush, as merging the
+ * same readers twice changes nothing. Readers new to the stored sketch are
+ * passed on to {@link TrendingArticles}
+ */
+@Component
+public class UniqueReaders {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UniqueReaders.class);
+
+    private final ArticleReadersRepository articleReadersRepository;
+    private final TrendingArticles trendingArticles;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+    private final int batchSize;
+
+    private final Map<Long, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService executor;
+
+    public UniqueReaders(ArticleReadersRepository articleReadersRepository, TrendingArticles trendingArticles,
+            PlatformTransactionManager transactionManager,
+            @Value("${newsportal.readers.flush-interval-ms:10000}") long flushIntervalMs,
+            @Value("${newsportal.readers.flush-batch-size:100}") int batchSize) {
+        this.articleReadersRepository = articleReadersRepository;
+        this.trendingArticles = trendingArticles;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "readers-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Register a reader of the given article
+     *
+     * @param articleId id of read article
+     * @param readerHash hash identifying the reader
+     */
+    public void add(Long articleId, long readerHash) {
+        pending.compute(articleId, (id, sketch) -> {
+            HyperLogLog result = sketch == null ? new HyperLogLog() : sketch;
+            result.add(readerHash);
+            return result;
+        });
+    }
+
+    /**
+     * @param articleIds ids of articles
+     * @return estimated distinct readers of each article, including readers not yet stored
+     */
+    public Map<Long, Long> getReaderCounts(Collection<Long> articleIds) {
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        if (!articleIds.isEmpty()) {
+            for (ArticleReaders row : articleReadersRepository.findByArticleIdIn(articleIds)) {
+                sketches.put(row.getArticleId(), HyperLogLog.fromBytes(row.getSketch()));
+            }
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        for (Long id : articleIds) {
+            HyperLogLog sketch = sketches.computeIfAbsent(id, key -> new HyperLogLog());
+            pending.computeIfPresent(id, (key, unsaved) -> {
+                sketch.merge(unsaved);
+                return unsaved;
+            });
+            counts.put(id, sketch.estimate());
+        }
+        return counts;
+    }
+
+    /**
+     * Merge pending sketches into the stored ones
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Long> ids = new ArrayList<>(pending.keySet());
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                Map<Long, HyperLogLog> batch = new HashMap<>();
+                for (Long id : ids.subList(from, Math.min(from + batchSize, ids.size()))) {
+                    HyperLogLog sketch = pending.remove(id);
+                    if (sketch != null) {
+                        batch.put(id, sketch);
+                    }
+                }
+                try {
+                    Map<Long, Long> newReaders = transactionTemplate.execute(status -> merge(batch));
+                    newReaders.forEach(trendingArticles::recordReaders);
+                } catch (RuntimeException e) {
+                    batch.forEach((id, sketch) -> pending.merge(id, sketch, (current, failed) -> {
+                        current.merge(failed);
+                        return current;
+                    }));
+                    LOG.warn("Failed to store readers of {} articles, retrying with the next flush", batch.size(), e);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of readers each sketch added to the stored one
+     */
+    private Map<Long, Long> merge(Map<Long, HyperLogLog> batch) {
+        Map<Long, ArticleReaders> rows = new HashMap<>();
+        articleReadersRepository.findForUpdate(batch.keySet()).forEach(row -> rows.put(row.getArticleId(), row));
+        Map<Long, Long> newReaders = new HashMap<>();
+        batch.forEach((id, sketch) -> {
+            ArticleReaders row = rows.get(id);
+            HyperLogLog merged = sketch;
+            long before = 0;
+            if (row == null) {
+                row = new ArticleReaders(id);
+            } else {
+                merged = HyperLogLog.fromBytes(row.getSketch());
+                merged.merge(sketch);
+                before = row.getReaderCount();
+            }
+            long count = merged.estimate();
+            row.setSketch(merged.toBytes());
+            row.setReaderCount(count);
+            articleReadersRepository.save(row);
+            if (count > before) {
+                newReaders.put(id, count - before);
+            }
+        });
+        return newReaders;
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        if (event.getType() != ArticleChangedEvent.Type.DELETED) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            pending.remove(event.getArticleId());
+            transactionTemplate.executeWithoutResult(
+                    status -> articleReadersRepository.deleteByArticleId(event.getArticleId()));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
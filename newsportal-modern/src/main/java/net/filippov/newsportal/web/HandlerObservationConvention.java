@@ -0,0 +1,37 @@
+package net.filippov.newsportal.web;
+
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tags HTTP server request metrics with the controller method that handled
+ * the request, such as {@code ArticleController#view}, next to the route
+ * template in {@code uri}. Pages served from the page cache never reach a
+ * controller and are tagged {@code PageCache}
+ */
+public class HandlerObservationConvention extends DefaultServerRequestObservationConvention {
+
+    private static final String PAGE_CACHE_HEADER = "X-Page-Cache";
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and("handler", handler(context));
+    }
+
+    private static String handler(ServerRequestObservationContext context) {
+        Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod method) {
+            return method.getBeanType().getSimpleName() + "#" + method.getMethod().getName();
+        }
+        HttpServletResponse response = context.getResponse();
+        if (response != null && "HIT".equals(response.getHeader(PAGE_CACHE_HEADER))) {
+            return "PageCache";
+        }
+        return "none";
+    }
+}
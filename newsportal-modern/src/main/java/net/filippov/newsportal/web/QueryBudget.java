@@ -0,0 +1,23 @@
+package net.filippov.newsportal.web;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements a request handled by the annotated
+ * controller method may execute, checked by {@link QueryBudgetFilter} in
+ * place of {@code newsportal.query-budget.max-statements}
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+
+    /**
+     * @return maximum number of statements
+     */
+    int value();
+}
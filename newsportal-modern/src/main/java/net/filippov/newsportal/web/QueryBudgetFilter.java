@@ -0,0 +1,116 @@
+package net.filippov.newsportal.web;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.filippov.newsportal.sql.QueryStats;
+
+/**
+ * Counts the SQL statements, JDBC time and rows read of every request, see
+ * {@link QueryStats}, and publishes them per route as
+ * {@code newsportal.request.statements} and {@code newsportal.request.jdbc}.
+ * A request over its budget, {@link QueryBudget} on its controller method or
+ * {@code maxStatements}, or repeating a statement shape
+ * {@code repeatedThreshold} times or more, a likely N+1 select, is logged
+ * with the offending shapes. With {@code enforce}, meant for tests, it fails
+ * with an {@link IllegalStateException} instead.
+ */
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    private static final int MAX_LOGGED_SHAPE_LENGTH = 300;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final int repeatedThreshold;
+    private final boolean enforce;
+
+    public QueryBudgetFilter(MeterRegistry meterRegistry, int maxStatements, int repeatedThreshold,
+            boolean enforce) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.repeatedThreshold = repeatedThreshold;
+        this.enforce = enforce;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats stats = new QueryStats();
+        request.setAttribute(QueryStats.ATTRIBUTE, stats);
+        QueryStats previous = QueryStats.bind(stats);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryStats.bind(previous);
+        }
+        check(request, stats);
+    }
+
+    private void check(HttpServletRequest request, QueryStats stats) {
+        // The route template of request metrics, set for pages served from the page cache as well
+        String route = ServerHttpObservationFilter.findObservationContext(request)
+                .map(ServerRequestObservationContext::getPathPattern)
+                .or(() -> Optional.ofNullable((String) request.getAttribute(
+                        HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)))
+                .orElse("UNKNOWN");
+        DistributionSummary.builder("newsportal.request.statements")
+                .description("SQL statements executed per request")
+                .tag("uri", route)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("newsportal.request.jdbc")
+                .description("Time spent executing SQL statements per request")
+                .tag("uri", route)
+                .register(meterRegistry)
+                .record(stats.getJdbcTimeNanos(), TimeUnit.NANOSECONDS);
+
+        int budget = budget(request);
+        Map<String, Integer> repeated = stats.getRepeatedShapes(repeatedThreshold);
+        if (stats.getStatements() <= budget && repeated.isEmpty()) {
+            LOG.debug("{} {}: {} statements, {} rows, {} ms in JDBC", request.getMethod(), route,
+                    stats.getStatements(), stats.getRows(), TimeUnit.NANOSECONDS.toMillis(stats.getJdbcTimeNanos()));
+            return;
+        }
+        StringBuilder message = new StringBuilder(String.format(
+                "%s %s: %d statements (budget %d), %d rows, %d ms in JDBC", request.getMethod(),
+                request.getRequestURI(), stats.getStatements(), budget, stats.getRows(),
+                TimeUnit.NANOSECONDS.toMillis(stats.getJdbcTimeNanos())));
+        repeated.forEach((shape, count) -> message.append(String.format("%n  possible N+1, %d times: %s", count,
+                shape.length() > MAX_LOGGED_SHAPE_LENGTH ? shape.substring(0, MAX_LOGGED_SHAPE_LENGTH) + "..."
+                        : shape)));
+        if (enforce) {
+            throw new IllegalStateException("Query budget exceeded by " + message);
+        }
+        LOG.warn("Query budget exceeded by {}", message);
+    }
+
+    private int budget(HttpServletRequest request) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            QueryBudget budget = handler.getMethodAnnotation(QueryBudget.class);
+            if (budget != null) {
+                return budget.value();
+            }
+        }
+        return maxStatements;
+    }
+}
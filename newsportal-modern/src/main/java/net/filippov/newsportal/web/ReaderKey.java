@@ -0,0 +1,36 @@
+package net.filippov.newsportal.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+
+import net.filippov.newsportal.trending.HyperLogLog;
+
+/**
+ * Hashes identifying readers for {@link net.filippov.newsportal.trending.UniqueReaders}.
+ * Signed-in readers are identified by their user id, anonymous ones by their
+ * address and user agent; neither is stored, only the hash. Behind a proxy
+ * set {@code server.forward-headers-strategy} so the client address is used
+ */
+public final class ReaderKey {
+
+    private ReaderKey() {
+    }
+
+    /**
+     * @param userId id of signed-in reader
+     * @return hash of the reader
+     */
+    public static long of(Long userId) {
+        return HyperLogLog.hash("user:" + userId);
+    }
+
+    /**
+     * @param request request of anonymous reader
+     * @return hash of the reader
+     */
+    public static long of(HttpServletRequest request) {
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        return HyperLogLog.hash("client:" + request.getRemoteAddr() + '|' + (userAgent == null ? "" : userAgent));
+    }
+}
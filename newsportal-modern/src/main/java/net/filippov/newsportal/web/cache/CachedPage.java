@@ -0,0 +1,83 @@
+package net.filippov.newsportal.web.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rendered page kept by {@link PageCache}, with its body gzip-compressed and
+ * the caching headers it was sent with
+ */
+public class CachedPage {
+
+    private final String path;
+    private final String contentType;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    /**
+     * @param path request path, used for invalidation
+     * @param contentType content type of the response
+     * @param headers validator and cache control headers of the response
+     * @param content uncompressed response body
+     */
+    public CachedPage(String path, String contentType, Map<String, String> headers, byte[] content) {
+        this.path = path;
+        this.contentType = contentType;
+        this.headers = Map.copyOf(headers);
+        this.body = compress(content);
+    }
+
+    /**
+     * @return request path of this page
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return content type of this page
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return validator and cache control headers by name
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return gzip-compressed body
+     */
+    public byte[] getCompressedBody() {
+        return body;
+    }
+
+    /**
+     * @return uncompressed body
+     */
+    public byte[] getBody() {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
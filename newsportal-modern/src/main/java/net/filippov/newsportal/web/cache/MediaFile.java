@@ -0,0 +1,109 @@
+package net.filippov.newsportal.web.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open stored image with the metadata needed to answer a request for it. The
+ * channel is shared by concurrent requests, which only use positional reads
+ */
+public class MediaFile {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long lastModified;
+    private final String contentType;
+
+    MediaFile(Path path, FileChannel channel, long size, long lastModified, String contentType) {
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return real path of the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return file size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return last modification time, in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return media type of the image
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Copy a range of the file to the output with
+     * {@link FileChannel#transferTo}. The output is a servlet stream rather
+     * than a socket, so this is a buffered copy, used for bodies too small to
+     * be worth the container's sendfile. If the cache closes the channel
+     * meanwhile, the rest is copied from a channel opened for this call
+     *
+     * @param position first byte to copy
+     * @param count number of bytes to copy
+     */
+    public void transferTo(long position, long count, OutputStream output) throws IOException {
+        WritableByteChannel target = Channels.newChannel(output);
+        FileChannel source = channel;
+        FileChannel own = null;
+        try {
+            long next = position;
+            long end = position + count;
+            while (next < end) {
+                long sent;
+                try {
+                    sent = source.transferTo(next, end - next, target);
+                } catch (ClosedChannelException e) {
+                    if (own != null) {
+                        throw e;
+                    }
+                    own = FileChannel.open(path, StandardOpenOption.READ);
+                    source = own;
+                    continue;
+                }
+                if (sent <= 0) {
+                    // File shrank, which stored images never do
+                    throw new IOException("Unexpected end of " + path);
+                }
+                next += sent;
+            }
+        } finally {
+            if (own != null) {
+                own.close();
+            }
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package net.filippov.newsportal.web.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import net.filippov.newsportal.service.ImageService;
+import net.filippov.newsportal.service.event.ImageDeletedEvent;
+
+/**
+ * Least recently used stored images, kept open with their size, modification
+ * time and type so serving one needs no file system call but the copy itself.
+ * The number of open files is bounded by {@code newsportal.media.open-files};
+ * a file is closed when evicted, idle for
+ * {@code newsportal.media.idle-seconds} or deleted from the store.
+ */
+@Component
+public class MediaFileCache {
+
+    private final ImageService imageService;
+    private final Cache<String, MediaFile> files;
+
+    public MediaFileCache(ImageService imageService, MeterRegistry meterRegistry,
+            @Value("${newsportal.media.open-files:1000}") long openFiles,
+            @Value("${newsportal.media.idle-seconds:600}") long idleSeconds) {
+        this.imageService = imageService;
+        this.files = Caffeine.newBuilder()
+                .maximumSize(openFiles)
+                .expireAfterAccess(idleSeconds, TimeUnit.SECONDS)
+                .<String, MediaFile>removalListener((url, file, cause) -> file.close())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, files, "mediaFiles");
+    }
+
+    /**
+     * @param imageUrl URL of a stored image or one of its resized copies
+     * @return the open file, {@code null} if there is no such image
+     */
+    public MediaFile get(String imageUrl) {
+        MediaFile file = files.getIfPresent(imageUrl);
+        if (file != null) {
+            return file;
+        }
+        // Opened outside the cache, as file I/O under its lock would pin the
+        // carrier of a virtual thread and block others loading the same key
+        MediaFile opened = open(imageUrl);
+        if (opened == null) {
+            return null;
+        }
+        MediaFile cached = files.asMap().putIfAbsent(imageUrl, opened);
+        if (cached != null) {
+            opened.close();
+            return cached;
+        }
+        return opened;
+    }
+
+    /**
+     * Close the image and its resized copies once deleted from the store
+     */
+    @EventListener
+    void onImageDeleted(ImageDeletedEvent event) {
+        String url = event.getImageUrl();
+        String base = url.substring(0, url.lastIndexOf('.'));
+        files.asMap().keySet().removeIf(key -> key.startsWith(base));
+    }
+
+    @PreDestroy
+    void close() {
+        files.invalidateAll();
+    }
+
+    private MediaFile open(String imageUrl) {
+        Path path = imageService.resolve(imageUrl);
+        String contentType = path == null ? null : contentTypeOf(path);
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            Path real = path.toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(real, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new MediaFile(real, FileChannel.open(real, StandardOpenOption.READ), attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), contentType);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentTypeOf(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "image/jpeg";
+        }
+        if (name.endsWith(".png")) {
+            return "image/png";
+        }
+        if (name.endsWith(".webp")) {
+            return "image/webp";
+        }
+        return null;
+    }
+}
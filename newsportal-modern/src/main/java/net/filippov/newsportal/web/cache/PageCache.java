@@ -0,0 +1,208 @@
+package net.filippov.newsportal.web.cache;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.service.event.CommentAddedEvent;
+
+/**
+ * Rendered pages served to anonymous readers, keyed by path, query and
+ * locale. Bodies are stored compressed and the cache is bounded by their total
+ * size. Only one request renders a missing page while others asking for the
+ * same key wait for its result.
+ * <p>
+ * Pages are invalidated after commit: an article change drops the article
+ * page, the home page and the pages of every category and tag the article was
+ * or is listed under, a new comment drops the article page. Sidebar data shown
+ * on other pages may lag behind by up to {@code newsportal.page-cache.ttl-seconds}.
+ */
+@Component
+public class PageCache {
+
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Cache<String, CachedPage> pages;
+    private final ConcurrentMap<String, CompletableFuture<CachedPage>> rendering = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented by every invalidation, so a page rendered before it is not stored
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final long waitTimeoutMs;
+
+    public PageCache(MeterRegistry meterRegistry,
+            @Value("${newsportal.page-cache.max-size-mb:64}") long maxSizeMb,
+            @Value("${newsportal.page-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${newsportal.page-cache.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .<String, CachedPage>weigher((key, page) -> ENTRY_OVERHEAD + 2 * key.length()
+                        + page.getCompressedBody().length)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.waitTimeoutMs = waitTimeoutMs;
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "pages");
+    }
+
+    /**
+     * Cache key of a request
+     *
+     * @param path path within the application
+     * @param query query string, may be {@code null}
+     * @param locale locale of the request
+     */
+    public static String key(String path, String query, Locale locale) {
+        return path + (query == null ? "" : "?" + query) + "#" + locale.toLanguageTag();
+    }
+
+    /**
+     * @return cached page or {@code null}
+     */
+    public CachedPage get(String key) {
+        return pages.getIfPresent(key);
+    }
+
+    /**
+     * Register the caller as the one rendering {@code key}, unless another
+     * request is already rendering it
+     *
+     * @return rendering of the key, led by the caller if {@link Render#isLeader()}
+     */
+    public Render startRender(String key) {
+        CompletableFuture<CachedPage> result = new CompletableFuture<>();
+        CompletableFuture<CachedPage> running = rendering.putIfAbsent(key, result);
+        if (running != null) {
+            return new Render(key, running, false, 0);
+        }
+        return new Render(key, result, true, generation.get());
+    }
+
+    /**
+     * Wait for the page rendered by another request
+     *
+     * @return rendered page, or {@code null} if it was not cacheable or took
+     *         too long, in which case the caller renders it on its own
+     */
+    public CachedPage await(Render render) {
+        try {
+            return render.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store the page rendered by the leader and hand it to waiting requests
+     *
+     * @param page rendered page, {@code null} if the response is not cacheable
+     */
+    public void finishRender(Render render, CachedPage page) {
+        if (!render.leader) {
+            return;
+        }
+        CachedPage result = null;
+        try {
+            if (page != null && generation.get() == render.generation) {
+                pages.put(render.key, page);
+                // Invalidated in the meantime, the page may miss the change
+                if (generation.get() == render.generation) {
+                    result = page;
+                } else {
+                    pages.invalidate(render.key);
+                }
+            }
+        } finally {
+            rendering.remove(render.key, render.result);
+            render.result.complete(result);
+        }
+    }
+
+    /**
+     * Drop all pages with one of the given paths, regardless of query and locale
+     */
+    public void invalidate(Set<String> paths) {
+        generation.incrementAndGet();
+        Set<String> normalized = new HashSet<>();
+        paths.forEach(path -> normalized.add(normalize(path)));
+        pages.asMap().values().removeIf(page -> normalized.contains(page.getPath()));
+    }
+
+    /**
+     * Drop all pages
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    /**
+     * Path form compared on invalidation; category and tag names match
+     * regardless of case, as in the database
+     */
+    static String normalize(String path) {
+        return path.toLowerCase(Locale.ROOT);
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        Set<String> paths = new HashSet<>();
+        paths.add("/");
+        paths.add("/article/" + event.getArticleId());
+        event.getCategoryNames().forEach(name -> paths.add("/category/" + name));
+        event.getTagNames().forEach(name -> paths.add("/tag/" + name));
+        invalidate(paths);
+    }
+
+    @TransactionalEventListener
+    void onCommentAdded(CommentAddedEvent event) {
+        invalidate(Set.of("/article/" + event.getArticleId()));
+    }
+
+    /**
+     * Rendering of a page by one request, shared with others waiting for it
+     */
+    public static final class Render {
+
+        private final String key;
+        private final CompletableFuture<CachedPage> result;
+        private final boolean leader;
+        private final long generation;
+
+        private Render(String key, CompletableFuture<CachedPage> result, boolean leader, long generation) {
+            this.key = key;
+            this.result = result;
+            this.leader = leader;
+            this.generation = generation;
+        }
+
+        /**
+         * @return whether the caller renders the page
+         */
+        public boolean isLeader() {
+            return leader;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package net.filippov.newsportal.web.cache;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import net.filippov.newsportal.service.ViewCounter;
+import net.filippov.newsportal.trending.UniqueReaders;
+import net.filippov.newsportal.web.ReaderKey;
+
+/**
+ * Serves article and list pages to anonymous readers from {@link PageCache}.
+ * Runs after Spring Security, so the reader is known. Only successful HTML
+ * responses that set no cookie and are not marked {@code no-store} are
+ * cached, and pages are sent compressed to clients accepting gzip. Cached
+ * pages keep their validators, so conditional requests are answered with
+ * {@code 304} from the cache as well. Views of cached article pages are still
+ * counted.
+ */
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    static final String CACHE_HEADER = "X-Page-Cache";
+
+    private static final Pattern ARTICLE_PATH = Pattern.compile("/article/(\\d+)");
+
+    /**
+     * Cacheable paths and their route templates, which request metrics of cache hits are tagged with
+     */
+    private static final Map<Pattern, String> CACHEABLE_ROUTES = Map.of(
+            Pattern.compile("/"), "/",
+            ARTICLE_PATH, "/article/{id}",
+            Pattern.compile("/category/[^/]+"), "/category/{name}",
+            Pattern.compile("/tag/[^/]+"), "/tag/{name}");
+
+    /**
+     * Response headers stored along with a page
+     */
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED,
+            HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY);
+
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final PageCache pageCache;
+    private final ViewCounter viewCounter;
+    private final UniqueReaders uniqueReaders;
+
+    public PageCacheFilter(PageCache pageCache, ViewCounter viewCounter, UniqueReaders uniqueReaders) {
+        this.pageCache = pageCache;
+        this.viewCounter = viewCounter;
+        this.uniqueReaders = uniqueReaders;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        return CACHEABLE_ROUTES.keySet().stream().noneMatch(pattern -> pattern.matcher(path).matches());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!isAnonymous()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        String key = PageCache.key(path, request.getQueryString(), request.getLocale());
+
+        CachedPage page = pageCache.get(key);
+        PageCache.Render render = null;
+        if (page == null) {
+            render = pageCache.startRender(key);
+            if (!render.isLeader()) {
+                page = pageCache.await(render);
+            }
+        }
+        if (page != null) {
+            countView(path, request);
+            ServerHttpObservationFilter.findObservationContext(request)
+                    .ifPresent(context -> context.setPathPattern(route(path)));
+            write(page, request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        CachedPage rendered = null;
+        try {
+            chain.doFilter(request, wrapper);
+            if (isCacheable(wrapper)) {
+                rendered = new CachedPage(PageCache.normalize(path), wrapper.getContentType(),
+                        storedHeaders(wrapper), wrapper.getContentAsByteArray());
+            }
+            wrapper.setHeader(CACHE_HEADER, "MISS");
+            // Hits of the same page may be compressed
+            wrapper.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            wrapper.copyBodyToResponse();
+        } finally {
+            pageCache.finishRender(render, rendered);
+        }
+    }
+
+    private static String route(String path) {
+        return CACHEABLE_ROUTES.entrySet().stream()
+                .filter(route -> route.getKey().matcher(path).matches())
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated();
+    }
+
+    private static boolean isCacheable(ContentCachingResponseWrapper response) {
+        return response.getStatus() == HttpServletResponse.SC_OK
+                && response.getContentType() != null
+                && MediaType.TEXT_HTML.isCompatibleWith(MediaType.parseMediaType(response.getContentType()))
+                && !response.containsHeader(HttpHeaders.SET_COOKIE)
+                && !String.valueOf(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("no-store");
+    }
+
+    private static Map<String, String> storedHeaders(HttpServletResponse response) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : STORED_HEADERS) {
+            if (response.containsHeader(name)) {
+                headers.put(name, String.join(", ", response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Anonymous views are always counted, as in the article controller
+     */
+    private void countView(String path, HttpServletRequest request) {
+        Matcher matcher = ARTICLE_PATH.matcher(path);
+        if (matcher.matches()) {
+            Long articleId = Long.valueOf(matcher.group(1));
+            viewCounter.increment(articleId);
+            uniqueReaders.add(articleId, ReaderKey.of(request));
+        }
+    }
+
+    private static void write(CachedPage page, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        HttpHeaders validators = new HttpHeaders();
+        page.getHeaders().forEach(validators::set);
+        String etag = validators.getETag();
+        if (gzip && etag != null) {
+            // A strong entity tag names one representation, the compressed body has its own
+            etag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+            validators.setETag(etag);
+        }
+        validators.forEach((name, values) -> response.setHeader(name, values.get(0)));
+        response.setHeader(CACHE_HEADER, "HIT");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if ((etag != null || validators.getLastModified() >= 0)
+                && new ServletWebRequest(request, response).checkNotModified(etag, validators.getLastModified())) {
+            return;
+        }
+        response.setContentType(page.getContentType());
+        byte[] body;
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = page.getCompressedBody();
+        } else {
+            body = page.getBody();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,185 @@
+package net.filippov.newsportal.web.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleSlice;
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.service.event.ArticleChangedEvent;
+import net.filippov.newsportal.service.event.CommentAddedEvent;
+
+/**
+ * Validators of article and list pages, so that a reader or a proxy holding a
+ * current copy gets {@code 304 Not Modified} before the page is loaded and
+ * rendered.
+ * <p>
+ * Every page shows the sidebar, which depends on all articles, so entity tags
+ * include a watermark moved after commit by article changes. An article page
+ * adds the article's own modification date and comment count, a list page the
+ * list it shows, such as a category or tag, and what it shows of each
+ * article, so a comment only changes the tags of the lists showing its
+ * article. The home page also adds the version of the top articles it shows.
+ * Entity tags also depend on the signed-in user. View counts are left out,
+ * they are refreshed as soon as anything else changes.
+ * <p>
+ * Anonymous pages may be stored by shared caches for
+ * {@code newsportal.http-cache.shared-max-age-seconds}, pages of signed-in
+ * users are private and revalidated on every request.
+ */
+@Component
+public class PageValidators {
+
+    /**
+     * Distinguishes entity tags of this run, as the watermarks start over on restart
+     */
+    private final long epoch = System.currentTimeMillis();
+
+    private final Watermark articles = new Watermark(epoch);
+    private final Watermark comments = new Watermark(epoch);
+
+    private final String anonymousCacheControl;
+    private final String privateCacheControl;
+
+    public PageValidators(@Value("${newsportal.http-cache.shared-max-age-seconds:60}") long sharedMaxAgeSeconds) {
+        this.anonymousCacheControl = CacheControl.maxAge(0, TimeUnit.SECONDS)
+                .sMaxAge(sharedMaxAgeSeconds, TimeUnit.SECONDS)
+                .mustRevalidate()
+                .cachePublic()
+                .getHeaderValue();
+        this.privateCacheControl = CacheControl.noCache().cachePrivate().getHeaderValue();
+    }
+
+    /**
+     * Check an article page
+     *
+     * @return {@code true} if the copy of the client is current, the response
+     *         is then a {@code 304} and the page must not be rendered
+     */
+    public boolean checkArticle(NativeWebRequest request, Article article, Authentication authentication) {
+        Date modified = article.getLastModified() != null ? article.getLastModified() : article.getCreated();
+        long lastModified = Math.max(modified == null ? 0 : modified.getTime(), watermark());
+        String etag = etag("article", article.getId(), modified == null ? 0 : modified.getTime(),
+                article.getCommentCount(), articles.version(), user(authentication));
+        return check(request, authentication, etag, lastModified);
+    }
+
+    /**
+     * Check a page listing articles, such as the home, category or tag page
+     *
+     * @param list what the page lists, such as {@code "category:Sports"}
+     * @param shown the articles the page shows
+     * @return {@code true} if the copy of the client is current, the response
+     *         is then a {@code 304} and the page must not be rendered
+     */
+    public boolean checkList(NativeWebRequest request, String list, ArticleSlice shown,
+            Authentication authentication) {
+        return checkList(request, list, shown, 0, authentication);
+    }
+
+    /**
+     * Check a page listing articles along with the top articles, such as the
+     * home page
+     *
+     * @param topViewedVersion version of the top articles shown, see
+     *            {@link net.filippov.newsportal.service.SidebarService#getTopViewedVersion()}
+     * @return {@code true} if the copy of the client is current, the response
+     *         is then a {@code 304} and the page must not be rendered
+     */
+    public boolean checkList(NativeWebRequest request, String list, ArticleSlice shown, long topViewedVersion,
+            Authentication authentication) {
+        StringBuilder content = new StringBuilder().append(shown.hasPrevious()).append(shown.hasNext());
+        for (ArticleSummary summary : shown) {
+            content.append('|').append(summary.getId())
+                    .append('|').append(summary.getCommentCount())
+                    .append('|').append(summary.getTitle())
+                    .append('|').append(summary.getPreview())
+                    .append('|').append(summary.getImageUrl())
+                    .append('|').append(summary.getImageVariants())
+                    .append('|').append(summary.getCategoryName());
+        }
+        String etag = etag("list", list, content, topViewedVersion, articles.version(), user(authentication));
+        return check(request, authentication, etag, watermark());
+    }
+
+    private boolean check(NativeWebRequest request, Authentication authentication, String etag, long lastModified) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL,
+                    isAnonymous(authentication) ? anonymousCacheControl : privateCacheControl);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.COOKIE);
+        }
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    private long watermark() {
+        return Math.max(articles.time(), comments.time());
+    }
+
+    private String etag(Object... parts) {
+        StringBuilder source = new StringBuilder().append(epoch);
+        for (Object part : parts) {
+            source.append(':').append(part);
+        }
+        return '"' + DigestUtils.md5DigestAsHex(source.toString().getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    private static String user(Authentication authentication) {
+        return isAnonymous(authentication) ? "" : authentication.getName();
+    }
+
+    private static boolean isAnonymous(Authentication authentication) {
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated();
+    }
+
+    @TransactionalEventListener
+    void onArticleChanged(ArticleChangedEvent event) {
+        articles.advance();
+    }
+
+    @TransactionalEventListener
+    void onCommentAdded(CommentAddedEvent event) {
+        comments.advance();
+    }
+
+    /**
+     * Count and time of the last change of some kind of content
+     */
+    private static final class Watermark {
+
+        private final AtomicLong version = new AtomicLong();
+        private volatile long time;
+
+        private Watermark(long time) {
+            this.time = time;
+        }
+
+        void advance() {
+            version.incrementAndGet();
+            time = System.currentTimeMillis();
+        }
+
+        long version() {
+            return version.get();
+        }
+
+        long time() {
+            return time;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package net.filippov.newsportal.web.controller;
 
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
@@ -11,7 +12,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import net.filippov.newsportal.domain.ArticleSummary;
 import net.filippov.newsportal.service.ArticleService;
+import net.filippov.newsportal.trending.UniqueReaders;
 
 @Controller
 @RequestMapping("/admin")
@@ -19,15 +22,20 @@ import net.filippov.newsportal.service.ArticleService;
 public class AdminController {
 
     private final ArticleService articleService;
+    private final UniqueReaders uniqueReaders;
 
-    public AdminController(ArticleService articleService) {
+    public AdminController(ArticleService articleService, UniqueReaders uniqueReaders) {
         this.articleService = articleService;
+        this.uniqueReaders = uniqueReaders;
     }
 
     @GetMapping
     public String dashboard(Model model,
             @PageableDefault(size = 10, sort = "created", direction = Sort.Direction.DESC) Pageable pageable) {
-        model.addAttribute("articles", articleService.getAll(pageable));
+        Page<ArticleSummary> articles = articleService.getAll(pageable);
+        model.addAttribute("articles", articles);
+        model.addAttribute("readerCounts",
+                uniqueReaders.getReaderCounts(articles.map(ArticleSummary::getId).getContent()));
         return "admin/dashboard";
     }
 
@@ -1,6 +1,8 @@
 package net.filippov.newsportal.web.controller;
 
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -12,52 +14,100 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleSummary;
+import net.filippov.newsportal.domain.CommentCursor;
+import net.filippov.newsportal.domain.CommentSlice;
 
 import net.filippov.newsportal.domain.User;
 import net.filippov.newsportal.repository.UserRepository;
 import net.filippov.newsportal.service.ArticleService;
 import net.filippov.newsportal.service.CategoryService;
+import net.filippov.newsportal.service.CommentService;
 import net.filippov.newsportal.service.ImageService;
-import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.SidebarService;
+import net.filippov.newsportal.web.QueryBudget;
+import net.filippov.newsportal.web.ReaderKey;
+import net.filippov.newsportal.web.cache.PageValidators;
+import net.filippov.newsportal.web.page.PageAssembler;
 
 import java.io.IOException;
+import java.util.List;
 
 @Controller
 @RequestMapping("/article")
 public class ArticleController {
 
+    private static final int COMMENTS_PAGE_SIZE = 20;
+
     private final ArticleService articleService;
     private final CategoryService categoryService;
-    private final TagService tagService;
+    private final CommentService commentService;
+    private final SidebarService sidebarService;
     private final UserRepository userRepository;
     private final ImageService imageService;
+    private final PageValidators pageValidators;
+    private final PageAssembler pageAssembler;
 
-    public ArticleController(ArticleService articleService, CategoryService categoryService, TagService tagService,
-            UserRepository userRepository, ImageService imageService) {
+    public ArticleController(ArticleService articleService, CategoryService categoryService,
+            CommentService commentService, SidebarService sidebarService, UserRepository userRepository,
+            ImageService imageService, PageValidators pageValidators, PageAssembler pageAssembler) {
         this.articleService = articleService;
         this.categoryService = categoryService;
-        this.tagService = tagService;
+        this.commentService = commentService;
+        this.sidebarService = sidebarService;
         this.userRepository = userRepository;
         this.imageService = imageService;
+        this.pageValidators = pageValidators;
+        this.pageAssembler = pageAssembler;
     }
 
     @GetMapping("/{id}")
-    public String view(@PathVariable Long id, Model model, Authentication authentication) {
+    @QueryBudget(10)
+    public String view(@PathVariable Long id, Model model, Authentication authentication,
+            NativeWebRequest webRequest) {
         Long userId = null;
-        // TODO: Get user ID from authentication if needed for view count logic
-        // optimization
-        model.addAttribute("article", articleService.get(id, userId));
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)) {
+            userId = userRepository.findByLogin(authentication.getName()).map(User::getId).orElse(null);
+        }
+        long readerKey = userId != null ? ReaderKey.of(userId)
+                : ReaderKey.of(webRequest.getNativeRequest(HttpServletRequest.class));
+        Article article = articleService.get(id, userId, readerKey);
+        if (pageValidators.checkArticle(webRequest, article, authentication)) {
+            return null;
+        }
+        model.addAttribute("article", article);
+        model.addAttribute("articleId", id);
+        pageAssembler.page(model)
+                .optional("categories", sidebarService::getCategories, List.of())
+                .optional("tags", sidebarService::getTagNames, List.of())
+                .optional("relatedArticles", () -> articleService.getRelated(id), List.of())
+                .optional("similarArticles", () -> articleService.getSimilar(id), List.of())
+                .require("comments", () -> commentService.getByArticleId(id, null, COMMENTS_PAGE_SIZE))
+                .join();
         return "article";
     }
 
+    @GetMapping("/{id}/comments")
+    public String comments(@PathVariable Long id, @RequestParam(required = false) String cursor, Model model) {
+        model.addAttribute("articleId", id);
+        model.addAttribute("comments", commentService.getByArticleId(id, CommentCursor.parse(cursor),
+                COMMENTS_PAGE_SIZE));
+        return "fragments/comments :: comments";
+    }
+
+    @GetMapping(value = "/{id}/comments", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public CommentSlice commentsJson(@PathVariable Long id, @RequestParam(required = false) String cursor) {
+        return commentService.getByArticleId(id, CommentCursor.parse(cursor), COMMENTS_PAGE_SIZE);
+    }
+
     @PostMapping("/{id}/comment")
     public String addComment(@PathVariable Long id, @RequestParam String content, Authentication authentication) {
         if (authentication != null) {
@@ -80,7 +130,7 @@ public class ArticleController {
             @RequestParam(value = "categoryName", defaultValue = "") String categoryName,
             @RequestParam(value = "tagString", defaultValue = "") String tagString,
             @RequestParam(value = "image", required = false) MultipartFile image,
-            Authentication authentication, Model model) {
+            Authentication authentication, Model model, RedirectAttributes redirectAttributes) {
         if (result.hasErrors()) {
             model.addAttribute("tagString", tagString);
             model.addAttribute("categories", categoryService.getAll());
@@ -108,6 +158,11 @@ public class ArticleController {
         User user = userRepository.findByLogin(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Article savedArticle = articleService.add(article, user.getId(), categoryName, tagString);
+        // Warn the author if the same story is already published
+        List<ArticleSummary> nearDuplicates = articleService.getNearDuplicates(savedArticle.getId());
+        if (!nearDuplicates.isEmpty()) {
+            redirectAttributes.addFlashAttribute("nearDuplicates", nearDuplicates);
+        }
         return "redirect:/article/" + savedArticle.getId();
     }
 
@@ -158,19 +213,14 @@ public class ArticleController {
         Article existingArticle = articleService.get(id);
         String oldImageUrl = existingArticle.getImageUrl();
 
-        // Handle image removal
+        // Handle image removal, the old image is deleted once no article uses it
         if (removeImage && oldImageUrl != null) {
-            imageService.deleteImage(oldImageUrl);
             article.setImageUrl(null);
         }
         // Handle new image upload
         else if (image != null && !image.isEmpty()) {
             try {
                 String imageUrl = imageService.saveImage(image);
-                // Delete old image if exists
-                if (oldImageUrl != null) {
-                    imageService.deleteImage(oldImageUrl);
-                }
                 article.setImageUrl(imageUrl);
             } catch (IllegalArgumentException e) {
                 model.addAttribute("error", e.getMessage());
@@ -203,8 +253,8 @@ public class ArticleController {
 
     @GetMapping("/tags-autocomplete")
     @ResponseBody
-    public java.util.List<String> tagsAutocomplete() {
-        return tagService.getAllNames();
+    public List<String> tagsAutocomplete() {
+        return sidebarService.getTagNames();
     }
 
     @GetMapping("/cancel/{id}")
@@ -216,11 +266,15 @@ public class ArticleController {
     }
 
     @GetMapping("/popular")
-    public String popular(Model model) {
-        model.addAttribute("articles", articleService.getMostPopular(20));
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
-        model.addAttribute("topViewedArticles", articleService.getTopViewed());
+    public String popular(@RequestParam(value = "category", required = false) String category, Model model) {
+        model.addAttribute("categoryName", category);
+        pageAssembler.page(model)
+                .optional("categories", sidebarService::getCategories, List.of())
+                .optional("tags", sidebarService::getTagNames, List.of())
+                .optional("topViewedArticles", sidebarService::getTopViewed, List.of())
+                .require("articles", () -> category == null ? articleService.getMostPopular(20)
+                        : articleService.getMostPopular(category, 20))
+                .join();
         return "popular";
     }
 }
@@ -1,42 +1,59 @@
 package net.filippov.newsportal.web.controller;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import java.util.List;
+
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
 
-import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleCursor;
+import net.filippov.newsportal.domain.ArticleSlice;
 import net.filippov.newsportal.service.ArticleService;
-import net.filippov.newsportal.service.CategoryService;
-import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.SidebarService;
+import net.filippov.newsportal.web.QueryBudget;
+import net.filippov.newsportal.web.cache.PageValidators;
+import net.filippov.newsportal.web.page.PageAssembler;
 
 @Controller
 @RequestMapping("/category")
 public class CategoryController {
 
+    private static final int PAGE_SIZE = 10;
+
     private final ArticleService articleService;
-    private final CategoryService categoryService;
-    private final TagService tagService;
+    private final SidebarService sidebarService;
+    private final PageValidators pageValidators;
+    private final PageAssembler pageAssembler;
 
-    public CategoryController(ArticleService articleService, CategoryService categoryService, TagService tagService) {
+    public CategoryController(ArticleService articleService, SidebarService sidebarService,
+            PageValidators pageValidators, PageAssembler pageAssembler) {
         this.articleService = articleService;
-        this.categoryService = categoryService;
-        this.tagService = tagService;
+        this.sidebarService = sidebarService;
+        this.pageValidators = pageValidators;
+        this.pageAssembler = pageAssembler;
     }
 
     @GetMapping("/{name}")
-    public String viewCategory(@PathVariable String name, Model model) {
-        Pageable pageable = PageRequest.of(0, 100); // Get first 100 articles
-        Page<Article> articlesPage = articleService.getByCategory(name, pageable);
-
+    @QueryBudget(10)
+    public String viewCategory(@PathVariable String name, Model model,
+            @RequestParam(value = "cursor", required = false) String cursor, Authentication authentication,
+            NativeWebRequest webRequest) {
+        // Loaded first, the entity tag depends on the articles shown
+        ArticleSlice articles = articleService.scrollByCategory(name, ArticleCursor.parse(cursor), PAGE_SIZE);
+        if (pageValidators.checkList(webRequest, "category:" + name, articles, authentication)) {
+            return null;
+        }
         model.addAttribute("categoryName", name);
-        model.addAttribute("articles", articlesPage.getContent());
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        model.addAttribute("articles", articles);
+        pageAssembler.page(model)
+                .optional("categories", sidebarService::getCategories, List.of())
+                .optional("tags", sidebarService::getTagNames, List.of())
+                .join();
         return "category";
     }
 }
@@ -1,43 +1,63 @@
 package net.filippov.newsportal.web.controller;
 
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.web.PageableDefault;
+import java.util.List;
+
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
 
+import net.filippov.newsportal.domain.ArticleCursor;
+import net.filippov.newsportal.domain.ArticleSlice;
 import net.filippov.newsportal.service.ArticleService;
-import net.filippov.newsportal.service.CategoryService;
-import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.SidebarService;
+import net.filippov.newsportal.web.QueryBudget;
+import net.filippov.newsportal.web.cache.PageValidators;
+import net.filippov.newsportal.web.page.PageAssembler;
 
 @Controller
 public class HomeController {
 
+    private static final int PAGE_SIZE = 5;
+
     private final ArticleService articleService;
-    private final CategoryService categoryService;
-    private final TagService tagService;
+    private final SidebarService sidebarService;
+    private final PageValidators pageValidators;
+    private final PageAssembler pageAssembler;
 
-    public HomeController(ArticleService articleService, CategoryService categoryService, TagService tagService) {
+    public HomeController(ArticleService articleService, SidebarService sidebarService,
+            PageValidators pageValidators, PageAssembler pageAssembler) {
         this.articleService = articleService;
-        this.categoryService = categoryService;
-        this.tagService = tagService;
+        this.sidebarService = sidebarService;
+        this.pageValidators = pageValidators;
+        this.pageAssembler = pageAssembler;
     }
 
     @GetMapping("/")
-    public String home(Model model,
-            @PageableDefault(size = 5, sort = "created", direction = Sort.Direction.DESC) Pageable pageable) {
-        model.addAttribute("articles", articleService.getAll(pageable));
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
-        model.addAttribute("topViewedArticles", articleService.getTopViewed());
+    @QueryBudget(10)
+    public String home(Model model, @RequestParam(value = "cursor", required = false) String cursor,
+            Authentication authentication, NativeWebRequest webRequest) {
+        // Loaded first, the entity tag depends on the articles shown
+        ArticleSlice articles = articleService.scrollAll(ArticleCursor.parse(cursor), PAGE_SIZE);
+        if (pageValidators.checkList(webRequest, "home", articles, sidebarService.getTopViewedVersion(),
+                authentication)) {
+            return null;
+        }
+        model.addAttribute("articles", articles);
+        pageAssembler.page(model)
+                .optional("categories", sidebarService::getCategories, List.of())
+                .optional("tags", sidebarService::getTagNames, List.of())
+                .optional("topViewedArticles", sidebarService::getTopViewed, List.of())
+                .join();
         return "home";
     }
 
     @GetMapping("/about")
     public String about(Model model) {
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        model.addAttribute("categories", sidebarService.getCategories());
+        model.addAttribute("tags", sidebarService.getTagNames());
         return "about";
     }
 }
@@ -0,0 +1,162 @@
+package net.filippov.newsportal.web.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.filippov.newsportal.service.ImageService;
+import net.filippov.newsportal.web.cache.MediaFile;
+import net.filippov.newsportal.web.cache.MediaFileCache;
+
+/**
+ * Serves uploaded images from the file system, wherever the application runs
+ * from. Image files never change once written, so responses are cacheable for
+ * a year as immutable and validated by name. A single byte range may be
+ * requested.
+ * <p>
+ * Larger bodies are handed to the container's sendfile support when it has
+ * one, so they never go through the heap. The rest, and every body when there
+ * is no sendfile, are copied from the open file through the response buffer.
+ */
+@Controller
+public class MediaController {
+
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final Pattern STORED_NAME = Pattern.compile("[0-9a-f]{64}(-\\d+w)?\\.(jpg|png|webp)");
+    private static final Pattern UPLOADED_NAME = Pattern.compile("[0-9A-Za-z-]+\\.(jpg|jpeg|png|webp)");
+
+    private static final String CACHE_CONTROL = "max-age=31536000, public, immutable";
+
+    /**
+     * Request attributes of Tomcat's sendfile support
+     */
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Smaller bodies are cheaper to copy than to send from another thread
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private final MediaFileCache mediaFiles;
+
+    public MediaController(MediaFileCache mediaFiles) {
+        this.mediaFiles = mediaFiles;
+    }
+
+    @GetMapping("/media/{first}/{second}/{name}")
+    public void stored(@PathVariable String first, @PathVariable String second, @PathVariable String name,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!SHARD.matcher(first).matches() || !SHARD.matcher(second).matches()
+                || !STORED_NAME.matcher(name).matches() || !name.startsWith(first + second)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        serve(ImageService.MEDIA_URL_PREFIX + first + "/" + second + "/" + name, name, request, response);
+    }
+
+    /**
+     * Images uploaded before the content-addressed store
+     */
+    @GetMapping("/images/articles/{name}")
+    public void uploaded(@PathVariable String name, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!UPLOADED_NAME.matcher(name).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        serve("/images/articles/" + name, name, request, response);
+    }
+
+    private void serve(String imageUrl, String name, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        MediaFile file = mediaFiles.get(imageUrl);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + name.substring(0, name.lastIndexOf('.')) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, file.getLastModified())) {
+            return;
+        }
+        response.setContentType(file.getContentType());
+
+        long size = file.getSize();
+        long start = 0;
+        long length = size;
+        HttpRange range = range(request, etag, file.getLastModified());
+        if (range != null) {
+            start = range.getRangeStart(size);
+            long end = range.getRangeEnd(size);
+            if (start >= size || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setContentLength(0);
+                return;
+            }
+            length = end - start + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        file.transferTo(start, length, response.getOutputStream());
+    }
+
+    /**
+     * @return the single range requested, {@code null} to send the whole file:
+     *         if there is none, it is malformed, there are several or
+     *         {@code If-Range} names another version
+     */
+    private static HttpRange range(HttpServletRequest request, String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(etag)) {
+                    return null;
+                }
+            } else {
+                try {
+                    if (request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 != lastModified / 1000) {
+                        return null;
+                    }
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -2,10 +2,9 @@ package net.filippov.newsportal.web.controller;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.List;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -14,10 +13,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import net.filippov.newsportal.domain.Article;
 import net.filippov.newsportal.service.ArticleService;
-import net.filippov.newsportal.service.CategoryService;
-import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.SidebarService;
+import net.filippov.newsportal.web.page.PageAssembler;
 
 /**
  * Controller for search operations
@@ -26,13 +24,14 @@ import net.filippov.newsportal.service.TagService;
 public class SearchController {
 
     private final ArticleService articleService;
-    private final CategoryService categoryService;
-    private final TagService tagService;
+    private final SidebarService sidebarService;
+    private final PageAssembler pageAssembler;
 
-    public SearchController(ArticleService articleService, CategoryService categoryService, TagService tagService) {
+    public SearchController(ArticleService articleService, SidebarService sidebarService,
+            PageAssembler pageAssembler) {
         this.articleService = articleService;
-        this.categoryService = categoryService;
-        this.tagService = tagService;
+        this.sidebarService = sidebarService;
+        this.pageAssembler = pageAssembler;
     }
 
     /**
@@ -52,14 +51,14 @@ public class SearchController {
      */
     @GetMapping("/search/{fragment}")
     public String search(@PathVariable("fragment") String fragment, Model model,
-            @PageableDefault(size = 5, sort = "created", direction = Sort.Direction.DESC) Pageable pageable) {
-
-        Page<Article> articles = articleService.search(fragment, pageable);
+            @PageableDefault(size = 5) Pageable pageable) {
 
         model.addAttribute("fragment", fragment);
-        model.addAttribute("articles", articles);
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        pageAssembler.page(model)
+                .optional("categories", sidebarService::getCategories, List.of())
+                .optional("tags", sidebarService::getTagNames, List.of())
+                .require("articles", () -> articleService.search(fragment, pageable))
+                .join();
 
         return "search";
     }
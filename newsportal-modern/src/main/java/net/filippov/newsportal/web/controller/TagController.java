@@ -1,18 +1,22 @@
 package net.filippov.newsportal.web.controller;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.web.PageableDefault;
+import java.util.List;
+
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
 
-import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.ArticleCursor;
+import net.filippov.newsportal.domain.ArticleSlice;
 import net.filippov.newsportal.service.ArticleService;
-import net.filippov.newsportal.service.CategoryService;
-import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.SidebarService;
+import net.filippov.newsportal.web.QueryBudget;
+import net.filippov.newsportal.web.cache.PageValidators;
+import net.filippov.newsportal.web.page.PageAssembler;
 
 /**
  * Controller for tag-based article browsing
@@ -20,29 +24,40 @@ import net.filippov.newsportal.service.TagService;
 @Controller
 public class TagController {
 
+    private static final int PAGE_SIZE = 5;
+
     private final ArticleService articleService;
-    private final CategoryService categoryService;
-    private final TagService tagService;
+    private final SidebarService sidebarService;
+    private final PageValidators pageValidators;
+    private final PageAssembler pageAssembler;
 
-    public TagController(ArticleService articleService, CategoryService categoryService, TagService tagService) {
+    public TagController(ArticleService articleService, SidebarService sidebarService,
+            PageValidators pageValidators, PageAssembler pageAssembler) {
         this.articleService = articleService;
-        this.categoryService = categoryService;
-        this.tagService = tagService;
+        this.sidebarService = sidebarService;
+        this.pageValidators = pageValidators;
+        this.pageAssembler = pageAssembler;
     }
 
     /**
      * Display articles for a specific tag
      */
     @GetMapping("/tag/{tagName}")
+    @QueryBudget(10)
     public String viewArticlesByTag(@PathVariable("tagName") String tagName, Model model,
-            @PageableDefault(size = 5, sort = "created", direction = Sort.Direction.DESC) Pageable pageable) {
-
-        Page<Article> articles = articleService.getByTag(tagName, pageable);
-
+            @RequestParam(value = "cursor", required = false) String cursor, Authentication authentication,
+            NativeWebRequest webRequest) {
+        // Loaded first, the entity tag depends on the articles shown
+        ArticleSlice articles = articleService.scrollByTag(tagName, ArticleCursor.parse(cursor), PAGE_SIZE);
+        if (pageValidators.checkList(webRequest, "tag:" + tagName, articles, authentication)) {
+            return null;
+        }
         model.addAttribute("tagName", tagName);
         model.addAttribute("articles", articles);
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        pageAssembler.page(model)
+                .optional("categories", sidebarService::getCategories, List.of())
+                .optional("tags", sidebarService::getTagNames, List.of())
+                .join();
 
         return "tag";
     }
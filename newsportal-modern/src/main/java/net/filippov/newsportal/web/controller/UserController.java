@@ -7,8 +7,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
 import net.filippov.newsportal.domain.User;
-import net.filippov.newsportal.service.CategoryService;
-import net.filippov.newsportal.service.TagService;
+import net.filippov.newsportal.service.SidebarService;
 import net.filippov.newsportal.service.UserService;
 
 /**
@@ -18,13 +17,11 @@ import net.filippov.newsportal.service.UserService;
 public class UserController {
 
     private final UserService userService;
-    private final CategoryService categoryService;
-    private final TagService tagService;
+    private final SidebarService sidebarService;
 
-    public UserController(UserService userService, CategoryService categoryService, TagService tagService) {
+    public UserController(UserService userService, SidebarService sidebarService) {
         this.userService = userService;
-        this.categoryService = categoryService;
-        this.tagService = tagService;
+        this.sidebarService = sidebarService;
     }
 
     /**
@@ -36,8 +33,8 @@ public class UserController {
         User user = userService.get(userId);
 
         model.addAttribute("user", user);
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        model.addAttribute("categories", sidebarService.getCategories());
+        model.addAttribute("tags", sidebarService.getTagNames());
 
         return "profile";
     }
@@ -51,8 +48,8 @@ public class UserController {
         User user = userService.getByLogin(principal.getName());
 
         model.addAttribute("user", user);
-        model.addAttribute("categories", categoryService.getAll());
-        model.addAttribute("tags", tagService.getAllNames());
+        model.addAttribute("categories", sidebarService.getCategories());
+        model.addAttribute("tags", sidebarService.getTagNames());
 
         return "profile";
     }
@@ -0,0 +1,185 @@
+package net.filippov.newsportal.web.page;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.ui.Model;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
+import net.filippov.newsportal.sql.QueryStats;
+
+/**
+ * Builds page models from independent read-only service calls made at the
+ * same time, so a page takes about as long as its slowest query rather than
+ * the sum of them.
+ * <p>
+ * Optional fragments, such as the sidebar, run on a bounded pool of workers,
+ * each in its own read-only transaction; if the pool is busy the request
+ * thread runs them itself. Required fragments, the content of the page, run
+ * on the request thread meanwhile and their exceptions propagate. Optional
+ * fragments not done within {@code newsportal.page-assembly.timeout-ms} of
+ * the start of the page, or failed, are replaced by their fallback. They are
+ * not interrupted: their results still fill the caches they go through. A
+ * page shown with a fallback is marked {@code no-store}, so neither the page
+ * cache nor browsers keep it.
+ */
+@Component
+public class PageAssembler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PageAssembler.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int queueCapacity;
+    private final long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    public PageAssembler(PlatformTransactionManager transactionManager,
+            @Value("${newsportal.page-assembly.workers:8}") int workers,
+            @Value("${newsportal.page-assembly.queue-capacity:100}") int queueCapacity,
+            @Value("${newsportal.page-assembly.timeout-ms:500}") long timeoutMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "page-assembly-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start assembling a page into the model
+     */
+    public Assembly page(Model model) {
+        return new Assembly(model, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * Fragments of one page, added to the model by {@link #join()}
+     */
+    public class Assembly {
+
+        private final Model model;
+        private final long deadline;
+        private final Map<String, Supplier<?>> required = new LinkedHashMap<>();
+        private final List<OptionalFragment> optional = new ArrayList<>();
+
+        private Assembly(Model model, long deadline) {
+            this.model = model;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Add a fragment the page cannot be shown without, computed on
+         * {@link #join()}
+         */
+        public Assembly require(String attribute, Supplier<?> supplier) {
+            required.put(attribute, supplier);
+            return this;
+        }
+
+        /**
+         * Add a fragment computed from now on, shown as {@code fallback} if it
+         * is late or fails
+         */
+        public Assembly optional(String attribute, Supplier<?> supplier, Object fallback) {
+            // Statements of the fragment count towards the query budget of the request
+            Callable<Object> task = QueryStats.propagate(DelegatingSecurityContextCallable.create(
+                    () -> transactionTemplate.execute(status -> supplier.get()), SecurityContextHolder.getContext()));
+            optional.add(new OptionalFragment(attribute, executor.submit(task), fallback));
+            return this;
+        }
+
+        /**
+         * Compute the required fragments, wait for the optional ones and add
+         * them all to the model
+         */
+        public void join() {
+            required.forEach((attribute, supplier) -> model.addAttribute(attribute,
+                    transactionTemplate.execute(status -> supplier.get())));
+            boolean degraded = false;
+            for (OptionalFragment fragment : optional) {
+                model.addAttribute(fragment.attribute, fragment.get(deadline));
+                // Not by comparing with the fallback, a fragment may well return an equal or the same empty list
+                degraded |= fragment.degraded;
+            }
+            if (degraded && RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request) {
+                HttpServletResponse response = request.getResponse();
+                if (response != null) {
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                }
+            }
+        }
+    }
+
+    private static class OptionalFragment {
+
+        private final String attribute;
+        private final Future<Object> result;
+        private final Object fallback;
+
+        /**
+         * Whether the fallback is shown because the fragment was late or failed
+         */
+        private boolean degraded;
+
+        OptionalFragment(String attribute, Future<Object> result, Object fallback) {
+            this.attribute = attribute;
+            this.result = result;
+            this.fallback = fallback;
+        }
+
+        Object get(long deadline) {
+            try {
+                return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (TimeoutException e) {
+                LOG.warn("Page fragment {} timed out, showing fallback", attribute);
+            } catch (ExecutionException e) {
+                LOG.warn("Page fragment {} failed, showing fallback", attribute, e.getCause());
+            }
+            degraded = true;
+            return fallback;
+        }
+    }
+}
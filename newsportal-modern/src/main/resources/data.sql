@@ -48,3 +48,10 @@ INSERT IGNORE INTO comment (id, content, created, article_id, user_id) VALUES
 (1, 'Great article! Very helpful.', NOW(), 1, 3),
 (2, 'I love Spring Boot.', NOW(), 1, 1),
 (3, 'Docker is amazing.', NOW(), 2, 3);
+
+-- Counters
+UPDATE article t SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.article_id = t.id);
+UPDATE category t SET article_count = (SELECT COUNT(*) FROM article x WHERE x.category_id = t.id);
+UPDATE tag t SET article_count = (SELECT COUNT(*) FROM article_tag x WHERE x.tag_id = t.id);
+UPDATE user t SET article_count = (SELECT COUNT(*) FROM article x WHERE x.user_id = t.id);
+UPDATE user t SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.user_id = t.id);
@@ -0,0 +1,6 @@
+-- Database migration script to add indexes used by keyset pagination of article lists
+-- Execute this script on your database
+
+CREATE INDEX idx_article_created_id ON article (created, id);
+CREATE INDEX idx_article_category_created_id ON article (category_id, created, id);
+CREATE INDEX idx_article_user_created_id ON article (user_id, created, id);
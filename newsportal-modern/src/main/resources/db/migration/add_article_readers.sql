@@ -0,0 +1,8 @@
+-- Database migration script to add the table of unique reader sketches per article
+-- Execute this script on your database
+
+CREATE TABLE article_readers (
+    article_id BIGINT NOT NULL PRIMARY KEY,
+    sketch VARBINARY(4096) NOT NULL,
+    reader_count BIGINT NOT NULL
+);
@@ -0,0 +1,8 @@
+-- Database migration script to add the table of MinHash signatures per article
+-- Execute this script on your database; existing articles are signed on the next startup
+
+CREATE TABLE article_signature (
+    article_id BIGINT NOT NULL PRIMARY KEY,
+    signature_version INT NOT NULL,
+    signature VARBINARY(512) NOT NULL
+);
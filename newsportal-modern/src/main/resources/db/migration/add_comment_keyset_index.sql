@@ -0,0 +1,4 @@
+-- Database migration script to add the index used by keyset pagination of article comments
+-- Execute this script on your database
+
+CREATE INDEX idx_comment_article_created_id ON comment (article_id, created, id);
@@ -0,0 +1,14 @@
+-- Database migration script to replace computed article and comment counts with counter columns
+-- Execute this script on your database
+
+ALTER TABLE article ADD COLUMN comment_count INT NOT NULL DEFAULT 0;
+ALTER TABLE category ADD COLUMN article_count INT NOT NULL DEFAULT 0;
+ALTER TABLE tag ADD COLUMN article_count INT NOT NULL DEFAULT 0;
+ALTER TABLE user ADD COLUMN article_count INT NOT NULL DEFAULT 0;
+ALTER TABLE user ADD COLUMN comment_count INT NOT NULL DEFAULT 0;
+
+UPDATE article t SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.article_id = t.id);
+UPDATE category t SET article_count = (SELECT COUNT(*) FROM article x WHERE x.category_id = t.id);
+UPDATE tag t SET article_count = (SELECT COUNT(*) FROM article_tag x WHERE x.tag_id = t.id);
+UPDATE user t SET article_count = (SELECT COUNT(*) FROM article x WHERE x.user_id = t.id);
+UPDATE user t SET comment_count = (SELECT COUNT(*) FROM comment x WHERE x.user_id = t.id);
@@ -0,0 +1,5 @@
+-- Database migration script to add the resized image variants column to Article table
+-- Execute this script on your database
+
+ALTER TABLE article ADD COLUMN image_variants VARCHAR(64);
+CREATE INDEX idx_article_image_url ON article (image_url);
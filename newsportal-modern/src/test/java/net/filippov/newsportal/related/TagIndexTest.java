@@ -0,0 +1,62 @@
+package net.filippov.newsportal.related;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TagIndexTest {
+
+    private static final long DAY = 86_400_000;
+    private static final long NOW = 100 * DAY;
+
+    private TagIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TagIndex(4, 1.0, 0.5, 30 * DAY);
+        index.put(1L, "Technology", NOW, List.of("Java", "Spring", "News"));
+        index.put(2L, "Technology", NOW, List.of("Java", "Spring"));
+        index.put(3L, "Business", NOW, List.of("Java", "News"));
+        index.put(4L, "Business", NOW, List.of("News"));
+        index.put(5L, "Sports", NOW, List.of("Football"));
+    }
+
+    @Test
+    void related_ShouldRankSharedRareTagsFirst() {
+        assertEquals(List.of(2L, 3L, 4L), index.related(1L, 5, NOW));
+        assertEquals(List.of(), index.related(5L, 5, NOW));
+    }
+
+    @Test
+    void related_ShouldPreferSameCategoryAndNewerArticles() {
+        index.put(6L, "Business", NOW - 300 * DAY, List.of("Football"));
+        index.put(7L, "Sports", NOW - 300 * DAY, List.of("Football"));
+        index.put(8L, "Business", NOW, List.of("Football"));
+
+        assertEquals(List.of(7L, 8L, 6L), index.related(5L, 5, NOW));
+    }
+
+    @Test
+    void related_ShouldIgnoreTagsOnTooManyArticles() {
+        index.put(6L, null, NOW, List.of("News"));
+        index.put(7L, null, NOW, List.of("News"));
+
+        assertEquals(List.of(2L, 3L), index.related(1L, 5, NOW));
+    }
+
+    @Test
+    void put_ShouldReportArticlesSharingOldAndNewTags() {
+        assertEquals(Set.of(1L, 2L, 3L, 5L), index.put(2L, "Technology", NOW, List.of("Java", "Football")));
+        assertEquals(List.of(1L, 5L, 3L), index.related(2L, 5, NOW));
+    }
+
+    @Test
+    void remove_ShouldDropArticleFromRelated() {
+        assertEquals(Set.of(1L, 2L, 3L), index.remove(2L));
+        assertEquals(List.of(3L, 4L), index.related(1L, 5, NOW));
+    }
+}
@@ -0,0 +1,61 @@
+package net.filippov.newsportal.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex(new Analyzer(), new float[] { 3.0f, 1.5f, 1.0f });
+        index.add(new SearchDocument(1L, "Spring Boot basics", "Intro", "<p>Getting started with Spring</p>"));
+        index.add(new SearchDocument(2L, "Docker for beginners", "Containers", "<p>Docker and Spring Boot</p>"));
+        index.add(new SearchDocument(3L, "Global economy", "Markets", "<p>Inflation is rising</p>"));
+    }
+
+    @Test
+    void analyze_ShouldStripMarkupAndFoldCase() {
+        assertEquals(List.of("cafe", "news"), new Analyzer().analyze("<b>CAFÉ</b> &amp; the News"));
+    }
+
+    @Test
+    void search_ShouldRankTitleMatchesFirst() {
+        SearchHits hits = index.search("spring boot", 0, 10);
+
+        assertEquals(2, hits.getTotalHits());
+        assertEquals(List.of(1L, 2L), hits.getArticleIds());
+    }
+
+    @Test
+    void search_ShouldPageThroughHits() {
+        SearchHits hits = index.search("spring", 1, 1);
+
+        assertEquals(2, hits.getTotalHits());
+        assertEquals(List.of(2L), hits.getArticleIds());
+    }
+
+    @Test
+    void add_ShouldReplacePreviousVersion() {
+        index.add(new SearchDocument(3L, "Spring economy", "Markets", "Spring spring spring"));
+
+        assertEquals(3, index.size());
+        assertEquals(3, index.search("spring", 0, 10).getTotalHits());
+        assertEquals(0, index.search("inflation", 0, 10).getTotalHits());
+    }
+
+    @Test
+    void remove_ShouldDropArticleFromResults() {
+        assertTrue(index.remove(1L));
+
+        assertFalse(index.contains(1L));
+        assertEquals(List.of(2L), index.search("spring", 0, 10).getArticleIds());
+    }
+}
@@ -0,0 +1,94 @@
+package net.filippov.newsportal.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentedIndexTest {
+
+    private static final float[] BOOSTS = { 3.0f, 1.5f, 1.0f };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_ShouldRankLikeInMemoryIndexAfterRestart() throws IOException {
+        SegmentedIndex index = SegmentedIndex.create(directory, new Analyzer(), BOOSTS, 2, 8);
+        InvertedIndex expected = new InvertedIndex(new Analyzer(), BOOSTS);
+        for (SearchDocument document : documents()) {
+            index.add(document);
+            expected.add(document);
+        }
+        index.commit();
+
+        SegmentedIndex reopened = SegmentedIndex.open(directory, new Analyzer(), BOOSTS, 2, 8);
+
+        assertEquals(4, reopened.size());
+        assertTrue(reopened.getSegmentCount() > 1);
+        assertEquals(expected.search("spring boot", 0, 10).getArticleIds(),
+                reopened.search("spring boot", 0, 10).getArticleIds());
+    }
+
+    @Test
+    void commit_ShouldPersistUpdatesAndDeletions() throws IOException {
+        SegmentedIndex index = SegmentedIndex.create(directory, new Analyzer(), BOOSTS, 100, 8);
+        documents().forEach(index::add);
+        index.commit();
+
+        index.add(new SearchDocument(1L, "Kubernetes", "Clusters", "<p>Orchestration</p>"));
+        index.remove(2L);
+        index.commit();
+
+        SegmentedIndex reopened = SegmentedIndex.open(directory, new Analyzer(), BOOSTS, 100, 8);
+        assertEquals(3, reopened.size());
+        assertEquals(List.of(4L), reopened.search("spring", 0, 10).getArticleIds());
+        assertEquals(List.of(1L), reopened.search("kubernetes", 0, 10).getArticleIds());
+    }
+
+    @Test
+    void maybeMerge_ShouldKeepSearchResults() throws IOException {
+        SegmentedIndex index = SegmentedIndex.create(directory, new Analyzer(), BOOSTS, 1, 2);
+        documents().forEach(index::add);
+        index.remove(3L);
+        index.commit();
+        List<Long> before = index.search("spring docker inflation", 0, 10).getArticleIds();
+
+        assertTrue(index.maybeMerge());
+
+        assertEquals(2, index.getSegmentCount());
+        assertEquals(3, index.size());
+        assertEquals(before, index.search("spring docker inflation", 0, 10).getArticleIds());
+        SegmentedIndex reopened = SegmentedIndex.open(directory, new Analyzer(), BOOSTS, 1, 2);
+        assertEquals(before, reopened.search("spring docker inflation", 0, 10).getArticleIds());
+    }
+
+    @Test
+    void retain_ShouldDeleteRejectedArticlesAtOnce() throws IOException {
+        SegmentedIndex index = SegmentedIndex.create(directory, new Analyzer(), BOOSTS, 100, 8);
+        documents().forEach(index::add);
+        index.remove(4L);
+        index.commit();
+
+        assertEquals(2, index.retain(articleId -> articleId == 1L));
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(1L), index.search("spring docker inflation", 0, 10).getArticleIds());
+        index.commit();
+        SegmentedIndex reopened = SegmentedIndex.open(directory, new Analyzer(), BOOSTS, 100, 8);
+        assertEquals(1, reopened.size());
+    }
+
+    private static List<SearchDocument> documents() {
+        return List.of(
+                new SearchDocument(1L, "Spring Boot basics", "Intro", "<p>Getting started with Spring</p>"),
+                new SearchDocument(2L, "Docker for beginners", "Containers", "<p>Docker and Spring Boot</p>"),
+                new SearchDocument(3L, "Global economy", "Markets", "<p>Inflation is rising</p>"),
+                new SearchDocument(4L, "Café culture", "Spring menus", "<p>Seasonal coffee</p>"));
+    }
+}
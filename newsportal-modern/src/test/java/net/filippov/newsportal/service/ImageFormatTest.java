@@ -0,0 +1,38 @@
+package net.filippov.newsportal.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class ImageFormatTest {
+
+    @Test
+    void detect_ShouldRecognizeSignatures() {
+        byte[] jpeg = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 };
+        byte[] png = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0 };
+        byte[] webp = "RIFF\u0001\u0002\u0003\u0004WEBPVP8 ".getBytes(StandardCharsets.ISO_8859_1);
+
+        assertEquals(ImageFormat.JPEG, ImageFormat.detect(jpeg, jpeg.length));
+        assertEquals(ImageFormat.PNG, ImageFormat.detect(png, png.length));
+        assertEquals(ImageFormat.WEBP, ImageFormat.detect(webp, webp.length));
+    }
+
+    @Test
+    void detect_ShouldRejectOtherContent() {
+        byte[] script = "<?php echo 1; ?>".getBytes(StandardCharsets.US_ASCII);
+        byte[] wave = "RIFF\u0001\u0002\u0003\u0004WAVEfmt ".getBytes(StandardCharsets.ISO_8859_1);
+
+        assertNull(ImageFormat.detect(script, script.length));
+        assertNull(ImageFormat.detect(wave, wave.length));
+    }
+
+    @Test
+    void detect_ShouldOnlyLookAtBytesRead() {
+        byte[] png = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A };
+
+        assertNull(ImageFormat.detect(png, 4));
+    }
+}
@@ -13,9 +13,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import net.filippov.newsportal.domain.Article;
 import net.filippov.newsportal.repository.ArticleRepository;
+import net.filippov.newsportal.service.CounterService;
+import net.filippov.newsportal.similar.SimilarArticles;
 
 @ExtendWith(MockitoExtension.class)
 class ArticleServiceImplTest {
@@ -23,6 +26,15 @@ class ArticleServiceImplTest {
     @Mock
     private ArticleRepository articleRepository;
 
+    @Mock
+    private CounterService counterService;
+
+    @Mock
+    private SimilarArticles similarArticles;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ArticleServiceImpl articleService;
 
@@ -37,6 +49,8 @@ class ArticleServiceImplTest {
         assertNotNull(saved);
         assertEquals("Test Title", saved.getTitle());
         verify(articleRepository).save(article);
+        verify(counterService).articleAdded(article);
+        verify(similarArticles).sign(article);
     }
 
     @Test
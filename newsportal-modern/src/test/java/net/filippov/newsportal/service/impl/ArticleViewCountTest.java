@@ -0,0 +1,66 @@
+package net.filippov.newsportal.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.User;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:views;MODE=MySQL;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never" })
+class ArticleViewCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void edit_ShouldKeepViewsFlushedAfterArticleWasLoaded() {
+        User author = new User();
+        author.setLogin("author");
+        author.setPassword("password");
+        author.setName("Author");
+        author.setEmail("author@example.com");
+        entityManager.persist(author);
+        Article article = new Article();
+        article.setTitle("Title");
+        article.setPreview("Preview");
+        article.setContent("Content");
+        article.setAuthor(author);
+        Long id = entityManager.persistAndFlush(article).getId();
+        entityManager.clear();
+
+        Article loaded = entityManager.find(Article.class, id);
+        BufferedViewCounter viewCounter = new BufferedViewCounter(jdbcTemplate, entityManagerFactory, 60_000, 1_000);
+        for (int i = 0; i < 5; i++) {
+            viewCounter.increment(id);
+        }
+        viewCounter.flush();
+        loaded.setTitle("Edited title");
+        entityManager.flush();
+
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT view_count FROM article WHERE id = ?", Integer.class, id));
+        assertEquals("Edited title",
+                jdbcTemplate.queryForObject("SELECT title FROM article WHERE id = ?", String.class, id));
+    }
+}
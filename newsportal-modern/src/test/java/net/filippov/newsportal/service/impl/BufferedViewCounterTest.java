@@ -0,0 +1,86 @@
+package net.filippov.newsportal.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import net.filippov.newsportal.domain.Article;
+
+@ExtendWith(MockitoExtension.class)
+class BufferedViewCounterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache cache;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batchCaptor;
+
+    private BufferedViewCounter viewCounter;
+
+    @BeforeEach
+    void setUp() {
+        viewCounter = new BufferedViewCounter(jdbcTemplate, entityManagerFactory, 60_000, 1_000);
+    }
+
+    @Test
+    void flush_ShouldWriteAggregatedDeltasInOneBatch() {
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        viewCounter.increment(1L);
+        viewCounter.increment(1L);
+        viewCounter.increment(2L);
+
+        viewCounter.flush();
+
+        verify(jdbcTemplate).batchUpdate(eq(BufferedViewCounter.UPDATE_SQL), batchCaptor.capture());
+        List<Object[]> batch = batchCaptor.getValue();
+        assertEquals(2, batch.size());
+        long total = batch.stream().mapToLong(args -> (Long) args[0]).sum();
+        assertEquals(3, total);
+        assertEquals(0, viewCounter.getPending(1L));
+        verify(cache).evict(Article.class, 1L);
+        verify(cache).evict(Article.class, 2L);
+    }
+
+    @Test
+    void flush_ShouldSkipDatabase_WhenNothingPending() {
+        viewCounter.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(eq(BufferedViewCounter.UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void flush_ShouldKeepDeltas_WhenUpdateFails() {
+        viewCounter.increment(1L);
+        when(jdbcTemplate.batchUpdate(eq(BufferedViewCounter.UPDATE_SQL), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DataAccessResourceFailureException.class, viewCounter::flush);
+
+        assertEquals(1, viewCounter.getPending(1L));
+    }
+}
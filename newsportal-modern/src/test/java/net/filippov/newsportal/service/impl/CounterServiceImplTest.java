@@ -0,0 +1,91 @@
+package net.filippov.newsportal.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.filippov.newsportal.domain.Article;
+import net.filippov.newsportal.domain.Comment;
+import net.filippov.newsportal.domain.User;
+
+@ExtendWith(MockitoExtension.class)
+class CounterServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache cache;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batchCaptor;
+
+    private CounterServiceImpl counterService;
+
+    @BeforeEach
+    void setUp() {
+        counterService = new CounterServiceImpl(jdbcTemplate, entityManagerFactory, 1_000);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void commentAdded_ShouldEvictOnlyUpdatedEntitiesOnceCompleted() {
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        Article article = new Article();
+        article.setId(7L);
+        User author = new User();
+        author.setId(3L);
+        Comment comment = new Comment(author, article, "First");
+
+        counterService.commentAdded(comment);
+
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE article SET comment_count = comment_count + ? WHERE id = ?"),
+                batchCaptor.capture());
+        Object[] args = batchCaptor.getValue().get(0);
+        assertEquals(1, args[0]);
+        assertEquals(7L, args[1]);
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE user SET comment_count = comment_count + ? WHERE id = ?"),
+                anyList());
+        // Nothing is evicted before the commit, a load could cache the old value again
+        verifyNoInteractions(cache);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        verify(cache).evict(Article.class, 7L);
+        verify(cache).evict(User.class, 3L);
+        verify(cache, never()).evict(any(Class.class));
+        verify(cache, never()).evictAll();
+    }
+}
@@ -0,0 +1,41 @@
+package net.filippov.newsportal.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+class TagServiceImplTest {
+
+    @Test
+    void normalize_ShouldTrimCollapseAndDeduplicate() {
+        Map<String, String> names = TagServiceImpl.normalize(" Java ,spring  boot,, JAVA,Docker , ");
+
+        assertEquals(List.of("java", "spring boot", "docker"), List.copyOf(names.keySet()));
+        assertEquals(List.of("Java", "spring boot", "Docker"), List.copyOf(names.values()));
+    }
+
+    @Test
+    void normalize_ShouldDeduplicateRegardlessOfAccents() {
+        Map<String, String> names = TagServiceImpl.normalize("Cafe, Café, CAFÉ");
+
+        assertEquals(Map.of("cafe", "Cafe"), names);
+        assertEquals(TagServiceImpl.key("Cafe"), TagServiceImpl.key("Café"));
+    }
+
+    @Test
+    void normalize_ShouldReturnEmpty_WhenNoNames() {
+        assertTrue(TagServiceImpl.normalize(" , ,").isEmpty());
+        assertTrue(TagServiceImpl.normalize(null).isEmpty());
+    }
+
+    @Test
+    void normalize_ShouldReject_WhenNameTooLong() {
+        assertThrows(ResponseStatusException.class, () -> TagServiceImpl.normalize("a-tag-name-that-is-too-long"));
+    }
+}
@@ -0,0 +1,72 @@
+package net.filippov.newsportal.similar;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LshIndexTest {
+
+    private static final String STORY = "<p>The central bank raised interest rates by a quarter point on Tuesday, "
+            + "citing persistent inflation in services and a tight labour market. Officials signalled that "
+            + "further increases remain possible if price growth does not slow over the coming months, while "
+            + "markets had largely expected the move after last week's employment figures.</p>";
+
+    private final MinHash minHash = new MinHash(3);
+    private LshIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LshIndex(32);
+        index.put(1L, minHash.signature(STORY));
+        index.put(2L, minHash.signature("Docker is an open platform for developing, shipping and running "
+                + "applications in containers on any machine."));
+    }
+
+    @Test
+    void similar_ShouldFindEditedCopy() {
+        int[] edited = minHash.signature(STORY.replace("on Tuesday", "on Tuesday morning")
+                .replace("<p>", "<p><b>Reuters</b> "));
+
+        assertTrue(MinHash.similarity(minHash.signature(STORY), edited) >= 0.8);
+        assertEquals(List.of(1L), index.similar(edited, null, 0.8, 5));
+    }
+
+    @Test
+    void similar_ShouldSkipUnrelatedAndExcludedArticles() {
+        int[] story = index.get(1L);
+
+        assertEquals(List.of(), index.similar(story, 1L, 0.3, 5));
+        assertEquals(List.of(1L), index.similar(story, 2L, 1.0, 5));
+    }
+
+    @Test
+    void remove_ShouldKeepOtherArticlesFindable() {
+        // Enough articles to resize the table and shift entries back on removal
+        for (long id = 10; id < 400; id++) {
+            index.put(id, minHash.signature("article number " + id + " about topic " + id % 7));
+        }
+        for (long id = 10; id < 400; id += 2) {
+            index.remove(id);
+        }
+        index.remove(2L);
+
+        assertEquals(196, index.size());
+        for (long id = 11; id < 400; id += 2) {
+            assertEquals(id, index.similar(index.get(id), null, 1.0, 1).get(0));
+        }
+        assertEquals(List.of(1L), index.similar(minHash.signature(STORY), null, 0.8, 5));
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSignature() {
+        int[] signature = minHash.signature(STORY);
+
+        assertEquals(512, MinHash.toBytes(signature).length);
+        assertArrayEquals(signature, MinHash.fromBytes(MinHash.toBytes(signature)));
+    }
+}
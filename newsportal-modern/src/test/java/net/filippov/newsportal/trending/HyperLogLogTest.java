@@ -0,0 +1,64 @@
+package net.filippov.newsportal.trending;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_ShouldBeExactForFewReaders() {
+        HyperLogLog sketch = sketch(0, 20);
+        sketch.add(HyperLogLog.hash("reader-3"));
+
+        assertEquals(20, sketch.estimate());
+    }
+
+    @Test
+    void estimate_ShouldStayWithinErrorBounds() {
+        for (int readers : new int[] { 1_000, 10_000, 200_000 }) {
+            long estimate = sketch(0, readers).estimate();
+
+            assertEquals(readers, estimate, readers * 0.05, "readers: " + readers);
+        }
+    }
+
+    @Test
+    void merge_ShouldCountSharedReadersOnce() {
+        HyperLogLog first = sketch(0, 30_000);
+        HyperLogLog second = sketch(20_000, 50_000);
+
+        first.merge(second);
+        long merged = first.estimate();
+        first.merge(second);
+
+        assertEquals(50_000, merged, 2_500);
+        assertEquals(merged, first.estimate());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSparseAndDenseSketches() {
+        HyperLogLog sparse = sketch(0, 100);
+        HyperLogLog dense = sketch(0, 100_000);
+
+        assertTrue(sparse.toBytes().length < 400);
+        assertEquals(3073, dense.toBytes().length);
+        assertEquals(sparse, HyperLogLog.fromBytes(sparse.toBytes()));
+        assertEquals(dense, HyperLogLog.fromBytes(dense.toBytes()));
+    }
+
+    @Test
+    void fromBytes_ShouldRejectOtherData() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] { 7, 1, 2 }));
+    }
+
+    private static HyperLogLog sketch(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.add(HyperLogLog.hash("reader-" + i));
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,59 @@
+package net.filippov.newsportal.trending;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+
+import net.filippov.newsportal.repository.ArticleRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingArticlesTest {
+
+    private static final long TICK_MS = 10;
+
+    @Mock
+    private ArticleRepository articleRepository;
+
+    @TempDir
+    private Path directory;
+
+    private TrendingArticles trending;
+
+    @AfterEach
+    void tearDown() {
+        trending.stop();
+    }
+
+    @Test
+    void start_ShouldRetryFailedLoad() throws InterruptedException {
+        when(articleRepository.findActivities(anyLong(), any(Pageable.class)))
+                .thenThrow(new DataAccessResourceFailureException("Database is down"))
+                .thenReturn(List.of(new ArticleActivity(1L, "World", new Date(), 3, 0)));
+        trending = new TrendingArticles(articleRepository, 720, 10, 5, TICK_MS, 60_000, 300_000,
+                directory.resolve("trending.bin").toString(), 1000);
+
+        trending.start();
+
+        for (int i = 0; i < 200 && !trending.isReady(); i++) {
+            Thread.sleep(TICK_MS);
+        }
+        assertTrue(trending.isReady());
+        verify(articleRepository, atLeast(2)).findActivities(anyLong(), any(Pageable.class));
+    }
+}
@@ -0,0 +1,123 @@
+package net.filippov.newsportal.trending;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrendingScoresTest {
+
+    private static final long HOUR = 3_600_000;
+
+    private TrendingScores scores;
+
+    @BeforeEach
+    void setUp() {
+        scores = new TrendingScores(HOUR, 2, 0);
+        scores.put(1L, "World");
+        scores.put(2L, "World");
+        scores.put(3L, "Sport");
+    }
+
+    @Test
+    void score_ShouldHalveEveryHalfLife() {
+        scores.add(1L, 8, 0);
+
+        assertEquals(8, scores.score(1L, 0), 1e-9);
+        assertEquals(4, scores.score(1L, HOUR), 1e-9);
+        assertEquals(1, scores.score(1L, 3 * HOUR), 1e-9);
+    }
+
+    @Test
+    void refresh_ShouldRankRecentActivityHigher() {
+        scores.add(1L, 10, 0);
+        scores.add(2L, 6, 2 * HOUR);
+        scores.add(3L, 1, 2 * HOUR);
+
+        assertTrue(scores.refresh());
+        assertEquals(List.of(2L, 1L), scores.top());
+        assertEquals(List.of(2L, 1L), scores.top("World"));
+        assertEquals(List.of(3L), scores.top("Sport"));
+    }
+
+    @Test
+    void refresh_ShouldPromoteTouchedArticles() {
+        scores.add(1L, 3, 0);
+        scores.add(2L, 2, 0);
+        scores.refresh();
+
+        scores.add(3L, 5, 0);
+
+        assertTrue(scores.refresh());
+        assertEquals(List.of(3L, 1L), scores.top());
+        assertFalse(scores.refresh());
+    }
+
+    @Test
+    void remove_ShouldRefillTopList() {
+        scores.add(1L, 3, 0);
+        scores.add(2L, 2, 0);
+        scores.add(3L, 1, 0);
+        scores.refresh();
+
+        scores.remove(1L);
+        scores.refresh();
+
+        assertEquals(List.of(2L, 3L), scores.top());
+        assertEquals(List.of(2L), scores.top("World"));
+    }
+
+    @Test
+    void put_ShouldMoveArticleToNewCategory() {
+        scores.add(2L, 1, 0);
+        scores.refresh();
+
+        scores.put(2L, "Sport");
+        scores.refresh();
+
+        assertEquals(List.of(), scores.top("World"));
+        assertEquals(List.of(2L), scores.top("Sport"));
+    }
+
+    @Test
+    void add_ShouldKeepScoringAfterLandmarkRebase() {
+        scores.add(1L, 1000, 0);
+        scores.add(2L, 1, 100 * HOUR);
+        scores.add(3L, 2, 100 * HOUR);
+        scores.refresh();
+
+        assertEquals(List.of(3L, 2L), scores.top());
+        assertEquals(1, scores.score(2L, 100 * HOUR), 1e-9);
+        assertEquals(1, scores.score(2L, 100 * HOUR + HOUR) * 2, 1e-9);
+    }
+
+    @Test
+    void read_ShouldRestoreWrittenScores() throws IOException {
+        scores.add(1L, 4, 0);
+        scores.add(3L, 2, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        scores.write(new DataOutputStream(bytes));
+
+        TrendingScores restored = TrendingScores.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), HOUR, 2);
+        restored.put(1L, "World");
+        restored.put(3L, "Sport");
+        restored.refresh();
+
+        assertEquals(4, restored.score(1L, 0), 1e-9);
+        assertEquals(List.of(1L, 3L), restored.top());
+        assertEquals(List.of(3L), restored.top("Sport"));
+        assertNull(TrendingScores.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 2 * HOUR, 2));
+    }
+}
@@ -0,0 +1,135 @@
+package net.filippov.newsportal.web;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import jakarta.servlet.FilterChain;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.filippov.newsportal.sql.CountingDataSource;
+import net.filippov.newsportal.sql.QueryStats;
+
+class QueryBudgetFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:budget;DB_CLOSE_DELAY=-1");
+        dataSource = new CountingDataSource(h2);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS article");
+            statement.execute("CREATE TABLE article (id BIGINT PRIMARY KEY, title VARCHAR(100))");
+            for (int id = 1; id <= 6; id++) {
+                statement.execute("INSERT INTO article VALUES (" + id + ", 'Article " + id + "')");
+            }
+        }
+    }
+
+    @Test
+    void doFilter_ShouldCountStatementsAndRows() throws Exception {
+        MockHttpServletRequest request = request();
+
+        filter(20, true).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            query("SELECT id, title FROM article");
+            query("SELECT title FROM article WHERE id = 1");
+        });
+
+        QueryStats stats = (QueryStats) request.getAttribute(QueryStats.ATTRIBUTE);
+        assertEquals(2, stats.getStatements());
+        assertEquals(7, stats.getRows());
+        assertNull(QueryStats.current());
+        assertEquals(2.0, meterRegistry.get("newsportal.request.statements").tag("uri", "/article/{id}")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void doFilter_ShouldFailOnRepeatedShape() {
+        FilterChain perArticle = (req, res) -> {
+            for (int id = 1; id <= 5; id++) {
+                query("SELECT title FROM article WHERE id = " + id);
+            }
+        };
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> filter(20, true).doFilter(request(), new MockHttpServletResponse(), perArticle));
+        assertTrue(e.getMessage().contains("5 times: SELECT title FROM article WHERE id = ?"), e.getMessage());
+    }
+
+    @Test
+    void doFilter_ShouldFailOverBudget() {
+        FilterChain chain = (req, res) -> {
+            query("SELECT id FROM article");
+            query("SELECT title FROM article");
+        };
+
+        assertThrows(IllegalStateException.class,
+                () -> filter(1, true).doFilter(request(), new MockHttpServletResponse(), chain));
+    }
+
+    @Test
+    void doFilter_ShouldOnlyLogWhenNotEnforced() {
+        MockHttpServletRequest request = request();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        assertDoesNotThrow(() -> filter(1, false).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            query("SELECT id FROM article");
+            query("SELECT title FROM article");
+            completed.set(true);
+        }));
+
+        assertTrue(completed.get());
+        QueryStats stats = (QueryStats) request.getAttribute(QueryStats.ATTRIBUTE);
+        assertEquals(2, stats.getStatements());
+        assertEquals(2.0, meterRegistry.get("newsportal.request.statements").tag("uri", "/article/{id}")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void shape_ShouldReplaceLiteralsAndParameterLists() {
+        assertEquals("SELECT * FROM article WHERE id IN (?) AND title = ? LIMIT ?",
+                QueryStats.shape("SELECT *\n  FROM article WHERE id IN (?, ?, ?) AND title = 'It''s' LIMIT 10"));
+    }
+
+    private QueryBudgetFilter filter(int maxStatements, boolean enforce) {
+        return new QueryBudgetFilter(meterRegistry, maxStatements, 5, enforce);
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/article/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/article/{id}");
+        return request;
+    }
+
+    private void query(String sql) {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                // Read every row
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
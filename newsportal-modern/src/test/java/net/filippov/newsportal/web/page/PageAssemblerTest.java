@@ -0,0 +1,128 @@
+package net.filippov.newsportal.web.page;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+@ExtendWith(MockitoExtension.class)
+class PageAssemblerTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PageAssembler pageAssembler;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        pageAssembler = new PageAssembler(transactionManager, 4, 10, 500);
+        pageAssembler.start();
+        response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pageAssembler.stop();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void join_ShouldRunFragmentsConcurrently() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        // Each fragment waits for the other two, only fragments running at the same time all complete
+        CountDownLatch running = new CountDownLatch(3);
+
+        pageAssembler.page(model)
+                .optional("categories", () -> meet(running, "categories"), List.of())
+                .optional("tags", () -> meet(running, "tags"), List.of())
+                .require("articles", () -> meet(running, "articles"))
+                .join();
+
+        assertEquals("categories", model.get("categories"));
+        assertEquals("tags", model.get("tags"));
+        assertEquals("articles", model.get("articles"));
+    }
+
+    @Test
+    void join_ShouldKeepPageCacheableWhenFragmentReturnsEmptyList() {
+        ExtendedModelMap model = new ExtendedModelMap();
+
+        pageAssembler.page(model)
+                .optional("relatedArticles", List::of, List.of())
+                .optional("tags", () -> List.copyOf(List.of()), List.of())
+                .require("article", () -> "article")
+                .join();
+
+        assertEquals(List.of(), model.get("relatedArticles"));
+        assertNull(response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void join_ShouldUseFallbackForLateOrFailedOptionalFragments() {
+        ExtendedModelMap model = new ExtendedModelMap();
+
+        pageAssembler.page(model)
+                .optional("categories", () -> slow("categories", 2_000), List.of())
+                .optional("tags", () -> {
+                    throw new IllegalStateException("down");
+                }, List.of())
+                .require("articles", () -> "articles")
+                .join();
+
+        assertEquals(List.of(), model.get("categories"));
+        assertEquals(List.of(), model.get("tags"));
+        assertEquals("articles", model.get("articles"));
+        assertEquals("no-store", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void join_ShouldPropagateRequiredFragmentFailure() {
+        PageAssembler.Assembly page = pageAssembler.page(new ExtendedModelMap())
+                .optional("tags", () -> "tags", List.of())
+                .require("article", () -> {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+                });
+
+        assertThrows(ResponseStatusException.class, page::join);
+    }
+
+    private static String meet(CountDownLatch running, String value) {
+        running.countDown();
+        try {
+            return running.await(5, TimeUnit.SECONDS) ? value : "alone";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    private static String slow(String value, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}